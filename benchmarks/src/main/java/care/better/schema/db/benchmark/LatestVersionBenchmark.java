@@ -0,0 +1,116 @@
+package care.better.schema.db.benchmark;
+
+import care.better.schema.db.upgrade.UpgradeManifest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+
+/**
+ * Loading of the upgrade steps of a 500 version chain, which is what {@code SchemaInitializerImpl.calculateLatestVersion}
+ * does the first time a class loader needs the latest version, on a classpath of many jars with the scripts in the
+ * last one. Without a generated manifest every version is probed with a resource lookup through all jars.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LatestVersionBenchmark {
+    private static final int VERSIONS = 500;
+    private static final int CLASSES_PER_JAR = 200;
+    private static final String SCRIPTS_DIRECTORY = "/schema/upgrades/h2";
+
+    @Param({"10", "200"})
+    private int jars;
+
+    @Param({"false", "true"})
+    private boolean manifest;
+
+    private Path directory;
+    private URLClassLoader classLoader;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("latest-version-benchmark");
+        URL[] urls = new URL[jars];
+        for (int jar = 0; jar < jars - 1; jar++) {
+            urls[jar] = writeLibraryJar(directory.resolve("library-" + jar + ".jar"), jar).toUri().toURL();
+        }
+        Path scripts = writeScriptsJar(directory.resolve("scripts.jar"), null);
+        if (manifest) {
+            try (URLClassLoader probing = new URLClassLoader(new URL[]{scripts.toUri().toURL()}, null)) {
+                scripts = writeScriptsJar(directory.resolve("scripts-manifest.jar"), UpgradeManifest.load(SCRIPTS_DIRECTORY, resource -> probing.getResourceAsStream(resource.substring(1))));
+            }
+        }
+        urls[jars - 1] = scripts.toUri().toURL();
+        classLoader = new URLClassLoader(urls, null);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        classLoader.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public int latestVersion() throws IOException {
+        return UpgradeManifest.load(SCRIPTS_DIRECTORY, resource -> classLoader.getResourceAsStream(resource.substring(1))).getLatestVersion();
+    }
+
+    private static Path writeLibraryJar(Path file, int jar) throws IOException {
+        byte[] content = new byte[512];
+        try (JarOutputStream output = new JarOutputStream(Files.newOutputStream(file))) {
+            for (int entry = 0; entry < CLASSES_PER_JAR; entry++) {
+                output.putNextEntry(new JarEntry("com/example/library" + jar + "/Class" + entry + ".class"));
+                output.write(content);
+                output.closeEntry();
+            }
+        }
+        return file;
+    }
+
+    private static Path writeScriptsJar(Path file, UpgradeManifest upgradeManifest) throws IOException {
+        try (JarOutputStream output = new JarOutputStream(Files.newOutputStream(file))) {
+            for (int version = 1; version <= VERSIONS; version++) {
+                output.putNextEntry(new JarEntry(SCRIPTS_DIRECTORY.substring(1) + '/' + version + ".sql"));
+                output.write(SyntheticScripts.upgradeScript(version).getBytes(StandardCharsets.UTF_8));
+                output.closeEntry();
+            }
+            if (upgradeManifest != null) {
+                output.putNextEntry(new JarEntry(SCRIPTS_DIRECTORY.substring(1) + '/' + UpgradeManifest.MANIFEST_NAME));
+                Writer writer = new OutputStreamWriter(output, StandardCharsets.UTF_8);
+                upgradeManifest.write(writer);
+                writer.flush();
+                output.closeEntry();
+            }
+        }
+        return file;
+    }
+}
@@ -0,0 +1,178 @@
+package care.better.schema.db.benchmark;
+
+import care.better.schema.db.SchemaExporter;
+import javassist.CannotCompileException;
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.CtField;
+import javassist.CtNewConstructor;
+import javassist.NotFoundException;
+import javassist.bytecode.AnnotationsAttribute;
+import javassist.bytecode.ConstPool;
+import javassist.bytecode.annotation.Annotation;
+import javassist.bytecode.annotation.BooleanMemberValue;
+import javassist.bytecode.annotation.EnumMemberValue;
+import javassist.bytecode.annotation.IntegerMemberValue;
+import org.hibernate.boot.model.naming.PhysicalNamingStrategyStandardImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.persistence.spi.PersistenceUnitInfo;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Export of the schema scripts of five dialects for a generated model of 1000 entities, each with a few columns, a
+ * unique column and a foreign key to the previous entity.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class SchemaExportBenchmark {
+    private static final int ENTITIES = 1000;
+    private static final String MODEL_PACKAGE = "care.better.schema.db.benchmark.model.";
+    private static final Map<String, String> DIALECTS = new LinkedHashMap<>();
+
+    static {
+        DIALECTS.put("org.hibernate.dialect.PostgreSQL10Dialect", "pgsql");
+        DIALECTS.put("org.hibernate.dialect.Oracle12cDialect", "ora");
+        DIALECTS.put("org.hibernate.dialect.SQLServer2012Dialect", "mssql");
+        DIALECTS.put("org.hibernate.dialect.MySQL8Dialect", "mysql");
+        DIALECTS.put("org.hibernate.dialect.H2Dialect", "h2");
+    }
+
+    @Param({"1", "5"})
+    private int parallelism;
+
+    private Path directory;
+    private Path output;
+    private URLClassLoader classLoader;
+    private PersistenceUnitInfo persistenceUnitInfo;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, CannotCompileException, NotFoundException {
+        directory = Files.createTempDirectory("schema-export-benchmark");
+        Path classes = Files.createDirectory(directory.resolve("classes"));
+        output = Files.createDirectory(directory.resolve("output"));
+
+        List<String> classNames = generateModel(classes);
+        classLoader = new URLClassLoader(new URL[]{classes.toUri().toURL()}, SchemaExportBenchmark.class.getClassLoader());
+        persistenceUnitInfo = (PersistenceUnitInfo)Proxy.newProxyInstance(
+                SchemaExportBenchmark.class.getClassLoader(),
+                new Class<?>[]{PersistenceUnitInfo.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getManagedClassNames":
+                            return classNames;
+                        case "getClassLoader":
+                            return classLoader;
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+    @Setup(Level.Invocation)
+    public void clearOutput() throws IOException {
+        try (Stream<Path> files = Files.list(output)) {
+            for (Path file : (Iterable<Path>)files::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        classLoader.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public Object exportSchemas() {
+        SchemaExporter exporter = new SchemaExporter(DIALECTS);
+        exporter.setParallelism(parallelism);
+        // Hibernate resolves the entity classes through the context class loader, inherited by the export threads
+        Thread thread = Thread.currentThread();
+        ClassLoader contextClassLoader = thread.getContextClassLoader();
+        thread.setContextClassLoader(classLoader);
+        try {
+            return exporter.exportSchemas(persistenceUnitInfo, output.resolve("%s-schema.sql").toString(), PhysicalNamingStrategyStandardImpl.INSTANCE);
+        } finally {
+            thread.setContextClassLoader(contextClassLoader);
+        }
+    }
+
+    private static List<String> generateModel(Path classes) throws CannotCompileException, NotFoundException, IOException {
+        ClassPool pool = new ClassPool(true);
+        List<String> classNames = new ArrayList<>(ENTITIES);
+        for (int entity = 1; entity <= ENTITIES; entity++) {
+            CtClass entityClass = pool.makeClass(MODEL_PACKAGE + "Entity" + entity);
+            ConstPool constPool = entityClass.getClassFile().getConstPool();
+            entityClass.getClassFile().addAttribute(annotations(constPool, new Annotation("javax.persistence.Entity", constPool)));
+
+            addField(entityClass, "java.lang.Long", "id", new Annotation("javax.persistence.Id", constPool));
+            Annotation name = new Annotation("javax.persistence.Column", constPool);
+            name.addMemberValue("length", new IntegerMemberValue(constPool, 100));
+            name.addMemberValue("nullable", new BooleanMemberValue(false, constPool));
+            addField(entityClass, "java.lang.String", "name", name);
+            Annotation code = new Annotation("javax.persistence.Column", constPool);
+            code.addMemberValue("unique", new BooleanMemberValue(true, constPool));
+            addField(entityClass, "java.lang.String", "code", code);
+            addField(entityClass, "java.lang.Integer", "amount");
+            Annotation created = new Annotation("javax.persistence.Temporal", constPool);
+            EnumMemberValue temporalType = new EnumMemberValue(constPool);
+            temporalType.setType("javax.persistence.TemporalType");
+            temporalType.setValue("TIMESTAMP");
+            created.addMemberValue("value", temporalType);
+            addField(entityClass, "java.util.Date", "created", created);
+            if (entity > 1) {
+                addField(entityClass, MODEL_PACKAGE + "Entity" + (entity - 1), "parent", new Annotation("javax.persistence.ManyToOne", constPool));
+            }
+            entityClass.addConstructor(CtNewConstructor.defaultConstructor(entityClass));
+            entityClass.writeFile(classes.toString());
+            classNames.add(entityClass.getName());
+        }
+        return classNames;
+    }
+
+    private static void addField(CtClass entityClass, String type, String name, Annotation... fieldAnnotations) throws CannotCompileException, NotFoundException {
+        CtField field = new CtField(entityClass.getClassPool().get(type), name, entityClass);
+        if (fieldAnnotations.length > 0) {
+            field.getFieldInfo().addAttribute(annotations(entityClass.getClassFile().getConstPool(), fieldAnnotations));
+        }
+        entityClass.addField(field);
+    }
+
+    private static AnnotationsAttribute annotations(ConstPool constPool, Annotation... annotations) {
+        AnnotationsAttribute attribute = new AnnotationsAttribute(constPool, AnnotationsAttribute.visibleTag);
+        attribute.setAnnotations(annotations);
+        return attribute;
+    }
+}
@@ -0,0 +1,74 @@
+package care.better.schema.db.benchmark;
+
+import care.better.schema.db.script.ScriptDialect;
+import care.better.schema.db.script.SqlScriptReader;
+import care.better.schema.db.script.SqlStatement;
+import care.better.schema.db.utils.SqlUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of synthetic scripts of 1 MB to 100 MB with the dialect aware {@link SqlScriptReader}, streaming and
+ * materialized, and with the deprecated {@link SqlUtils#getValidScriptParts(String)}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class ScriptParsingBenchmark {
+    private static final long MEGABYTE = 1024L * 1024L;
+
+    @Param({"1", "10", "100"})
+    private int sizeMb;
+
+    @Param({"PGSQL", "ORA", "MSSQL"})
+    private ScriptDialect dialect;
+
+    private String script;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        script = SyntheticScripts.script(dialect, sizeMb * MEGABYTE);
+    }
+
+    @Benchmark
+    public int readStatements(Blackhole blackhole) throws IOException {
+        int statements = 0;
+        try (SqlScriptReader reader = new SqlScriptReader(new StringReader(script), dialect)) {
+            SqlStatement statement;
+            while ((statement = reader.readStatement()) != null) {
+                blackhole.consume(statement);
+                statements++;
+            }
+        }
+        return statements;
+    }
+
+    @Benchmark
+    public Object readAll() {
+        return SqlScriptReader.readAll(script, dialect);
+    }
+
+    @Benchmark
+    @SuppressWarnings("deprecation")
+    public Object sqlUtils() {
+        return SqlUtils.getValidScriptParts(script);
+    }
+}
@@ -0,0 +1,85 @@
+package care.better.schema.db.benchmark;
+
+import care.better.schema.db.script.ScriptDialect;
+
+/**
+ * Generates SQL scripts with the constructs the script reader has to handle: DDL, inserts with quoted literals
+ * containing delimiters, line and block comments and procedural blocks in the syntax of the dialect.
+ */
+@SuppressWarnings("HardcodedLineSeparator")
+final class SyntheticScripts {
+    private SyntheticScripts() {
+    }
+
+    /**
+     * @param dialect script dialect
+     * @param bytes   approximate size of the script
+     * @return script contents
+     */
+    static String script(ScriptDialect dialect, long bytes) {
+        StringBuilder script = new StringBuilder((int)Math.min(Integer.MAX_VALUE - 16L, bytes + 4096L));
+        for (int table = 1; script.length() < bytes; table++) {
+            appendTable(script, table);
+            if (table % 10 == 0) {
+                appendBlock(script, dialect, table);
+            }
+        }
+        return script.toString();
+    }
+
+    /**
+     * @param version schema version
+     * @return upgrade script of the version: a new table with an index and rows, and a new column of the previous table
+     */
+    static String upgradeScript(int version) {
+        StringBuilder script = new StringBuilder(1024);
+        script.append("-- version ").append(version).append('\n');
+        script.append("CREATE TABLE t_").append(version).append(" (id BIGINT NOT NULL, name VARCHAR(100), parent_id BIGINT, PRIMARY KEY (id));\n");
+        script.append("CREATE INDEX i_t_").append(version).append("_name ON t_").append(version).append(" (name);\n");
+        for (int row = 1; row <= 5; row++) {
+            script.append("INSERT INTO t_").append(version).append(" (id, name) VALUES (").append(row).append(", 'row; ").append(row).append("');\n");
+        }
+        if (version > 1) {
+            script.append("ALTER TABLE t_").append(version - 1).append(" ADD COLUMN c_").append(version).append(" INTEGER;\n");
+        }
+        return script.toString();
+    }
+
+    private static void appendTable(StringBuilder script, int table) {
+        script.append("-- table ").append(table).append("; generated\n");
+        script.append("CREATE TABLE t_").append(table).append(" (\n")
+                .append("    id BIGINT NOT NULL,\n")
+                .append("    name VARCHAR(255) NOT NULL,\n")
+                .append("    description VARCHAR(4000),\n")
+                .append("    created TIMESTAMP,\n")
+                .append("    PRIMARY KEY (id)\n")
+                .append(");\n");
+        script.append("/* index of table ").append(table).append("; */\n");
+        script.append("CREATE INDEX i_t_").append(table).append("_name ON t_").append(table).append(" (name);\n");
+        for (int row = 1; row <= 20; row++) {
+            script.append("INSERT INTO t_").append(table).append(" (id, name, description) VALUES (")
+                    .append(row).append(", 'name ").append(row).append("', 'it''s a; description -- not a comment');\n");
+        }
+    }
+
+    private static void appendBlock(StringBuilder script, ScriptDialect dialect, int table) {
+        if (dialect.isPlSql()) {
+            script.append("CREATE OR REPLACE PROCEDURE p_").append(table).append(" AS\nBEGIN\n")
+                    .append("    UPDATE t_").append(table).append(" SET name = 'x;y' WHERE id = 1;\n")
+                    .append("    DELETE FROM t_").append(table).append(" WHERE id = 2;\n")
+                    .append("END;\n/\n");
+        } else if (dialect.isBatchSeparator()) {
+            script.append("CREATE PROCEDURE p_").append(table).append(" AS\nBEGIN\n")
+                    .append("    UPDATE t_").append(table).append(" SET name = 'x;y' WHERE id = 1;\n")
+                    .append("    DELETE FROM t_").append(table).append(" WHERE id = 2;\n")
+                    .append("END\nGO\n");
+        } else if (dialect.isDollarQuoting()) {
+            script.append("CREATE FUNCTION f_").append(table).append("() RETURNS void AS $$\nBEGIN\n")
+                    .append("    UPDATE t_").append(table).append(" SET name = 'x;y' WHERE id = 1;\n")
+                    .append("    DELETE FROM t_").append(table).append(" WHERE id = 2;\n")
+                    .append("END;\n$$ LANGUAGE plpgsql;\n");
+        } else {
+            script.append("CREATE VIEW v_").append(table).append(" AS SELECT id, name FROM t_").append(table).append(" WHERE name <> ';';\n");
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package care.better.schema.db.benchmark;
+
+import care.better.schema.db.impl.SchemaInitializerImpl;
+import org.h2.jdbcx.JdbcDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Upgrade of an embedded H2 database through a synthetic chain of 500 versions, and the up to date check of
+ * {@code initializeOrUpdate} that runs on every application start.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class UpgradeChainBenchmark {
+    private static final int VERSIONS = 500;
+    private static final String DIALECT = "org.hibernate.dialect.H2Dialect";
+    private static final String SCRIPTS_DIRECTORY = "/schema/upgrades/h2/";
+    private static final Map<String, byte[]> SCRIPTS = new HashMap<>();
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    static {
+        for (int version = 1; version <= VERSIONS; version++) {
+            SCRIPTS.put(SCRIPTS_DIRECTORY + version + ".sql", SyntheticScripts.upgradeScript(version).getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class OutdatedSchema {
+        @Param({"0", "100"})
+        private int batchSize;
+
+        @Param({"false", "true"})
+        private boolean checkpointMode;
+
+        private Connection holder;
+        private SchemaInitializerImpl initializer;
+
+        @Setup(Level.Invocation)
+        public void setUp() throws SQLException {
+            JdbcDataSource dataSource = createDatabase();
+            holder = dataSource.getConnection();
+            try (Statement statement = holder.createStatement()) {
+                statement.execute("CREATE TABLE schema_version (version INTEGER NOT NULL)");
+                statement.execute("INSERT INTO schema_version (version) VALUES (0)");
+            }
+            initializer = new SyntheticSchemaInitializer(dataSource);
+            initializer.setBatchSize(batchSize);
+            initializer.setCheckpointMode(checkpointMode);
+        }
+
+        @TearDown(Level.Invocation)
+        public void tearDown() throws SQLException {
+            holder.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class CurrentSchema {
+        private Connection holder;
+        private SchemaInitializerImpl initializer;
+
+        @Setup(Level.Trial)
+        public void setUp() throws SQLException, IOException {
+            JdbcDataSource dataSource = createDatabase();
+            holder = dataSource.getConnection();
+            try (Statement statement = holder.createStatement()) {
+                statement.execute("CREATE TABLE schema_version (version INTEGER NOT NULL)");
+                statement.execute("INSERT INTO schema_version (version) VALUES (0)");
+            }
+            initializer = new SyntheticSchemaInitializer(dataSource);
+            initializer.updateExisting();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws SQLException {
+            holder.close();
+        }
+    }
+
+    @Benchmark
+    public void upgradeChain(OutdatedSchema schema) throws SQLException, IOException {
+        schema.initializer.updateExisting();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 3, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    public void upToDateCheck(CurrentSchema schema) throws SQLException, IOException {
+        schema.initializer.initializeOrUpdate();
+    }
+
+    private static JdbcDataSource createDatabase() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:upgrade" + DATABASES.incrementAndGet());
+        return dataSource;
+    }
+
+    /**
+     * Reads the upgrade scripts from memory instead of the classpath.
+     */
+    private static final class SyntheticSchemaInitializer extends SchemaInitializerImpl {
+        private SyntheticSchemaInitializer(JdbcDataSource dataSource) {
+            super(dataSource, DIALECT, false, "schema_version", "h2");
+        }
+
+        @Override
+        protected InputStream getResourceAsStream(String resource) {
+            byte[] script = SCRIPTS.get(resource);
+            return script == null ? null : new ByteArrayInputStream(script);
+        }
+    }
+}
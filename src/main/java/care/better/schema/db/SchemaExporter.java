@@ -1,7 +1,11 @@
 package care.better.schema.db;
 
 import care.better.schema.db.exception.SchemaExportException;
+import care.better.schema.db.export.EntityScanIndex;
+import care.better.schema.db.export.SchemaExportReport;
+import care.better.schema.db.export.SchemaFingerprint;
 import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.hibernate.boot.Metadata;
 import org.hibernate.boot.MetadataSources;
 import org.hibernate.boot.model.naming.PhysicalNamingStrategy;
@@ -14,75 +18,236 @@ import org.reflections.util.ConfigurationBuilder;
 
 import javax.persistence.Entity;
 import javax.persistence.spi.PersistenceUnitInfo;
-import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 /**
  * @author Bostjan Lah
  */
 public final class SchemaExporter {
+    private static final String PHYSICAL_NAMING_STRATEGY = "hibernate.physical_naming_strategy";
+    private static final String IMPLICIT_NAMING_STRATEGY = "hibernate.implicit_naming_strategy";
+    private static final String FINGERPRINT_SUFFIX = ".fingerprint";
+
     private final Map<String, String> dialects;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
 
     public SchemaExporter(Map<String, String> dialects) {
         this.dialects = dialects;
     }
 
+    /**
+     * @param parallelism maximum number of dialects exported at the same time, 1 exports them one after another
+     *                    (defaults to the number of processors)
+     */
+    public void setParallelism(int parallelism) {
+        Preconditions.checkArgument(parallelism >= 1, "Parallelism must be at least 1");
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Exports the schema of every dialect to {@code String.format(filename, prefix)}. Managed classes are loaded once and
+     * the dialects are exported in parallel; each file is written to a temporary file first and moved into place when
+     * complete. Scripts whose {@link SchemaFingerprint} has not changed since the previous export are not generated
+     * again.
+     *
+     * @param persistenceUnitInfo    persistence unit with the managed classes
+     * @param filename               output filename pattern with a {@code %s} placeholder for the dialect prefix
+     * @param physicalNamingStrategy Hibernate physical naming strategy
+     */
     public void exportSchemasToFile(PersistenceUnitInfo persistenceUnitInfo, String filename, PhysicalNamingStrategy physicalNamingStrategy) {
+        exportSchemas(persistenceUnitInfo, filename, physicalNamingStrategy);
+    }
+
+    /**
+     * Exports the schema of every dialect like {@link #exportSchemasToFile(PersistenceUnitInfo, String, PhysicalNamingStrategy)}.
+     *
+     * @param persistenceUnitInfo    persistence unit with the managed classes
+     * @param filename               output filename pattern with a {@code %s} placeholder for the dialect prefix
+     * @param physicalNamingStrategy Hibernate physical naming strategy
+     * @return written and unchanged scripts
+     */
+    public SchemaExportReport exportSchemas(PersistenceUnitInfo persistenceUnitInfo, String filename, PhysicalNamingStrategy physicalNamingStrategy) {
+        Preconditions.checkNotNull(filename, "filename is null!");
+        List<Class<?>> managedClasses = loadManagedClasses(persistenceUnitInfo);
+        String classesFingerprint = SchemaFingerprint.ofClasses(managedClasses);
+
+        Map<String, String> dialectsByPrefix = new LinkedHashMap<>();
+        for (Map.Entry<String, String> entry : dialects.entrySet()) {
+            dialectsByPrefix.putIfAbsent(entry.getValue(), entry.getKey());
+        }
+
+        List<SchemaExportReport.Entry> entries = new ArrayList<>(dialectsByPrefix.size());
+        int threads = Math.min(parallelism, dialectsByPrefix.size());
+        if (threads <= 1) {
+            dialectsByPrefix.forEach((prefix, dialect) -> entries.add(
+                    exportSchema(managedClasses, classesFingerprint, filename, dialect, prefix, physicalNamingStrategy)));
+            return new SchemaExportReport(entries);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setNameFormat("schema-export-%d").setDaemon(true).build());
         try {
-            Set<String> processed = new HashSet<>();
-            for (Map.Entry<String, String> entry : dialects.entrySet()) {
-                if (!processed.contains(entry.getValue())) {
-                    exportSchema(persistenceUnitInfo, filename, entry.getKey(), entry.getValue(), physicalNamingStrategy);
-                    processed.add(entry.getValue());
+            List<Future<SchemaExportReport.Entry>> futures = new ArrayList<>(dialectsByPrefix.size());
+            dialectsByPrefix.forEach((prefix, dialect) -> futures.add(executor.submit(
+                    () -> exportSchema(managedClasses, classesFingerprint, filename, dialect, prefix, physicalNamingStrategy))));
+
+            SchemaExportException failure = null;
+            for (Future<SchemaExportReport.Entry> future : futures) {
+                try {
+                    entries.add(future.get());
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause() instanceof SchemaExportException ? (SchemaExportException)e.getCause() : new SchemaExportException(e.getCause());
+                    } else {
+                        failure.addSuppressed(e.getCause());
+                    }
                 }
             }
+            if (failure != null) {
+                throw failure;
+            }
+            return new SchemaExportReport(entries);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SchemaExportException(e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static List<Class<?>> loadManagedClasses(PersistenceUnitInfo persistenceUnitInfo) {
+        ClassLoader classLoader = persistenceUnitInfo.getClassLoader() == null ? SchemaExporter.class.getClassLoader() : persistenceUnitInfo.getClassLoader();
+        List<Class<?>> managedClasses = new ArrayList<>(persistenceUnitInfo.getManagedClassNames().size());
+        try {
+            for (String className : persistenceUnitInfo.getManagedClassNames()) {
+                managedClasses.add(Class.forName(className, true, classLoader));
+            }
         } catch (ClassNotFoundException e) {
             throw new SchemaExportException(e);
         }
+        return managedClasses;
     }
 
-    @SuppressWarnings("HardcodedLineSeparator")
-    private void exportSchema(
-            PersistenceUnitInfo persistenceUnitInfo,
+    private static SchemaExportReport.Entry exportSchema(
+            List<Class<?>> managedClasses,
+            String classesFingerprint,
             String filename,
             String dialect,
             String prefix,
-            PhysicalNamingStrategy physicalNamingStrategy) throws ClassNotFoundException {
-        Preconditions.checkNotNull(filename, "filename is null!");
+            PhysicalNamingStrategy physicalNamingStrategy) {
         Preconditions.checkNotNull(dialect, "dialect is null!");
 
-        StandardServiceRegistryBuilder builder = new StandardServiceRegistryBuilder();
-        builder.applySetting("hibernate.dialect", dialect);
-        builder.applySetting("hibernate.dialect.oracle.prefer_long_raw", "true");
-
-        MetadataSources metadataSources = new MetadataSources(builder.build());
+        Map<String, String> settings = new HashMap<>();
+        settings.put("hibernate.dialect", dialect);
+        settings.put("hibernate.dialect.oracle.prefer_long_raw", "true");
 
-        for (String className : persistenceUnitInfo.getManagedClassNames()) {
-            metadataSources.addAnnotatedClass(Class.forName(className));
+        Path path = Paths.get(String.format(filename, prefix));
+        String fingerprint = SchemaFingerprint.of(classesFingerprint, withNamingStrategy(settings, physicalNamingStrategy));
+        if (SchemaFingerprint.isCurrent(path, fingerprint)) {
+            System.err.println("Schema for " + dialect + " in " + path.toAbsolutePath() + " is up to date");
+            return new SchemaExportReport.Entry(dialect, prefix, path, false);
         }
 
-        Metadata metadata = metadataSources.getMetadataBuilder()
+        Metadata metadata = buildMetadata(managedClasses, settings, physicalNamingStrategy);
+
+        System.err.println("Generating for " + dialect + " to " + path.toAbsolutePath());
+        writeScript(metadata, path);
+        SchemaFingerprint.write(path, fingerprint);
+        return new SchemaExportReport.Entry(dialect, prefix, path, true);
+    }
+
+    /**
+     * Builds Hibernate metadata of the entities.
+     *
+     * @param entities               entity classes
+     * @param settings               Hibernate settings, at least {@code hibernate.dialect}
+     * @param physicalNamingStrategy Hibernate physical naming strategy
+     * @return metadata of the entities
+     */
+    public static Metadata buildMetadata(Collection<Class<?>> entities, Map<String, ?> settings, PhysicalNamingStrategy physicalNamingStrategy) {
+        MetadataSources metadataSources = new MetadataSources(new StandardServiceRegistryBuilder().applySettings(settings).build());
+        entities.forEach(metadataSources::addAnnotatedClass);
+        return metadataSources.getMetadataBuilder()
                 .applyPhysicalNamingStrategy(physicalNamingStrategy)
                 .build();
+    }
+
+    private static Map<String, String> withNamingStrategy(Map<String, String> settings, PhysicalNamingStrategy physicalNamingStrategy) {
+        Map<String, String> fingerprintSettings = new HashMap<>(settings);
+        fingerprintSettings.put(PHYSICAL_NAMING_STRATEGY, physicalNamingStrategy.getClass().getName());
+        fingerprintSettings.put(PHYSICAL_NAMING_STRATEGY + FINGERPRINT_SUFFIX, SchemaFingerprint.ofStrategy(physicalNamingStrategy));
+        return fingerprintSettings;
+    }
+
+    /**
+     * Adds the fingerprints of naming strategies configured by class name, so changes to their code regenerate the
+     * scripts. Strategies that can not be loaded, e.g. short names, are covered by their setting only.
+     */
+    private static Map<String, String> withNamingStrategyClasses(Map<String, String> settings) {
+        Map<String, String> fingerprintSettings = new HashMap<>(settings);
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader() == null
+                ? SchemaExporter.class.getClassLoader()
+                : Thread.currentThread().getContextClassLoader();
+        for (String key : new String[]{PHYSICAL_NAMING_STRATEGY, IMPLICIT_NAMING_STRATEGY}) {
+            String className = settings.get(key);
+            if (className != null) {
+                try {
+                    fingerprintSettings.put(key + FINGERPRINT_SUFFIX, SchemaFingerprint.ofStrategy(Class.forName(className, false, classLoader)));
+                } catch (ClassNotFoundException e) {
+                    // resolved by Hibernate
+                }
+            }
+        }
+        return fingerprintSettings;
+    }
 
-        String path = String.format(filename, prefix);
-        File file = new File(path);
-        if (file.exists()) {
-            //noinspection ResultOfMethodCallIgnored
-            file.delete();
+    /**
+     * Writes the create script to a temporary file in the target directory and moves it over the target, so readers
+     * never see a partially written script.
+     */
+    @SuppressWarnings("HardcodedLineSeparator")
+    private static void writeScript(Metadata metadata, Path file) {
+        try {
+            Path target = file.toAbsolutePath();
+            Files.createDirectories(target.getParent());
+            Path temporary = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+            try {
+                SchemaExport export = new SchemaExport()
+                        .setOutputFile(temporary.toString())
+                        .setOverrideOutputFileContent()
+                        .setHaltOnError(true)
+                        .setFormat(true)
+                        .setDelimiter(";\n");
+                export.createOnly(EnumSet.of(TargetType.SCRIPT), metadata);
+                try {
+                    Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        } catch (IOException e) {
+            throw new SchemaExportException(e);
         }
-        System.err.println("Generating for " + dialect + " to " + file.getAbsolutePath());
-        SchemaExport export = new SchemaExport()
-                .setOutputFile(path)
-                .setFormat(true)
-                .setDelimiter(";\n");
-        export.createOnly(EnumSet.of(TargetType.SCRIPT), metadata);
     }
 
     /**
@@ -101,34 +266,88 @@ public final class SchemaExporter {
             Collection<String> packageNames,
             String filename,
             Map<String, String> additionalHibernateSettings) {
+        exportSchemas(dialectName, physicalNamingStrategy, implicitNamingStrategy, packageNames, filename, additionalHibernateSettings, null);
+    }
+
+    /**
+     * Exports generated schema file to the specified file
+     *
+     * @param dialectName            Hibernate dialect name
+     * @param physicalNamingStrategy Hibernate physical naming strategy
+     * @param implicitNamingStrategy Hibernate implicit naming strategy
+     * @param packageNames           collection of packages to scan for @Entity classes
+     * @param filename               output filename
+     * @param entityIndex            file of the {@link EntityScanIndex} used to find @Entity classes, {@code null}
+     *                               scans the classpath on every call
+     */
+    public static void exportSchemasToFile(
+            String dialectName,
+            String physicalNamingStrategy,
+            String implicitNamingStrategy,
+            Collection<String> packageNames,
+            String filename,
+            Map<String, String> additionalHibernateSettings,
+            Path entityIndex) {
+        exportSchemas(dialectName, physicalNamingStrategy, implicitNamingStrategy, packageNames, filename, additionalHibernateSettings, entityIndex);
+    }
+
+    /**
+     * Exports generated schema file to the specified file
+     *
+     * @param dialectName            Hibernate dialect name
+     * @param physicalNamingStrategy Hibernate physical naming strategy
+     * @param implicitNamingStrategy Hibernate implicit naming strategy
+     * @param packageNames           collection of packages to scan for @Entity classes
+     * @param filename               output filename
+     * @param entityIndex            file of the {@link EntityScanIndex} used to find @Entity classes, {@code null}
+     *                               scans the classpath on every call
+     * @return written or unchanged script, see {@link SchemaFingerprint}
+     */
+    public static SchemaExportReport exportSchemas(
+            String dialectName,
+            String physicalNamingStrategy,
+            String implicitNamingStrategy,
+            Collection<String> packageNames,
+            String filename,
+            Map<String, String> additionalHibernateSettings,
+            Path entityIndex) {
         Map<String, String> settings = new HashMap<>(additionalHibernateSettings);
-        settings.put("hibernate.physical_naming_strategy", physicalNamingStrategy);
-        settings.put("hibernate.implicit_naming_strategy", implicitNamingStrategy);
+        settings.put(PHYSICAL_NAMING_STRATEGY, physicalNamingStrategy);
+        settings.put(IMPLICIT_NAMING_STRATEGY, implicitNamingStrategy);
         settings.put("hibernate.dialect", dialectName);
 
+        Set<Class<?>> entities = findEntities(packageNames, entityIndex);
+        Path path = Paths.get(filename);
+        String fingerprint = SchemaFingerprint.of(SchemaFingerprint.ofClasses(entities), withNamingStrategyClasses(settings));
+        if (SchemaFingerprint.isCurrent(path, fingerprint)) {
+            return new SchemaExportReport(Collections.singletonList(new SchemaExportReport.Entry(dialectName, null, path, false)));
+        }
+
         MetadataSources metadata = new MetadataSources(
                 new StandardServiceRegistryBuilder()
                         .applySettings(settings)
                         .build());
 
-        new Reflections(new ConfigurationBuilder()
-                                .setUrls(
-                                        packageNames.stream()
-                                                .flatMap(packageName -> ClasspathHelper.forPackage(packageName).stream())
-                                                .collect(Collectors.toSet())
-                                ))
-                .getTypesAnnotatedWith(Entity.class)
-                .forEach(metadata::addAnnotatedClass);
-
-        File file = new File(filename);
-        if (file.exists()) {
-            //noinspection ResultOfMethodCallIgnored
-            file.delete();
+        entities.forEach(metadata::addAnnotatedClass);
+
+        writeScript(metadata.buildMetadata(), path);
+        SchemaFingerprint.write(path, fingerprint);
+        return new SchemaExportReport(Collections.singletonList(new SchemaExportReport.Entry(dialectName, null, path, true)));
+    }
+
+    private static Set<Class<?>> findEntities(Collection<String> packageNames, Path entityIndex) {
+        if (entityIndex != null) {
+            EntityScanIndex index = EntityScanIndex.load(entityIndex);
+            Set<Class<?>> entities = index.findEntities(packageNames);
+            index.save();
+            return entities;
         }
-        SchemaExport export = new SchemaExport()
-                .setOutputFile(filename)
-                .setFormat(true)
-                .setDelimiter(";\n");
-        export.createOnly(EnumSet.of(TargetType.SCRIPT), metadata.buildMetadata());
+        return new Reflections(new ConfigurationBuilder()
+                                       .setUrls(
+                                               packageNames.stream()
+                                                       .flatMap(packageName -> ClasspathHelper.forPackage(packageName).stream())
+                                                       .collect(Collectors.toSet())
+                                       ))
+                .getTypesAnnotatedWith(Entity.class);
     }
 }
@@ -0,0 +1,182 @@
+package care.better.schema.db;
+
+import care.better.schema.db.exception.SchemaExportException;
+import care.better.schema.db.export.GeneratedUpgradeScript;
+import care.better.schema.db.script.ScriptDialect;
+import care.better.schema.db.script.SqlScriptReader;
+import care.better.schema.db.script.SqlStatement;
+import care.better.schema.db.script.StatementCost;
+import care.better.schema.db.script.StatementCostClassifier;
+import com.google.common.base.Preconditions;
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.model.naming.PhysicalNamingStrategy;
+import org.hibernate.tool.hbm2ddl.SchemaUpdate;
+import org.hibernate.tool.schema.TargetType;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Generates the next numbered upgrade script ({@code schema/upgrades/{db_name}/N.sql}) from the difference between the
+ * Hibernate metadata of the entities and a database schema that all existing upgrade scripts were applied to, e.g. an
+ * embedded H2 or a local database upgraded with {@link care.better.schema.db.impl.SchemaInitializerImpl}. Statements
+ * that are slow or blocking on large tables are preceded by a {@code -- WARNING:} comment, see
+ * {@link StatementCostClassifier}.
+ */
+public final class UpgradeScriptGenerator {
+    private static final Pattern SCRIPT_NAME = Pattern.compile("(\\d+)\\.sql");
+
+    private final Collection<Class<?>> entities;
+    private final PhysicalNamingStrategy physicalNamingStrategy;
+    private final Path scriptsDirectory;
+
+    /**
+     * @param entities               entity classes
+     * @param physicalNamingStrategy Hibernate physical naming strategy
+     * @param scriptsDirectory       source directory of the upgrade scripts, e.g. {@code src/main/resources/schema/upgrades}
+     */
+    public UpgradeScriptGenerator(Collection<Class<?>> entities, PhysicalNamingStrategy physicalNamingStrategy, Path scriptsDirectory) {
+        this.entities = entities;
+        this.physicalNamingStrategy = physicalNamingStrategy;
+        this.scriptsDirectory = scriptsDirectory;
+    }
+
+    /**
+     * Writes {@code {scriptsDirectory}/{dialectDir}/{version + 1}.sql} with the statements that bring the schema of the
+     * database to the entities. Nothing is written when the schema is up to date.
+     *
+     * @param dialectName            Hibernate dialect name
+     * @param dialectDir             dialect directory name, e.g. {@code pgsql}
+     * @param dataSource             database with all existing upgrade scripts applied
+     * @param schemaVersionTableName name of the schema version table
+     * @return generated script
+     */
+    public GeneratedUpgradeScript generate(String dialectName, String dialectDir, DataSource dataSource, String schemaVersionTableName) {
+        Preconditions.checkNotNull(dialectName, "dialect is null!");
+        Path dialectDirectory = scriptsDirectory.resolve(dialectDir);
+        int version = getNextVersion(dialectDirectory, dataSource, schemaVersionTableName);
+
+        Map<String, Object> settings = new HashMap<>();
+        settings.put("hibernate.dialect", dialectName);
+        settings.put("hibernate.dialect.oracle.prefer_long_raw", "true");
+        settings.put("hibernate.connection.datasource", dataSource);
+        Metadata metadata = SchemaExporter.buildMetadata(entities, settings, physicalNamingStrategy);
+
+        ScriptDialect scriptDialect = ScriptDialect.forDirectory(dialectDir);
+        StatementCostClassifier classifier = new StatementCostClassifier(scriptDialect);
+        List<StatementCost> statements = new ArrayList<>();
+        for (SqlStatement statement : SqlScriptReader.readAll(diff(metadata), scriptDialect)) {
+            statements.add(classifier.classify(statement));
+        }
+        if (statements.isEmpty()) {
+            return new GeneratedUpgradeScript(version, null, statements);
+        }
+
+        Path script = dialectDirectory.resolve(version + ".sql");
+        writeScript(script, dialectName, statements);
+        return new GeneratedUpgradeScript(version, script, statements);
+    }
+
+    private static int getNextVersion(Path dialectDirectory, DataSource dataSource, String schemaVersionTableName) {
+        int latestScript = 0;
+        if (Files.isDirectory(dialectDirectory)) {
+            try (Stream<Path> files = Files.list(dialectDirectory)) {
+                latestScript = files
+                        .map(file -> SCRIPT_NAME.matcher(file.getFileName().toString()))
+                        .filter(Matcher::matches)
+                        .mapToInt(matcher -> Integer.parseInt(matcher.group(1)))
+                        .max()
+                        .orElse(0);
+            } catch (IOException e) {
+                throw new SchemaExportException(e);
+            }
+        }
+
+        int databaseVersion;
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT version FROM " + schemaVersionTableName)) {
+            databaseVersion = rs.next() ? rs.getInt(1) : 0;
+        } catch (SQLException e) {
+            throw new SchemaExportException(e);
+        }
+        if (databaseVersion < latestScript) {
+            throw new IllegalStateException("Database schema version " + databaseVersion + " is older than upgrade script " + latestScript
+                                                    + ".sql in " + dialectDirectory.toAbsolutePath() + ", apply the existing scripts first!");
+        }
+        return databaseVersion + 1;
+    }
+
+    @SuppressWarnings("HardcodedLineSeparator")
+    private static String diff(Metadata metadata) {
+        try {
+            Path temporary = Files.createTempFile("schema-update", ".sql");
+            try {
+                new SchemaUpdate()
+                        .setOutputFile(temporary.toString())
+                        .setHaltOnError(true)
+                        .setFormat(true)
+                        .setDelimiter(";\n")
+                        .execute(EnumSet.of(TargetType.SCRIPT), metadata);
+                return new String(Files.readAllBytes(temporary), StandardCharsets.UTF_8);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        } catch (IOException e) {
+            throw new SchemaExportException(e);
+        }
+    }
+
+    @SuppressWarnings("HardcodedLineSeparator")
+    private static void writeScript(Path file, String dialectName, List<StatementCost> statements) {
+        try {
+            Path target = file.toAbsolutePath();
+            Files.createDirectories(target.getParent());
+            if (Files.exists(target)) {
+                throw new IllegalStateException("Upgrade script " + target + " already exists!");
+            }
+            Path temporary = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+            try {
+                try (Writer writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+                    writer.write("-- Generated from the difference between the entities and the schema (" + dialectName + "), review before use\n");
+                    for (StatementCost cost : statements) {
+                        writer.write('\n');
+                        if (cost.isSlow()) {
+                            writer.write("-- WARNING: " + cost + '\n');
+                        }
+                        writer.write(cost.getStatement().getSql());
+                        writer.write(";\n");
+                    }
+                }
+                try {
+                    Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temporary, target);
+                }
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        } catch (IOException e) {
+            throw new SchemaExportException(e);
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package care.better.schema.db.drift;
+
+import care.better.schema.db.script.ScriptDialect;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Reads the catalog of the current schema with three dictionary queries per dialect, one for the columns of all tables,
+ * one for the primary and foreign keys (with the unique constraints where the dialect does not list them as indexes)
+ * and one for the indexes. Dialects without known dictionary views fall back to {@link DatabaseMetaData}: the columns
+ * are still read with one call, the keys and indexes per table.
+ */
+final class CatalogReader {
+    /**
+     * Queries returning {@code table, column, type, nullable (1/0)}; {@code table, P/U/R, constraint, column,
+     * position, referenced table} (null for h2, see {@link #readH2Keys}) and {@code table, index, unique (1/0), column,
+     * position}.
+     */
+    private static final Map<ScriptDialect, String[]> QUERIES = new EnumMap<>(ScriptDialect.class);
+
+    static {
+        QUERIES.put(ScriptDialect.PGSQL, new String[]{
+                "SELECT c.relname, a.attname, format_type(a.atttypid, a.atttypmod), CASE WHEN a.attnotnull THEN 0 ELSE 1 END " +
+                        "FROM pg_attribute a JOIN pg_class c ON c.oid = a.attrelid JOIN pg_namespace n ON n.oid = c.relnamespace " +
+                        "WHERE n.nspname = current_schema() AND c.relkind IN ('r', 'p') AND a.attnum > 0 AND NOT a.attisdropped",
+                "SELECT c.relname, upper(con.contype::text), con.conname, a.attname, k.ord, f.relname " +
+                        "FROM pg_constraint con JOIN pg_class c ON c.oid = con.conrelid JOIN pg_namespace n ON n.oid = c.relnamespace " +
+                        "CROSS JOIN LATERAL unnest(con.conkey) WITH ORDINALITY AS k(attnum, ord) " +
+                        "JOIN pg_attribute a ON a.attrelid = con.conrelid AND a.attnum = k.attnum " +
+                        "LEFT JOIN pg_class f ON f.oid = con.confrelid " +
+                        "WHERE n.nspname = current_schema() AND con.contype IN ('p', 'u', 'f')",
+                "SELECT t.relname, i.relname, CASE WHEN ix.indisunique THEN 1 ELSE 0 END, a.attname, k.ord " +
+                        "FROM pg_index ix JOIN pg_class t ON t.oid = ix.indrelid JOIN pg_class i ON i.oid = ix.indexrelid " +
+                        "JOIN pg_namespace n ON n.oid = t.relnamespace " +
+                        "CROSS JOIN LATERAL unnest(ix.indkey::int2[]) WITH ORDINALITY AS k(attnum, ord) " +
+                        "JOIN pg_attribute a ON a.attrelid = ix.indrelid AND a.attnum = k.attnum " +
+                        "WHERE n.nspname = current_schema() AND NOT ix.indisprimary"});
+        QUERIES.put(ScriptDialect.ORA, new String[]{
+                "SELECT c.table_name, c.column_name, " +
+                        "CASE WHEN c.char_used IS NOT NULL AND c.char_length > 0 THEN c.data_type || '(' || c.char_length || ')' ELSE c.data_type END, " +
+                        "CASE c.nullable WHEN 'Y' THEN 1 ELSE 0 END " +
+                        "FROM all_tab_columns c JOIN all_tables t ON t.owner = c.owner AND t.table_name = c.table_name " +
+                        "WHERE c.owner = SYS_CONTEXT('USERENV', 'CURRENT_SCHEMA') AND t.dropped = 'NO'",
+                "SELECT c.table_name, c.constraint_type, c.constraint_name, cc.column_name, cc.position, r.table_name " +
+                        "FROM all_constraints c JOIN all_cons_columns cc ON cc.owner = c.owner AND cc.constraint_name = c.constraint_name " +
+                        "LEFT JOIN all_constraints r ON r.owner = c.r_owner AND r.constraint_name = c.r_constraint_name " +
+                        "WHERE c.owner = SYS_CONTEXT('USERENV', 'CURRENT_SCHEMA') AND c.constraint_type IN ('P', 'U', 'R')",
+                "SELECT i.table_name, i.index_name, CASE i.uniqueness WHEN 'UNIQUE' THEN 1 ELSE 0 END, ic.column_name, ic.column_position " +
+                        "FROM all_indexes i JOIN all_ind_columns ic ON ic.index_owner = i.owner AND ic.index_name = i.index_name " +
+                        "WHERE i.owner = SYS_CONTEXT('USERENV', 'CURRENT_SCHEMA') AND i.table_owner = i.owner AND i.index_type <> 'LOB'"});
+        QUERIES.put(ScriptDialect.MSSQL, new String[]{
+                "SELECT t.name, c.name, " +
+                        "CASE WHEN ty.name IN ('varchar', 'char', 'varbinary', 'binary') " +
+                        "THEN ty.name + '(' + CASE c.max_length WHEN -1 THEN 'max' ELSE CAST(c.max_length AS VARCHAR(10)) END + ')' " +
+                        "WHEN ty.name IN ('nvarchar', 'nchar') " +
+                        "THEN ty.name + '(' + CASE c.max_length WHEN -1 THEN 'max' ELSE CAST(c.max_length / 2 AS VARCHAR(10)) END + ')' " +
+                        "ELSE ty.name END, " +
+                        "CASE WHEN c.is_nullable = 1 THEN 1 ELSE 0 END " +
+                        "FROM sys.tables t JOIN sys.columns c ON c.object_id = t.object_id JOIN sys.types ty ON ty.user_type_id = c.user_type_id " +
+                        "WHERE t.schema_id = SCHEMA_ID()",
+                "SELECT t.name, 'P', i.name, c.name, ic.key_ordinal, NULL " +
+                        "FROM sys.indexes i JOIN sys.tables t ON t.object_id = i.object_id " +
+                        "JOIN sys.index_columns ic ON ic.object_id = i.object_id AND ic.index_id = i.index_id " +
+                        "JOIN sys.columns c ON c.object_id = ic.object_id AND c.column_id = ic.column_id " +
+                        "WHERE t.schema_id = SCHEMA_ID() AND i.is_primary_key = 1 " +
+                        "UNION ALL " +
+                        "SELECT t.name, 'R', fk.name, c.name, fkc.constraint_column_id, rt.name " +
+                        "FROM sys.foreign_keys fk JOIN sys.foreign_key_columns fkc ON fkc.constraint_object_id = fk.object_id " +
+                        "JOIN sys.tables t ON t.object_id = fk.parent_object_id JOIN sys.tables rt ON rt.object_id = fk.referenced_object_id " +
+                        "JOIN sys.columns c ON c.object_id = fkc.parent_object_id AND c.column_id = fkc.parent_column_id " +
+                        "WHERE t.schema_id = SCHEMA_ID()",
+                "SELECT t.name, i.name, CASE WHEN i.is_unique = 1 THEN 1 ELSE 0 END, c.name, ic.key_ordinal " +
+                        "FROM sys.indexes i JOIN sys.tables t ON t.object_id = i.object_id " +
+                        "JOIN sys.index_columns ic ON ic.object_id = i.object_id AND ic.index_id = i.index_id " +
+                        "JOIN sys.columns c ON c.object_id = ic.object_id AND c.column_id = ic.column_id " +
+                        "WHERE t.schema_id = SCHEMA_ID() AND i.is_primary_key = 0 AND ic.key_ordinal > 0"});
+        QUERIES.put(ScriptDialect.MYSQL, new String[]{
+                "SELECT c.TABLE_NAME, c.COLUMN_NAME, c.COLUMN_TYPE, CASE c.IS_NULLABLE WHEN 'YES' THEN 1 ELSE 0 END " +
+                        "FROM information_schema.COLUMNS c JOIN information_schema.TABLES t ON t.TABLE_SCHEMA = c.TABLE_SCHEMA AND t.TABLE_NAME = c.TABLE_NAME " +
+                        "WHERE c.TABLE_SCHEMA = DATABASE() AND t.TABLE_TYPE = 'BASE TABLE'",
+                "SELECT k.TABLE_NAME, CASE WHEN k.CONSTRAINT_NAME = 'PRIMARY' THEN 'P' ELSE 'R' END, k.CONSTRAINT_NAME, k.COLUMN_NAME, k.ORDINAL_POSITION, k.REFERENCED_TABLE_NAME " +
+                        "FROM information_schema.KEY_COLUMN_USAGE k " +
+                        "WHERE k.TABLE_SCHEMA = DATABASE() AND (k.CONSTRAINT_NAME = 'PRIMARY' OR k.REFERENCED_TABLE_NAME IS NOT NULL)",
+                "SELECT s.TABLE_NAME, s.INDEX_NAME, CASE s.NON_UNIQUE WHEN 0 THEN 1 ELSE 0 END, s.COLUMN_NAME, s.SEQ_IN_INDEX " +
+                        "FROM information_schema.STATISTICS s WHERE s.TABLE_SCHEMA = DATABASE() AND s.INDEX_NAME <> 'PRIMARY'"});
+        QUERIES.put(ScriptDialect.H2, new String[]{
+                "SELECT c.TABLE_NAME, c.COLUMN_NAME, " +
+                        "CASE WHEN c.DATA_TYPE LIKE '%CHAR%' AND c.DATA_TYPE NOT LIKE '%LARGE OBJECT' AND c.CHARACTER_MAXIMUM_LENGTH IS NOT NULL " +
+                        "THEN c.DATA_TYPE || '(' || c.CHARACTER_MAXIMUM_LENGTH || ')' ELSE c.DATA_TYPE END, " +
+                        "CASE c.IS_NULLABLE WHEN 'YES' THEN 1 ELSE 0 END " +
+                        "FROM INFORMATION_SCHEMA.COLUMNS c JOIN INFORMATION_SCHEMA.TABLES t ON t.TABLE_SCHEMA = c.TABLE_SCHEMA AND t.TABLE_NAME = c.TABLE_NAME " +
+                        "WHERE c.TABLE_SCHEMA = SCHEMA() AND t.TABLE_SCHEMA = SCHEMA() AND t.TABLE_TYPE = 'BASE TABLE'",
+                null,
+                "SELECT i.TABLE_NAME, i.INDEX_NAME, CASE i.INDEX_TYPE_NAME WHEN 'UNIQUE INDEX' THEN 1 ELSE 0 END, c.COLUMN_NAME, c.ORDINAL_POSITION " +
+                        "FROM INFORMATION_SCHEMA.INDEXES i JOIN INFORMATION_SCHEMA.INDEX_COLUMNS c " +
+                        "ON c.INDEX_SCHEMA = i.INDEX_SCHEMA AND c.INDEX_NAME = i.INDEX_NAME AND c.TABLE_NAME = i.TABLE_NAME " +
+                        "WHERE i.TABLE_SCHEMA = SCHEMA() AND c.TABLE_SCHEMA = SCHEMA() AND i.INDEX_TYPE_NAME <> 'PRIMARY KEY'"});
+    }
+
+    private static final String H2_CONSTRAINTS =
+            "SELECT CONSTRAINT_NAME, TABLE_NAME, CONSTRAINT_TYPE FROM INFORMATION_SCHEMA.TABLE_CONSTRAINTS " +
+                    "WHERE TABLE_SCHEMA = SCHEMA() AND CONSTRAINT_TYPE IN ('PRIMARY KEY', 'UNIQUE', 'FOREIGN KEY')";
+    private static final String H2_KEY_COLUMNS =
+            "SELECT CONSTRAINT_NAME, COLUMN_NAME, ORDINAL_POSITION FROM INFORMATION_SCHEMA.KEY_COLUMN_USAGE WHERE TABLE_SCHEMA = SCHEMA()";
+    private static final String H2_REFERENCES =
+            "SELECT CONSTRAINT_NAME, UNIQUE_CONSTRAINT_NAME FROM INFORMATION_SCHEMA.REFERENTIAL_CONSTRAINTS WHERE CONSTRAINT_SCHEMA = SCHEMA()";
+
+    private CatalogReader() {
+    }
+
+    static SchemaCatalog read(Connection connection, ScriptDialect dialect) throws SQLException {
+        String[] queries = QUERIES.get(dialect);
+        return queries == null ? readMetaData(connection) : readDictionary(connection, queries);
+    }
+
+    private static SchemaCatalog readDictionary(Connection connection, String[] queries) throws SQLException {
+        SchemaCatalog catalog = new SchemaCatalog();
+        try (Statement statement = connection.createStatement()) {
+            try (ResultSet rs = statement.executeQuery(queries[0])) {
+                while (rs.next()) {
+                    catalog.table(rs.getString(1)).addColumn(rs.getString(2), rs.getString(3), rs.getInt(4) == 1);
+                }
+            }
+
+            Map<String, KeyColumns> keys = queries[1] == null ? readH2Keys(statement) : new LinkedHashMap<>();
+            if (queries[1] != null) {
+                try (ResultSet rs = statement.executeQuery(queries[1])) {
+                    while (rs.next()) {
+                        String table = rs.getString(1);
+                        String type = rs.getString(2);
+                        String referencedTable = rs.getString(6);
+                        keys.computeIfAbsent(table + '\0' + rs.getString(3), k -> new KeyColumns(table, type, referencedTable))
+                                .add(rs.getInt(5), rs.getString(4));
+                    }
+                }
+            }
+            for (KeyColumns key : keys.values()) {
+                SchemaCatalog.Table table = catalog.getTables().get(SchemaCatalog.normalize(key.table));
+                if (table == null) {
+                    continue;
+                }
+                if ("P".equals(key.type)) {
+                    table.setPrimaryKey(key.getColumns());
+                } else if ("U".equals(key.type)) {
+                    table.addUniqueKey(key.getColumns());
+                } else if (key.referencedTable != null) {
+                    table.addForeignKey(key.getColumns(), key.referencedTable);
+                }
+            }
+
+            Map<String, KeyColumns> indexes = new LinkedHashMap<>();
+            try (ResultSet rs = statement.executeQuery(queries[2])) {
+                while (rs.next()) {
+                    String table = rs.getString(1);
+                    String column = rs.getString(4);
+                    if (column != null) {
+                        String unique = rs.getInt(3) == 1 ? "U" : "I";
+                        indexes.computeIfAbsent(table + '\0' + rs.getString(2), k -> new KeyColumns(table, unique, null)).add(rs.getInt(5), column);
+                    }
+                }
+            }
+            addIndexes(catalog, indexes);
+        }
+        return catalog;
+    }
+
+    /**
+     * H2 evaluates joins of its {@code INFORMATION_SCHEMA} tables row by row, which takes seconds for a few thousand
+     * constraints, so the constraints, their columns and the referenced constraints are read separately and joined here.
+     */
+    private static Map<String, KeyColumns> readH2Keys(Statement statement) throws SQLException {
+        Map<String, KeyColumns> keys = new LinkedHashMap<>();
+        Map<String, String> tables = new HashMap<>();
+        Map<String, String> references = new HashMap<>();
+        try (ResultSet rs = statement.executeQuery(H2_REFERENCES)) {
+            while (rs.next()) {
+                references.put(rs.getString(1), rs.getString(2));
+            }
+        }
+        List<String[]> constraints = new ArrayList<>();
+        try (ResultSet rs = statement.executeQuery(H2_CONSTRAINTS)) {
+            while (rs.next()) {
+                tables.put(rs.getString(1), rs.getString(2));
+                constraints.add(new String[]{rs.getString(1), rs.getString(2), rs.getString(3)});
+            }
+        }
+        for (String[] constraint : constraints) {
+            String type = "PRIMARY KEY".equals(constraint[2]) ? "P" : "UNIQUE".equals(constraint[2]) ? "U" : "R";
+            String referencedTable = references.containsKey(constraint[0]) ? tables.get(references.get(constraint[0])) : null;
+            keys.put(constraint[0], new KeyColumns(constraint[1], type, referencedTable));
+        }
+        try (ResultSet rs = statement.executeQuery(H2_KEY_COLUMNS)) {
+            while (rs.next()) {
+                KeyColumns key = keys.get(rs.getString(1));
+                if (key != null) {
+                    key.add(rs.getInt(3), rs.getString(2));
+                }
+            }
+        }
+        return keys;
+    }
+
+    private static SchemaCatalog readMetaData(Connection connection) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        String catalogName = connection.getCatalog();
+        String schema = connection.getSchema();
+
+        SchemaCatalog catalog = new SchemaCatalog();
+        List<String> tableNames = new ArrayList<>();
+        try (ResultSet rs = metaData.getTables(catalogName, schema, "%", new String[]{"TABLE"})) {
+            while (rs.next()) {
+                tableNames.add(rs.getString("TABLE_NAME"));
+                catalog.table(rs.getString("TABLE_NAME"));
+            }
+        }
+        try (ResultSet rs = metaData.getColumns(catalogName, schema, "%", "%")) {
+            while (rs.next()) {
+                SchemaCatalog.Table table = catalog.getTables().get(SchemaCatalog.normalize(rs.getString("TABLE_NAME")));
+                if (table != null) {
+                    table.addColumn(rs.getString("COLUMN_NAME"),
+                                    rs.getString("TYPE_NAME") + '(' + rs.getInt("COLUMN_SIZE") + ')',
+                                    rs.getInt("NULLABLE") != DatabaseMetaData.columnNoNulls);
+                }
+            }
+        }
+
+        for (String tableName : tableNames) {
+            SchemaCatalog.Table table = catalog.table(tableName);
+            Map<String, KeyColumns> keys = new LinkedHashMap<>();
+            try (ResultSet rs = metaData.getPrimaryKeys(catalogName, schema, tableName)) {
+                while (rs.next()) {
+                    keys.computeIfAbsent("P", k -> new KeyColumns(tableName, "P", null)).add(rs.getInt("KEY_SEQ"), rs.getString("COLUMN_NAME"));
+                }
+            }
+            if (keys.containsKey("P")) {
+                table.setPrimaryKey(keys.get("P").getColumns());
+            }
+            keys.clear();
+            try (ResultSet rs = metaData.getImportedKeys(catalogName, schema, tableName)) {
+                while (rs.next()) {
+                    String referencedTable = rs.getString("PKTABLE_NAME");
+                    keys.computeIfAbsent(referencedTable + '\0' + rs.getString("FK_NAME"), k -> new KeyColumns(tableName, "R", referencedTable))
+                            .add(rs.getInt("KEY_SEQ"), rs.getString("FKCOLUMN_NAME"));
+                }
+            }
+            keys.values().forEach(key -> table.addForeignKey(key.getColumns(), key.referencedTable));
+
+            Map<String, KeyColumns> indexes = new LinkedHashMap<>();
+            try (ResultSet rs = metaData.getIndexInfo(catalogName, schema, tableName, false, true)) {
+                while (rs.next()) {
+                    String index = rs.getString("INDEX_NAME");
+                    String column = rs.getString("COLUMN_NAME");
+                    if (index != null && column != null) {
+                        String unique = rs.getBoolean("NON_UNIQUE") ? "I" : "U";
+                        indexes.computeIfAbsent(index, k -> new KeyColumns(tableName, unique, null)).add(rs.getShort("ORDINAL_POSITION"), column);
+                    }
+                }
+            }
+            addIndexes(catalog, indexes);
+        }
+        return catalog;
+    }
+
+    private static void addIndexes(SchemaCatalog catalog, Map<String, KeyColumns> indexes) {
+        for (KeyColumns index : indexes.values()) {
+            SchemaCatalog.Table table = catalog.getTables().get(SchemaCatalog.normalize(index.table));
+            if (table != null) {
+                table.addIndex(index.getColumns(), "U".equals(index.type));
+            }
+        }
+    }
+
+    private static final class KeyColumns {
+        private final String table;
+        private final String type;
+        private final TreeMap<Integer, String> columns = new TreeMap<>();
+        private final String referencedTable;
+
+        private KeyColumns(String table, String type, String referencedTable) {
+            this.table = table;
+            this.type = type;
+            this.referencedTable = referencedTable;
+        }
+
+        private void add(int position, String column) {
+            columns.put(position, column);
+        }
+
+        private List<String> getColumns() {
+            return new ArrayList<>(columns.values());
+        }
+    }
+}
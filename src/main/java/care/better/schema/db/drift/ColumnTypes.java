@@ -0,0 +1,94 @@
+package care.better.schema.db.drift;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compares column types written in DDL with the types reported by a database catalog, which name the same type
+ * differently ({@code int8} and {@code bigint}, {@code varchar(255)} and {@code character varying(255)},
+ * {@code number(19,0)} and {@code NUMBER}). Types are compared by family, character types also by length when both
+ * sides have one; types of unknown families are not compared.
+ */
+final class ColumnTypes {
+    private static final Pattern PARENTHESES = Pattern.compile("\\([^)]*\\)");
+    private static final Pattern LENGTH = Pattern.compile("\\(\\s*(\\d+)");
+    private static final Map<String, Family> FAMILIES = new HashMap<>();
+
+    static {
+        register(Family.CHARACTER, "char", "character", "varchar", "varchar2", "nvarchar", "nvarchar2", "nchar", "bpchar",
+                 "character varying", "national character", "national character varying", "varchar_ignorecase");
+        register(Family.TEXT, "text", "clob", "nclob", "tinytext", "mediumtext", "longtext", "ntext", "long", "long varchar",
+                 "character large object", "national character large object");
+        register(Family.NUMERIC, "tinyint", "smallint", "mediumint", "int", "integer", "bigint", "int2", "int4", "int8",
+                 "serial", "smallserial", "bigserial", "number", "numeric", "decimal", "dec");
+        register(Family.FLOAT, "float", "float4", "float8", "real", "double", "double precision", "binary_float", "binary_double",
+                 "decfloat");
+        register(Family.BOOLEAN, "boolean", "bool", "bit");
+        register(Family.TEMPORAL, "date", "time", "timetz", "timestamp", "timestamptz", "datetime", "datetime2", "smalldatetime",
+                 "datetimeoffset", "interval");
+        register(Family.BINARY, "binary", "varbinary", "binary varying", "bytea", "raw", "long raw", "blob", "tinyblob",
+                 "mediumblob", "longblob", "image", "binary large object");
+    }
+
+    private ColumnTypes() {
+    }
+
+    /**
+     * @param expected type of the expected schema
+     * @param actual   type of the live schema
+     * @return true if the types are equivalent or can not be compared
+     */
+    static boolean isCompatible(String expected, String actual) {
+        Family expectedFamily = getFamily(expected);
+        Family actualFamily = getFamily(actual);
+        if (expectedFamily == null || actualFamily == null) {
+            return true;
+        }
+        if (expectedFamily != actualFamily) {
+            return false;
+        }
+        if (expectedFamily == Family.CHARACTER) {
+            Integer expectedLength = getLength(expected);
+            Integer actualLength = getLength(actual);
+            return expectedLength == null || actualLength == null || expectedLength.equals(actualLength);
+        }
+        return true;
+    }
+
+    private static Family getFamily(String type) {
+        if (type == null) {
+            return null;
+        }
+        String name = PARENTHESES.matcher(type.toLowerCase(Locale.ROOT)).replaceAll(" ").trim().replaceAll("\\s+", " ");
+        Family family = FAMILIES.get(name);
+        if (family == null) {
+            int space = name.indexOf(' ');
+            family = FAMILIES.get(space < 0 ? name : name.substring(0, space));
+        }
+        return family;
+    }
+
+    private static Integer getLength(String type) {
+        Matcher matcher = LENGTH.matcher(type);
+        return matcher.find() ? Integer.valueOf(matcher.group(1)) : null;
+    }
+
+    private static void register(Family family, String... names) {
+        for (String name : names) {
+            FAMILIES.put(name, family);
+        }
+    }
+
+    private enum Family {
+        CHARACTER,
+        TEXT,
+        NUMERIC,
+        FLOAT,
+        BOOLEAN,
+        TEMPORAL,
+        BINARY
+    }
+}
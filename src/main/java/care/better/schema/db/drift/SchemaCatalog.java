@@ -0,0 +1,172 @@
+package care.better.schema.db.drift;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Tables, columns, keys and indexes of a schema, read from a database catalog, Hibernate metadata or a schema script.
+ * Identifiers are unquoted and lower case. Keys and indexes are kept by their columns only, since generated constraint
+ * and index names differ between databases; unique constraints and unique indexes are both unique keys.
+ */
+final class SchemaCatalog {
+    private final Map<String, Table> tables = new TreeMap<>();
+
+    Table table(String name) {
+        return tables.computeIfAbsent(normalize(name), Table::new);
+    }
+
+    Map<String, Table> getTables() {
+        return tables;
+    }
+
+    static String normalize(String identifier) {
+        String name = identifier.trim();
+        if (name.length() > 1 && (name.charAt(0) == '"' || name.charAt(0) == '`' || name.charAt(0) == '[')) {
+            name = name.substring(1, name.length() - 1);
+        }
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    static final class Table {
+        private final String name;
+        private final Map<String, Column> columns = new LinkedHashMap<>();
+        private final Set<List<String>> uniqueKeys = new LinkedHashSet<>();
+        private final Set<ForeignKey> foreignKeys = new LinkedHashSet<>();
+        private final Set<List<String>> indexes = new LinkedHashSet<>();
+        private List<String> primaryKey = Collections.emptyList();
+
+        private Table(String name) {
+            this.name = name;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        void addColumn(String column, String type, boolean nullable) {
+            String columnName = normalize(column);
+            columns.put(columnName, new Column(columnName, type, nullable));
+        }
+
+        Map<String, Column> getColumns() {
+            return columns;
+        }
+
+        void setPrimaryKey(List<String> columns) {
+            primaryKey = normalizeColumns(columns);
+        }
+
+        List<String> getPrimaryKey() {
+            return primaryKey;
+        }
+
+        void addUniqueKey(List<String> columns) {
+            uniqueKeys.add(normalizeColumns(columns));
+        }
+
+        /**
+         * @return unique keys other than the primary key, which is also backed by a unique index
+         */
+        Set<List<String>> getUniqueKeys() {
+            Set<List<String>> keys = new LinkedHashSet<>(uniqueKeys);
+            keys.remove(primaryKey);
+            return keys;
+        }
+
+        void addForeignKey(List<String> columns, String referencedTable) {
+            foreignKeys.add(new ForeignKey(normalizeColumns(columns), normalize(referencedTable)));
+        }
+
+        Set<ForeignKey> getForeignKeys() {
+            return foreignKeys;
+        }
+
+        void addIndex(List<String> columns, boolean unique) {
+            if (unique) {
+                addUniqueKey(columns);
+            } else {
+                indexes.add(normalizeColumns(columns));
+            }
+        }
+
+        Set<List<String>> getIndexes() {
+            return indexes;
+        }
+
+        private static List<String> normalizeColumns(List<String> columns) {
+            List<String> names = new ArrayList<>(columns.size());
+            for (String column : columns) {
+                names.add(normalize(column));
+            }
+            return Collections.unmodifiableList(names);
+        }
+    }
+
+    static final class Column {
+        private final String name;
+        private final String type;
+        private final boolean nullable;
+
+        private Column(String name, String type, boolean nullable) {
+            this.name = name;
+            this.type = type;
+            this.nullable = nullable;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        String getType() {
+            return type;
+        }
+
+        boolean isNullable() {
+            return nullable;
+        }
+    }
+
+    static final class ForeignKey {
+        private final List<String> columns;
+        private final String referencedTable;
+
+        private ForeignKey(List<String> columns, String referencedTable) {
+            this.columns = columns;
+            this.referencedTable = referencedTable;
+        }
+
+        List<String> getColumns() {
+            return columns;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ForeignKey)) {
+                return false;
+            }
+            ForeignKey other = (ForeignKey)o;
+            return columns.equals(other.columns) && referencedTable.equals(other.referencedTable);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(columns, referencedTable);
+        }
+
+        @Override
+        public String toString() {
+            return columns + " references " + referencedTable;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package care.better.schema.db.drift;
+
+/**
+ * A single difference between the live schema and the expected schema. Keys and indexes are described by their
+ * columns, e.g. {@code [first_name, last_name]}, foreign keys also by the referenced table.
+ */
+public final class SchemaDrift {
+    private final Type type;
+    private final String table;
+    private final String object;
+    private final String expected;
+    private final String actual;
+
+    public SchemaDrift(Type type, String table, String object, String expected, String actual) {
+        this.type = type;
+        this.table = table;
+        this.object = object;
+        this.expected = expected;
+        this.actual = actual;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return lower case table name
+     */
+    public String getTable() {
+        return table;
+    }
+
+    /**
+     * @return column, key or index of the table, {@code null} for table differences
+     */
+    public String getObject() {
+        return object;
+    }
+
+    /**
+     * @return expected column type, nullability or primary key; {@code null} for missing and unexpected objects
+     */
+    public String getExpected() {
+        return expected;
+    }
+
+    /**
+     * @return column type, nullability or primary key of the live schema; {@code null} for missing and unexpected objects
+     */
+    public String getActual() {
+        return actual;
+    }
+
+    @Override
+    public String toString() {
+        String name = object == null ? table : table + (type.isColumn() ? "." : " ") + object;
+        if (expected == null && actual == null) {
+            return type.getDescription() + ' ' + name;
+        }
+        return type.getDescription() + ' ' + name + ": " + actual + ", expected " + expected;
+    }
+
+    public enum Type {
+        MISSING_TABLE("missing table"),
+        UNEXPECTED_TABLE("unexpected table"),
+        MISSING_COLUMN("missing column"),
+        UNEXPECTED_COLUMN("unexpected column"),
+        COLUMN_TYPE("type of column"),
+        COLUMN_NULLABILITY("nullability of column"),
+        PRIMARY_KEY("primary key of"),
+        MISSING_UNIQUE_KEY("missing unique key"),
+        UNEXPECTED_UNIQUE_KEY("unexpected unique key"),
+        MISSING_FOREIGN_KEY("missing foreign key"),
+        UNEXPECTED_FOREIGN_KEY("unexpected foreign key"),
+        MISSING_INDEX("missing index"),
+        UNEXPECTED_INDEX("unexpected index");
+
+        private final String description;
+
+        Type(String description) {
+            this.description = description;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        private boolean isColumn() {
+            return this == MISSING_COLUMN || this == UNEXPECTED_COLUMN || this == COLUMN_TYPE || this == COLUMN_NULLABILITY;
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package care.better.schema.db.drift;
+
+import care.better.schema.db.script.ScriptDialect;
+import com.google.common.base.Preconditions;
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.model.relational.Namespace;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.Mapping;
+import org.hibernate.mapping.Column;
+import org.hibernate.mapping.ForeignKey;
+import org.hibernate.mapping.Index;
+import org.hibernate.mapping.Table;
+import org.hibernate.mapping.UniqueKey;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+/**
+ * Detects drift between a live database schema and the schema it is expected to have, described by the Hibernate
+ * {@link Metadata} of the entities (see {@code SchemaExporter.buildMetadata}) or by a schema script such as the
+ * packaged {@code {db_name}-schema.sql}. The live catalog of the current schema is read with three bulk dictionary
+ * queries (columns, keys, indexes) instead of a metadata round trip per table, so a check of thousands of tables is fast
+ * enough for a startup or health check.
+ * <p>
+ * Tables, columns, nullability, primary keys, unique keys, foreign keys and indexes are compared. Keys and indexes are
+ * compared by their columns and constraint and index names are ignored, since generated names differ between
+ * databases. Column types are compared by family and length of character types, see {@link ColumnTypes}. Indexes the
+ * database creates for foreign keys on its own (mysql, h2) are not reported. The schema version table and its
+ * {@code _progress}, {@code _history} and {@code _lock} tables are skipped.
+ */
+public final class SchemaDriftChecker {
+    private final ScriptDialect scriptDialect;
+    private final String schemaVersionTableName;
+    private Pattern ignoredTables;
+
+    /**
+     * @param scriptDialect          dialect of the database, see {@link ScriptDialect#forDirectory(String)}
+     * @param schemaVersionTableName name of the schema version table
+     */
+    public SchemaDriftChecker(ScriptDialect scriptDialect, String schemaVersionTableName) {
+        Preconditions.checkNotNull(scriptDialect, "scriptDialect is null!");
+        Preconditions.checkNotNull(schemaVersionTableName, "schemaVersionTableName is null!");
+        this.scriptDialect = scriptDialect;
+        this.schemaVersionTableName = schemaVersionTableName.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Skips tables that are not part of the expected schema, e.g. tables of other libraries in the same schema.
+     *
+     * @param ignoredTables pattern of lower case table names to skip
+     */
+    public void setIgnoredTables(Pattern ignoredTables) {
+        this.ignoredTables = ignoredTables;
+    }
+
+    /**
+     * @param dataSource database to check
+     * @param metadata   Hibernate metadata of the entities, built for the dialect of the database
+     * @return differences between the live schema and the entities
+     * @throws SQLException on database errors
+     */
+    public SchemaDriftReport check(DataSource dataSource, Metadata metadata) throws SQLException {
+        Preconditions.checkNotNull(metadata, "metadata is null!");
+        return check(dataSource, readMetadata(metadata));
+    }
+
+    /**
+     * @param dataSource   database to check
+     * @param schemaScript schema script, e.g. {@code {db_name}-schema.sql}
+     * @return differences between the live schema and the schema created by the script
+     * @throws SQLException on database errors
+     * @throws IOException  on read errors
+     */
+    public SchemaDriftReport check(DataSource dataSource, Reader schemaScript) throws SQLException, IOException {
+        Preconditions.checkNotNull(schemaScript, "schemaScript is null!");
+        return check(dataSource, ScriptCatalogParser.parse(schemaScript, scriptDialect));
+    }
+
+    private SchemaDriftReport check(DataSource dataSource, SchemaCatalog expected) throws SQLException {
+        long start = System.nanoTime();
+        SchemaCatalog actual;
+        int version;
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(true);
+            actual = CatalogReader.read(connection, scriptDialect);
+            version = actual.getTables().containsKey(schemaVersionTableName) ? readVersion(connection) : 0;
+        }
+
+        List<SchemaDrift> drifts = new ArrayList<>();
+        Set<String> tables = new TreeSet<>(expected.getTables().keySet());
+        tables.addAll(actual.getTables().keySet());
+        int compared = 0;
+        for (String table : tables) {
+            if (isIgnored(table)) {
+                continue;
+            }
+            SchemaCatalog.Table expectedTable = expected.getTables().get(table);
+            SchemaCatalog.Table actualTable = actual.getTables().get(table);
+            if (actualTable == null) {
+                drifts.add(new SchemaDrift(SchemaDrift.Type.MISSING_TABLE, table, null, null, null));
+            } else if (expectedTable == null) {
+                drifts.add(new SchemaDrift(SchemaDrift.Type.UNEXPECTED_TABLE, table, null, null, null));
+                compared++;
+            } else {
+                compare(expectedTable, actualTable, drifts);
+                compared++;
+            }
+        }
+        return new SchemaDriftReport(version, compared, drifts, Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    private static void compare(SchemaCatalog.Table expected, SchemaCatalog.Table actual, List<SchemaDrift> drifts) {
+        String table = expected.getName();
+        for (SchemaCatalog.Column expectedColumn : expected.getColumns().values()) {
+            SchemaCatalog.Column actualColumn = actual.getColumns().get(expectedColumn.getName());
+            if (actualColumn == null) {
+                drifts.add(new SchemaDrift(SchemaDrift.Type.MISSING_COLUMN, table, expectedColumn.getName(), null, null));
+                continue;
+            }
+            if (!ColumnTypes.isCompatible(expectedColumn.getType(), actualColumn.getType())) {
+                drifts.add(new SchemaDrift(SchemaDrift.Type.COLUMN_TYPE, table, expectedColumn.getName(), expectedColumn.getType(), actualColumn.getType()));
+            }
+            if (expectedColumn.isNullable() != actualColumn.isNullable()) {
+                drifts.add(new SchemaDrift(SchemaDrift.Type.COLUMN_NULLABILITY, table, expectedColumn.getName(),
+                                           nullability(expectedColumn), nullability(actualColumn)));
+            }
+        }
+        for (String column : actual.getColumns().keySet()) {
+            if (!expected.getColumns().containsKey(column)) {
+                drifts.add(new SchemaDrift(SchemaDrift.Type.UNEXPECTED_COLUMN, table, column, null, null));
+            }
+        }
+
+        if (!expected.getPrimaryKey().equals(actual.getPrimaryKey())) {
+            drifts.add(new SchemaDrift(SchemaDrift.Type.PRIMARY_KEY, table, null, expected.getPrimaryKey().toString(), actual.getPrimaryKey().toString()));
+        }
+        compare(table, expected.getUniqueKeys(), actual.getUniqueKeys(), SchemaDrift.Type.MISSING_UNIQUE_KEY, SchemaDrift.Type.UNEXPECTED_UNIQUE_KEY, drifts);
+        compare(table, expected.getForeignKeys(), actual.getForeignKeys(), SchemaDrift.Type.MISSING_FOREIGN_KEY, SchemaDrift.Type.UNEXPECTED_FOREIGN_KEY, drifts);
+
+        Set<List<String>> actualIndexes = new LinkedHashSet<>(actual.getIndexes());
+        for (SchemaCatalog.ForeignKey foreignKey : actual.getForeignKeys()) {
+            if (!expected.getIndexes().contains(foreignKey.getColumns())) {
+                actualIndexes.remove(foreignKey.getColumns());
+            }
+        }
+        compare(table, expected.getIndexes(), actualIndexes, SchemaDrift.Type.MISSING_INDEX, SchemaDrift.Type.UNEXPECTED_INDEX, drifts);
+    }
+
+    private static <T> void compare(String table, Set<T> expected, Set<T> actual, SchemaDrift.Type missing, SchemaDrift.Type unexpected, List<SchemaDrift> drifts) {
+        for (T item : expected) {
+            if (!actual.contains(item)) {
+                drifts.add(new SchemaDrift(missing, table, item.toString(), null, null));
+            }
+        }
+        for (T item : actual) {
+            if (!expected.contains(item)) {
+                drifts.add(new SchemaDrift(unexpected, table, item.toString(), null, null));
+            }
+        }
+    }
+
+    private static String nullability(SchemaCatalog.Column column) {
+        return column.isNullable() ? "null" : "not null";
+    }
+
+    private boolean isIgnored(String table) {
+        return table.equals(schemaVersionTableName)
+                || table.startsWith(schemaVersionTableName + '_')
+                || ignoredTables != null && ignoredTables.matcher(table).matches();
+    }
+
+    private int readVersion(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT version FROM " + schemaVersionTableName)) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private static SchemaCatalog readMetadata(Metadata metadata) {
+        Dialect dialect = metadata.getDatabase().getJdbcEnvironment().getDialect();
+        SchemaCatalog catalog = new SchemaCatalog();
+        for (Namespace namespace : metadata.getDatabase().getNamespaces()) {
+            for (Table table : namespace.getTables()) {
+                if (!table.isPhysicalTable()) {
+                    continue;
+                }
+                SchemaCatalog.Table catalogTable = catalog.table(table.getName());
+                List<String> primaryKey = table.getPrimaryKey() == null ? Collections.emptyList() : names(table.getPrimaryKey().getColumnIterator());
+                for (Iterator<Column> columns = table.getColumnIterator(); columns.hasNext(); ) {
+                    Column column = columns.next();
+                    catalogTable.addColumn(column.getName(), column.getSqlType(dialect, (Mapping)metadata),
+                                           column.isNullable() && !primaryKey.contains(column.getName()));
+                    if (column.isUnique()) {
+                        catalogTable.addUniqueKey(Collections.singletonList(column.getName()));
+                    }
+                }
+                catalogTable.setPrimaryKey(primaryKey);
+                for (Iterator<UniqueKey> uniqueKeys = table.getUniqueKeyIterator(); uniqueKeys.hasNext(); ) {
+                    catalogTable.addUniqueKey(names(uniqueKeys.next().getColumnIterator()));
+                }
+                for (Iterator<ForeignKey> foreignKeys = table.getForeignKeyIterator(); foreignKeys.hasNext(); ) {
+                    ForeignKey foreignKey = foreignKeys.next();
+                    if (foreignKey.isCreationEnabled() && foreignKey.isPhysicalConstraint()) {
+                        catalogTable.addForeignKey(names(foreignKey.getColumnIterator()), foreignKey.getReferencedTable().getName());
+                    }
+                }
+                for (Iterator<Index> indexes = table.getIndexIterator(); indexes.hasNext(); ) {
+                    catalogTable.addIndex(names(indexes.next().getColumnIterator()), false);
+                }
+            }
+        }
+        return catalog;
+    }
+
+    private static List<String> names(Iterator<Column> columns) {
+        List<String> names = new ArrayList<>();
+        columns.forEachRemaining(column -> names.add(column.getName()));
+        return names;
+    }
+}
@@ -0,0 +1,70 @@
+package care.better.schema.db.drift;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Outcome of a {@link SchemaDriftChecker} run: the differences between the live and the expected schema, the schema
+ * version the database reports and how long reading the live catalog took.
+ */
+public final class SchemaDriftReport {
+    private final int schemaVersion;
+    private final int tables;
+    private final List<SchemaDrift> drifts;
+    private final Duration duration;
+
+    public SchemaDriftReport(int schemaVersion, int tables, List<SchemaDrift> drifts, Duration duration) {
+        this.schemaVersion = schemaVersion;
+        this.tables = tables;
+        this.drifts = Collections.unmodifiableList(new ArrayList<>(drifts));
+        this.duration = duration;
+    }
+
+    /**
+     * @return schema version stored in the schema version table, 0 if the table does not exist
+     */
+    public int getSchemaVersion() {
+        return schemaVersion;
+    }
+
+    /**
+     * @return number of compared tables of the live schema
+     */
+    public int getTables() {
+        return tables;
+    }
+
+    public List<SchemaDrift> getDrifts() {
+        return drifts;
+    }
+
+    /**
+     * @param type type of the differences
+     * @return differences of the given type
+     */
+    public List<SchemaDrift> getDrifts(SchemaDrift.Type type) {
+        return drifts.stream().filter(drift -> drift.getType() == type).collect(Collectors.toList());
+    }
+
+    /**
+     * @return true if the live schema matches the expected schema
+     */
+    public boolean isInSync() {
+        return drifts.isEmpty();
+    }
+
+    /**
+     * @return time spent reading and comparing the live catalog
+     */
+    public Duration getDuration() {
+        return duration;
+    }
+
+    @Override
+    public String toString() {
+        return "SchemaDriftReport{version " + schemaVersion + ", " + tables + " tables, " + drifts.size() + " differences in " + duration.toMillis() + " ms}";
+    }
+}
@@ -0,0 +1,166 @@
+package care.better.schema.db.drift;
+
+import care.better.schema.db.script.ScriptDialect;
+import care.better.schema.db.script.SqlScriptReader;
+import care.better.schema.db.script.SqlStatement;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads the expected catalog from a schema script as exported by {@code SchemaExporter}: {@code create table} with
+ * inline and table constraints, {@code alter table ... add [constraint ...]} primary, unique and foreign keys and
+ * {@code create [unique] index}. Other statements (sequences, views, inserts, ...) are skipped.
+ */
+final class ScriptCatalogParser {
+    private static final int FLAGS = Pattern.CASE_INSENSITIVE | Pattern.DOTALL;
+    private static final Pattern CREATE_TABLE = Pattern.compile(
+            "create\\s+(?:(?:global\\s+|local\\s+)?(?:temporary|cached|memory)\\s+)?table\\s+(?:if\\s+not\\s+exists\\s+)?([^\\s(]+)\\s*\\((.*)\\)[^)]*", FLAGS);
+    private static final Pattern ALTER_TABLE_ADD = Pattern.compile(
+            "alter\\s+table\\s+(?:if\\s+exists\\s+)?(?:only\\s+)?(\\S+)\\s+add\\s+(.*)", FLAGS);
+    private static final Pattern CREATE_INDEX = Pattern.compile(
+            "create\\s+(unique\\s+)?(?:(?:non)?clustered\\s+)?index\\s+(?:if\\s+not\\s+exists\\s+)?\\S+\\s+on\\s+([^\\s(]+)\\s*\\(([^)]*)\\).*", FLAGS);
+    private static final Pattern CONSTRAINT_NAME = Pattern.compile("constraint\\s+\\S+\\s+(.*)", FLAGS);
+    private static final Pattern PRIMARY_KEY = Pattern.compile("primary\\s+key\\s*(?:(?:non)?clustered\\s*)?\\(([^)]*)\\).*", FLAGS);
+    private static final Pattern UNIQUE = Pattern.compile("unique\\s*(?:(?:non)?clustered\\s*)?(?:key\\s*\\S*\\s*)?\\(([^)]*)\\).*", FLAGS);
+    private static final Pattern FOREIGN_KEY = Pattern.compile("foreign\\s+key\\s*\\(([^)]*)\\)\\s*references\\s+([^\\s(]+).*", FLAGS);
+    private static final Pattern CHECK = Pattern.compile("check\\s*\\(", FLAGS);
+    private static final Pattern CONSTRAINT_KEYWORD = Pattern.compile(
+            "\\s(?:not\\s+null|null|default|unique|primary\\s+key|check|references|constraint|generated|identity|auto_increment|collate|character\\s+set|on\\s+update)\\b",
+            FLAGS);
+    private static final Pattern NOT_NULL = Pattern.compile("\\snot\\s+null\\b", FLAGS);
+    private static final Pattern INLINE_PRIMARY_KEY = Pattern.compile("\\sprimary\\s+key\\b", FLAGS);
+    private static final Pattern INLINE_UNIQUE = Pattern.compile("\\sunique\\b", FLAGS);
+    private static final Pattern INLINE_REFERENCES = Pattern.compile("\\sreferences\\s+([^\\s(]+)", FLAGS);
+
+    private ScriptCatalogParser() {
+    }
+
+    static SchemaCatalog parse(Reader script, ScriptDialect dialect) throws IOException {
+        SchemaCatalog catalog = new SchemaCatalog();
+        try (SqlScriptReader reader = new SqlScriptReader(script, dialect)) {
+            SqlStatement statement;
+            while ((statement = reader.readStatement()) != null) {
+                parse(catalog, statement.getSql().trim());
+            }
+        }
+        return catalog;
+    }
+
+    private static void parse(SchemaCatalog catalog, String sql) {
+        Matcher matcher = CREATE_TABLE.matcher(sql);
+        if (matcher.matches()) {
+            SchemaCatalog.Table table = catalog.table(unqualified(matcher.group(1)));
+            for (String element : splitTopLevel(matcher.group(2))) {
+                if (!parseConstraint(table, element)) {
+                    parseColumn(table, element);
+                }
+            }
+            return;
+        }
+        matcher = ALTER_TABLE_ADD.matcher(sql);
+        if (matcher.matches()) {
+            parseConstraint(catalog.table(unqualified(matcher.group(1))), matcher.group(2).trim());
+            return;
+        }
+        matcher = CREATE_INDEX.matcher(sql);
+        if (matcher.matches()) {
+            catalog.table(unqualified(matcher.group(2))).addIndex(columns(matcher.group(3)), matcher.group(1) != null);
+        }
+    }
+
+    private static boolean parseConstraint(SchemaCatalog.Table table, String element) {
+        String constraint = element;
+        Matcher named = CONSTRAINT_NAME.matcher(constraint);
+        if (named.matches()) {
+            constraint = named.group(1).trim();
+        }
+        Matcher matcher = PRIMARY_KEY.matcher(constraint);
+        if (matcher.matches()) {
+            table.setPrimaryKey(columns(matcher.group(1)));
+            return true;
+        }
+        matcher = UNIQUE.matcher(constraint);
+        if (matcher.matches()) {
+            table.addUniqueKey(columns(matcher.group(1)));
+            return true;
+        }
+        matcher = FOREIGN_KEY.matcher(constraint);
+        if (matcher.matches()) {
+            table.addForeignKey(columns(matcher.group(1)), unqualified(matcher.group(2)));
+            return true;
+        }
+        return named.matches() || CHECK.matcher(constraint).lookingAt();
+    }
+
+    private static void parseColumn(SchemaCatalog.Table table, String element) {
+        int space = indexOfWhitespace(element);
+        if (space < 0) {
+            return;
+        }
+        String column = element.substring(0, space);
+        String definition = ' ' + element.substring(space + 1).trim();
+        Matcher keyword = CONSTRAINT_KEYWORD.matcher(definition);
+        String type = (keyword.find() ? definition.substring(0, keyword.start()) : definition).trim();
+        boolean primaryKey = INLINE_PRIMARY_KEY.matcher(definition).find();
+        table.addColumn(column, type, !primaryKey && !NOT_NULL.matcher(definition).find());
+        if (primaryKey) {
+            table.setPrimaryKey(Collections.singletonList(column));
+        } else if (INLINE_UNIQUE.matcher(definition).find()) {
+            table.addUniqueKey(Collections.singletonList(column));
+        }
+        Matcher references = INLINE_REFERENCES.matcher(definition);
+        if (references.find()) {
+            table.addForeignKey(Collections.singletonList(column), unqualified(references.group(1)));
+        }
+    }
+
+    private static List<String> splitTopLevel(String body) {
+        List<String> elements = new ArrayList<>();
+        int depth = 0;
+        int start = 0;
+        for (int i = 0; i < body.length(); i++) {
+            char c = body.charAt(i);
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == ',' && depth == 0) {
+                elements.add(body.substring(start, i).trim());
+                start = i + 1;
+            }
+        }
+        elements.add(body.substring(start).trim());
+        elements.removeIf(String::isEmpty);
+        return elements;
+    }
+
+    private static List<String> columns(String list) {
+        List<String> columns = new ArrayList<>();
+        for (String column : list.split(",")) {
+            String name = column.trim();
+            int space = indexOfWhitespace(name);
+            columns.add(space < 0 ? name : name.substring(0, space));
+        }
+        return columns;
+    }
+
+    private static String unqualified(String name) {
+        int dot = name.lastIndexOf('.');
+        return dot < 0 ? name : name.substring(dot + 1);
+    }
+
+    private static int indexOfWhitespace(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (Character.isWhitespace(text.charAt(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
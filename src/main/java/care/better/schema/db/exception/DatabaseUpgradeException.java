@@ -13,4 +13,8 @@ public class DatabaseUpgradeException extends RuntimeException {
     public DatabaseUpgradeException(String message) {
         super(message);
     }
+
+    public DatabaseUpgradeException(String message, Throwable cause) {
+        super(message, cause);
+    }
 }
@@ -0,0 +1,36 @@
+package care.better.schema.db.exception;
+
+/**
+ * Thrown when a cancelled upgrade stops between versions. The completed versions are committed, so the schema is at
+ * the reported version and the next upgrade continues from there.
+ */
+public class UpgradeCancelledException extends DatabaseUpgradeException {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Version of an upgrade cancelled before it started or of a schema that has not been initialized yet.
+     */
+    public static final int UNKNOWN_VERSION = -1;
+
+    private final int version;
+
+    public UpgradeCancelledException(int version) {
+        super("Schema upgrade cancelled at version " + version);
+        this.version = version;
+    }
+
+    /**
+     * Upgrade cancelled before it started.
+     */
+    public UpgradeCancelledException() {
+        super("Schema upgrade cancelled before it started");
+        version = UNKNOWN_VERSION;
+    }
+
+    /**
+     * @return schema version the upgrade stopped at, {@link #UNKNOWN_VERSION} if it is not known
+     */
+    public int getVersion() {
+        return version;
+    }
+}
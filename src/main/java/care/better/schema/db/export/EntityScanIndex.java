@@ -0,0 +1,268 @@
+package care.better.schema.db.export;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.reflections.Reflections;
+import org.reflections.Store;
+import org.reflections.scanners.Scanners;
+import org.reflections.util.ClasspathHelper;
+import org.reflections.util.ConfigurationBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.persistence.Entity;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * On-disk index of {@link Entity} classes found on the classpath, so that repeated schema exports do not scan the
+ * classpath with {@link Reflections} on every call.
+ * <p>
+ * For every classpath location (jar or class directory) the index keeps a fingerprint of its contents (a checksum of
+ * a jar, names, sizes and modification times of the class files in a directory), the {@code @Entity} classes it contains and its
+ * subtype relations. Only locations whose fingerprint changed are scanned again. The result is the same as
+ * {@code Reflections.getTypesAnnotatedWith(Entity.class)} over all locations.
+ */
+@SuppressWarnings({"HardcodedLineSeparator", "UnstableApiUsage"})
+public final class EntityScanIndex {
+    private static final Logger log = LoggerFactory.getLogger(EntityScanIndex.class);
+
+    private static final String HEADER = "# Entity scan index, generated by " + EntityScanIndex.class.getName();
+    private static final String LOCATION = "location ";
+    private static final String ENTITY = "entity ";
+    private static final String SUBTYPE = "subtype ";
+
+    private final Path file;
+    private final Map<String, Location> locations = new TreeMap<>();
+    private int scannedLocations;
+    private boolean modified;
+
+    private EntityScanIndex(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * @param file index file, it does not have to exist yet
+     * @return index with the contents of the file, empty if the file does not exist or can not be read
+     */
+    public static EntityScanIndex load(Path file) {
+        EntityScanIndex index = new EntityScanIndex(file);
+        if (Files.isRegularFile(file)) {
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                index.read(reader);
+            } catch (IOException | RuntimeException e) {
+                log.warn("Unable to read entity scan index {}, classpath will be scanned", file, e);
+                index.locations.clear();
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Finds {@code @Entity} classes in the classpath locations of the packages, scanning only locations that changed
+     * since the index was last updated.
+     *
+     * @param packageNames packages whose classpath locations are searched
+     * @return entity classes ordered by name
+     */
+    public Set<Class<?>> findEntities(Collection<String> packageNames) {
+        Set<URL> urls = packageNames.stream()
+                .flatMap(packageName -> ClasspathHelper.forPackage(packageName).stream())
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+
+        Set<String> entityNames = new TreeSet<>();
+        Map<String, Set<String>> subtypes = new HashMap<>();
+        for (URL url : urls) {
+            Location location = getLocation(url);
+            entityNames.addAll(location.entities);
+            location.subtypes.forEach((type, types) -> subtypes.computeIfAbsent(type, key -> new TreeSet<>()).addAll(types));
+        }
+
+        Deque<String> pending = new ArrayDeque<>(entityNames);
+        while (!pending.isEmpty()) {
+            for (String subtype : subtypes.getOrDefault(pending.pop(), Collections.emptySet())) {
+                if (entityNames.add(subtype)) {
+                    pending.push(subtype);
+                }
+            }
+        }
+
+        Set<Class<?>> entities = new TreeSet<>((first, second) -> first.getName().compareTo(second.getName()));
+        for (String entityName : entityNames) {
+            Class<?> entity = forName(entityName);
+            if (entity != null) {
+                entities.add(entity);
+            }
+        }
+        return entities;
+    }
+
+    /**
+     * Writes the index if it has changed. The file is replaced atomically.
+     */
+    public void save() {
+        if (!modified) {
+            return;
+        }
+        try {
+            Path target = file.toAbsolutePath();
+            Files.createDirectories(target.getParent());
+            Path temporary = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+            try {
+                try (BufferedWriter writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+                    write(writer);
+                }
+                try {
+                    Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+            modified = false;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return number of classpath locations scanned since the index was loaded
+     */
+    public int getScannedLocations() {
+        return scannedLocations;
+    }
+
+    private Location getLocation(URL url) {
+        String key = url.toExternalForm().replace(" ", "%20");
+        String fingerprint = fingerprint(url);
+        Location location = locations.get(key);
+        if (location == null || !location.fingerprint.equals(fingerprint)) {
+            log.info("Scanning {} for entities", key);
+            location = scan(url, fingerprint);
+            locations.put(key, location);
+            scannedLocations++;
+            modified = true;
+        }
+        return location;
+    }
+
+    private static Class<?> forName(String className) {
+        for (ClassLoader classLoader : ClasspathHelper.classLoaders()) {
+            try {
+                return Class.forName(className, false, classLoader);
+            } catch (ClassNotFoundException | LinkageError ignored) {
+                // try the next class loader
+            }
+        }
+        log.warn("Unable to load entity class {}", className);
+        return null;
+    }
+
+    private static Location scan(URL url, String fingerprint) {
+        Reflections reflections = new Reflections(new ConfigurationBuilder().setUrls(url).setScanners(Scanners.SubTypes, Scanners.TypesAnnotated));
+        Store store = reflections.getStore();
+        Location location = new Location(fingerprint);
+        location.entities.addAll(store.getOrDefault(Scanners.TypesAnnotated.index(), Collections.emptyMap())
+                                         .getOrDefault(Entity.class.getName(), Collections.emptySet()));
+        store.getOrDefault(Scanners.SubTypes.index(), Collections.emptyMap())
+                .forEach((type, types) -> location.subtypes.computeIfAbsent(type, key -> new TreeSet<>()).addAll(types));
+        return location;
+    }
+
+    private static String fingerprint(URL url) {
+        try {
+            File location = new File(url.toURI());
+            if (location.isFile()) {
+                return com.google.common.io.Files.asByteSource(location).hash(Hashing.murmur3_128()).toString();
+            }
+            if (location.isDirectory()) {
+                Path root = location.toPath();
+                Hasher hasher = Hashing.murmur3_128().newHasher();
+                try (Stream<Path> stream = Files.walk(root)) {
+                    for (Path path : (Iterable<Path>)stream.sorted()::iterator) {
+                        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                        if (attributes.isRegularFile() && path.getFileName().toString().endsWith(".class")) {
+                            hasher.putString(root.relativize(path).toString(), StandardCharsets.UTF_8)
+                                    .putLong(attributes.size())
+                                    .putLong(attributes.lastModifiedTime().toMillis());
+                        }
+                    }
+                }
+                return hasher.hash().toString();
+            }
+            return "missing";
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            // not a local file, always rescanned
+            return "unknown-" + System.nanoTime();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void read(BufferedReader reader) throws IOException {
+        Location location = null;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.startsWith(LOCATION)) {
+                String[] parts = line.substring(LOCATION.length()).split(" ");
+                location = new Location(parts[1]);
+                locations.put(parts[0], location);
+            } else if (line.startsWith(ENTITY) && location != null) {
+                location.entities.add(line.substring(ENTITY.length()));
+            } else if (line.startsWith(SUBTYPE) && location != null) {
+                String[] parts = line.substring(SUBTYPE.length()).split(" ");
+                location.subtypes.computeIfAbsent(parts[0], key -> new TreeSet<>()).add(parts[1]);
+            }
+        }
+    }
+
+    private void write(BufferedWriter writer) throws IOException {
+        writer.write(HEADER + '\n');
+        for (Map.Entry<String, Location> entry : locations.entrySet()) {
+            Location location = entry.getValue();
+            writer.write(LOCATION + entry.getKey() + ' ' + location.fingerprint + '\n');
+            for (String entity : location.entities) {
+                writer.write(ENTITY + entity + '\n');
+            }
+            for (Map.Entry<String, Set<String>> subtypes : location.subtypes.entrySet()) {
+                for (String subtype : subtypes.getValue()) {
+                    writer.write(SUBTYPE + subtypes.getKey() + ' ' + subtype + '\n');
+                }
+            }
+        }
+    }
+
+    private static final class Location {
+        private final String fingerprint;
+        private final Set<String> entities = new TreeSet<>();
+        private final Map<String, Set<String>> subtypes = new TreeMap<>();
+
+        private Location(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package care.better.schema.db.export;
+
+import care.better.schema.db.script.StatementCost;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Upgrade script generated from the difference between the entities and a database schema, see
+ * {@link care.better.schema.db.UpgradeScriptGenerator}.
+ */
+public final class GeneratedUpgradeScript {
+    private final int version;
+    private final Path file;
+    private final List<StatementCost> statements;
+
+    public GeneratedUpgradeScript(int version, Path file, List<StatementCost> statements) {
+        this.version = version;
+        this.file = file;
+        this.statements = Collections.unmodifiableList(new ArrayList<>(statements));
+    }
+
+    /**
+     * @return schema version of the script
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * @return written script, {@code null} if the schema was up to date and no script was written
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * @return statements of the script with their estimated cost
+     */
+    public List<StatementCost> getStatements() {
+        return statements;
+    }
+
+    /**
+     * @return statements that take time proportional to the size of the table
+     */
+    public List<StatementCost> getSlowStatements() {
+        return statements.stream().filter(StatementCost::isSlow).collect(Collectors.toList());
+    }
+
+    /**
+     * @return true if the schema was up to date
+     */
+    public boolean isEmpty() {
+        return statements.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return isEmpty() ? "schema up to date" : file + " (" + statements.size() + " statements, " + getSlowStatements().size() + " slow)";
+    }
+}
@@ -0,0 +1,85 @@
+package care.better.schema.db.export;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Outcome of a schema export: which dialect scripts were written and which were left unchanged.
+ */
+public final class SchemaExportReport {
+    private final List<Entry> entries;
+
+    public SchemaExportReport(List<Entry> entries) {
+        this.entries = Collections.unmodifiableList(new ArrayList<>(entries));
+    }
+
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * @return scripts that were generated by the export
+     */
+    public List<Entry> getWritten() {
+        return entries.stream().filter(Entry::isWritten).collect(Collectors.toList());
+    }
+
+    /**
+     * @return scripts that were up to date and were not generated again
+     */
+    public List<Entry> getUnchanged() {
+        return entries.stream().filter(entry -> !entry.isWritten()).collect(Collectors.toList());
+    }
+
+    @Override
+    public String toString() {
+        return entries.stream().map(Entry::toString).collect(Collectors.joining(", ", "SchemaExportReport{", "}"));
+    }
+
+    /**
+     * Single dialect script of an export.
+     */
+    public static final class Entry {
+        private final String dialect;
+        private final String prefix;
+        private final Path file;
+        private final boolean written;
+
+        public Entry(String dialect, String prefix, Path file, boolean written) {
+            this.dialect = dialect;
+            this.prefix = prefix;
+            this.file = file;
+            this.written = written;
+        }
+
+        public String getDialect() {
+            return dialect;
+        }
+
+        /**
+         * @return dialect prefix of the script name, {@code null} for exports of a single dialect
+         */
+        public String getPrefix() {
+            return prefix;
+        }
+
+        public Path getFile() {
+            return file;
+        }
+
+        /**
+         * @return true if the script was generated, false if it was up to date
+         */
+        public boolean isWritten() {
+            return written;
+        }
+
+        @Override
+        public String toString() {
+            return file + (written ? " written" : " unchanged");
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package care.better.schema.db.export;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import org.hibernate.Version;
+
+import javax.persistence.Embeddable;
+import javax.persistence.Entity;
+import javax.persistence.MappedSuperclass;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Fingerprint of everything that determines a generated schema script: the bytes of the entity classes, their
+ * superclasses and the embeddables, converters and other application classes they reference, the bytes of the naming
+ * strategies, the Hibernate and db-schema versions, the dialect and other settings. The fingerprint of a script
+ * is stored next to it in {@code {script}.fingerprint}, together with a checksum of the script itself, so an
+ * unchanged model is not exported again and a script changed by hand is.
+ */
+@SuppressWarnings({"HardcodedLineSeparator", "UnstableApiUsage"})
+public final class SchemaFingerprint {
+    private static final String SUFFIX = ".fingerprint";
+    private static final String MODEL_KEY = "model=";
+    private static final String SCRIPT_KEY = "script=";
+    private static final String LIBRARY_VERSION = readLibraryVersion();
+
+    private SchemaFingerprint() {
+    }
+
+    /**
+     * @param classes entity and other managed classes
+     * @return fingerprint of the class files of the classes, their superclasses, and the embeddables, mapped
+     * superclasses, converters, user types and other application classes referenced by their fields, properties and
+     * mapping annotations
+     */
+    public static String ofClasses(Collection<Class<?>> classes) {
+        Set<Class<?>> roots = new HashSet<>(classes);
+        Set<Class<?>> model = new HashSet<>();
+        Deque<Class<?>> pending = new ArrayDeque<>(classes);
+        while (!pending.isEmpty()) {
+            Class<?> type = pending.poll();
+            if (!isApplicationClass(type) || !model.add(type)) {
+                continue;
+            }
+            if (type.getSuperclass() != null) {
+                pending.add(type.getSuperclass());
+            }
+            if (roots.contains(type) || isMapped(type)) {
+                addReferences(type, pending);
+            }
+        }
+        List<Class<?>> sorted = model.stream().sorted(Comparator.comparing(Class::getName)).collect(Collectors.toList());
+
+        Hasher hasher = Hashing.sha256().newHasher();
+        hasher.putString(Version.getVersionString(), StandardCharsets.UTF_8);
+        sorted.forEach(type -> putClassFile(hasher, type));
+        return hasher.hash().toString();
+    }
+
+    /**
+     * @param strategy naming strategy, or its class when it is configured by name
+     * @return fingerprint of the class files of the strategy and its superclasses, and of its options when the strategy
+     * describes them in {@code toString()}
+     */
+    public static String ofStrategy(Object strategy) {
+        Class<?> strategyClass = strategy instanceof Class ? (Class<?>)strategy : strategy.getClass();
+        Hasher hasher = Hashing.sha256().newHasher();
+        for (Class<?> type = strategyClass; type != null && type != Object.class; type = type.getSuperclass()) {
+            putClassFile(hasher, type);
+        }
+        if (!(strategy instanceof Class) && declaresToString(strategyClass)) {
+            hasher.putByte((byte)0).putString(strategy.toString(), StandardCharsets.UTF_8);
+        }
+        return hasher.hash().toString();
+    }
+
+    /**
+     * @param classesFingerprint fingerprint of the entity classes, see {@link #ofClasses(Collection)}
+     * @param settings           dialect, naming strategies and other settings of the export
+     * @return fingerprint of the export
+     */
+    public static String of(String classesFingerprint, Map<String, String> settings) {
+        Hasher hasher = Hashing.sha256().newHasher()
+                .putString(classesFingerprint, StandardCharsets.UTF_8)
+                .putByte((byte)0)
+                .putString(LIBRARY_VERSION, StandardCharsets.UTF_8);
+        new TreeMap<>(settings).forEach((key, value) -> hasher
+                .putByte((byte)0)
+                .putString(key, StandardCharsets.UTF_8)
+                .putByte((byte)'=')
+                .putString(String.valueOf(value), StandardCharsets.UTF_8));
+        return hasher.hash().toString();
+    }
+
+    /**
+     * @param script      generated script
+     * @param fingerprint fingerprint of the export
+     * @return true if the script exists, was generated with the same fingerprint and has not been changed since
+     */
+    public static boolean isCurrent(Path script, String fingerprint) {
+        Path fingerprintFile = getFingerprintFile(script);
+        if (!Files.isRegularFile(script) || !Files.isRegularFile(fingerprintFile)) {
+            return false;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(fingerprintFile, StandardCharsets.UTF_8)) {
+            String model = reader.readLine();
+            String checksum = reader.readLine();
+            return (MODEL_KEY + fingerprint).equals(model) && (SCRIPT_KEY + checksum(script)).equals(checksum);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Stores the fingerprint of a generated script next to it.
+     *
+     * @param script      generated script
+     * @param fingerprint fingerprint of the export
+     */
+    public static void write(Path script, String fingerprint) {
+        try (Writer writer = Files.newBufferedWriter(getFingerprintFile(script), StandardCharsets.UTF_8)) {
+            writer.write(MODEL_KEY + fingerprint + '\n');
+            writer.write(SCRIPT_KEY + checksum(script) + '\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Path getFingerprintFile(Path script) {
+        return script.resolveSibling(script.getFileName() + SUFFIX);
+    }
+
+    private static String checksum(Path script) throws IOException {
+        return com.google.common.io.Files.asByteSource(script.toFile()).hash(Hashing.sha256()).toString();
+    }
+
+    private static void putClassFile(Hasher hasher, Class<?> type) {
+        hasher.putString(type.getName(), StandardCharsets.UTF_8).putByte((byte)0);
+        try (InputStream inputStream = getClassFile(type)) {
+            if (inputStream != null) {
+                hasher.putBytes(ByteStreams.toByteArray(inputStream));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static boolean isApplicationClass(Class<?> type) {
+        return type != null
+                && !type.isPrimitive()
+                && !type.isArray()
+                && type.getClassLoader() != null
+                && type.getClassLoader() != ClassLoader.getPlatformClassLoader();
+    }
+
+    private static boolean isMapped(Class<?> type) {
+        return type.isAnnotationPresent(Entity.class) || type.isAnnotationPresent(Embeddable.class) || type.isAnnotationPresent(MappedSuperclass.class);
+    }
+
+    private static void addReferences(Class<?> type, Collection<Class<?>> pending) {
+        addAnnotationReferences(type, type, pending);
+        for (Field field : type.getDeclaredFields()) {
+            addTypes(field.getGenericType(), pending);
+            addAnnotationReferences(type, field, pending);
+        }
+        for (Method method : type.getDeclaredMethods()) {
+            addTypes(method.getGenericReturnType(), pending);
+            addAnnotationReferences(type, method, pending);
+        }
+    }
+
+    private static void addTypes(Type type, Collection<Class<?>> pending) {
+        if (type instanceof Class) {
+            Class<?> typeClass = (Class<?>)type;
+            while (typeClass.isArray()) {
+                typeClass = typeClass.getComponentType();
+            }
+            pending.add(typeClass);
+        } else if (type instanceof ParameterizedType) {
+            addTypes(((ParameterizedType)type).getRawType(), pending);
+            for (Type argument : ((ParameterizedType)type).getActualTypeArguments()) {
+                addTypes(argument, pending);
+            }
+        } else if (type instanceof GenericArrayType) {
+            addTypes(((GenericArrayType)type).getGenericComponentType(), pending);
+        } else if (type instanceof WildcardType) {
+            for (Type bound : ((WildcardType)type).getUpperBounds()) {
+                addTypes(bound, pending);
+            }
+        }
+    }
+
+    /**
+     * Adds classes named by mapping annotations, e.g. {@code @Convert(converter = ...)}, {@code @TypeDef(typeClass = ...)}
+     * or {@code @Type(type = "...")}.
+     */
+    private static void addAnnotationReferences(Class<?> owner, AnnotatedElement element, Collection<Class<?>> pending) {
+        for (Annotation annotation : element.getAnnotations()) {
+            addAnnotationReferences(owner, annotation, pending);
+        }
+    }
+
+    private static void addAnnotationReferences(Class<?> owner, Annotation annotation, Collection<Class<?>> pending) {
+        if (annotation instanceof org.hibernate.annotations.Type) {
+            try {
+                pending.add(Class.forName(((org.hibernate.annotations.Type)annotation).type(), false, owner.getClassLoader()));
+            } catch (ClassNotFoundException e) {
+                // a type registered by name, e.g. a basic type
+            }
+        }
+        for (Method member : annotation.annotationType().getDeclaredMethods()) {
+            if (member.getParameterCount() > 0) {
+                continue;
+            }
+            Object value;
+            try {
+                value = member.invoke(annotation);
+            } catch (IllegalAccessException | InvocationTargetException e) {
+                continue;
+            }
+            if (value instanceof Class) {
+                pending.add((Class<?>)value);
+            } else if (value instanceof Class[]) {
+                pending.addAll(List.of((Class<?>[])value));
+            } else if (value instanceof Annotation) {
+                addAnnotationReferences(owner, (Annotation)value, pending);
+            } else if (value instanceof Annotation[]) {
+                for (Annotation nested : (Annotation[])value) {
+                    addAnnotationReferences(owner, nested, pending);
+                }
+            }
+        }
+    }
+
+    private static boolean declaresToString(Class<?> type) {
+        try {
+            return type.getMethod("toString").getDeclaringClass() != Object.class;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    private static String readLibraryVersion() {
+        try (InputStream inputStream = SchemaFingerprint.class.getResourceAsStream("/META-INF/maven/care.better.schema/db-schema/pom.properties")) {
+            if (inputStream != null) {
+                Properties properties = new Properties();
+                properties.load(inputStream);
+                return properties.getProperty("version", "");
+            }
+        } catch (IOException e) {
+            // classes outside of the packaged library, e.g. in an IDE
+        }
+        return "";
+    }
+
+    private static InputStream getClassFile(Class<?> type) {
+        String resource = type.getName().replace('.', '/') + ".class";
+        ClassLoader classLoader = type.getClassLoader();
+        return classLoader == null ? ClassLoader.getSystemResourceAsStream(resource) : classLoader.getResourceAsStream(resource);
+    }
+}
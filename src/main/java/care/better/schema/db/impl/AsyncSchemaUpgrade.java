@@ -0,0 +1,232 @@
+package care.better.schema.db.impl;
+
+import care.better.schema.db.exception.DatabaseUpgradeException;
+import care.better.schema.db.exception.UpgradeCancelledException;
+import care.better.schema.db.impl.SchemaUpgradeProgress.State;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Schema initialization or upgrade running in the background, started with
+ * {@link SchemaInitializerImpl#initializeOrUpdateAsync} or {@link SchemaInitializerImpl#updateExistingAsync}, so that
+ * the rest of the application can start in the meantime. Components that need the schema wait on the readiness gate
+ * ({@link #awaitReady()}); the progress is available as snapshots ({@link #getProgress()}) or pushed to progress
+ * listeners.
+ * <p>
+ * {@link #cancel()} stops the upgrade before the next version. The versions upgraded so far are committed, so the
+ * schema is left at a consistent version and the next upgrade continues from there.
+ */
+public final class AsyncSchemaUpgrade {
+    private static final Logger log = LoggerFactory.getLogger(AsyncSchemaUpgrade.class);
+
+    private final CompletableFuture<Integer> future = new CompletableFuture<>();
+    private final List<Consumer<SchemaUpgradeProgress>> progressListeners = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean started = new AtomicBoolean();
+    private final Control control = new Control();
+    private volatile SchemaUpgradeProgress progress = new SchemaUpgradeProgress(State.PENDING, 0, 0, 0);
+    private volatile boolean cancelled;
+
+    private AsyncSchemaUpgrade() {
+    }
+
+    static AsyncSchemaUpgrade start(Executor executor, Task task) {
+        AsyncSchemaUpgrade upgrade = new AsyncSchemaUpgrade();
+        try {
+            executor.execute(() -> upgrade.run(task));
+        } catch (RejectedExecutionException e) {
+            upgrade.started.set(true);
+            upgrade.fail(e);
+        }
+        return upgrade;
+    }
+
+    /**
+     * @return current progress of the upgrade
+     */
+    public SchemaUpgradeProgress getProgress() {
+        return progress;
+    }
+
+    /**
+     * Registers a listener called with the current progress and after every change, on the upgrading thread.
+     *
+     * @param listener progress listener
+     */
+    public void addProgressListener(Consumer<SchemaUpgradeProgress> listener) {
+        progressListeners.add(listener);
+        notify(listener, progress);
+    }
+
+    /**
+     * @return future completed with the schema version when the upgrade completes, completed exceptionally with a
+     * {@link CancellationException} when it is cancelled. Cancelling the returned future does not stop the upgrade,
+     * use {@link #cancel()}.
+     */
+    public CompletableFuture<Integer> toCompletableFuture() {
+        CompletableFuture<Integer> copy = new CompletableFuture<>();
+        future.whenComplete((version, e) -> {
+            if (e == null) {
+                copy.complete(version);
+            } else {
+                copy.completeExceptionally(e);
+            }
+        });
+        return copy;
+    }
+
+    /**
+     * @return true if the schema has been initialized or upgraded successfully
+     */
+    public boolean isReady() {
+        return future.isDone() && !future.isCompletedExceptionally();
+    }
+
+    /**
+     * Waits until the schema is ready.
+     *
+     * @throws DatabaseUpgradeException   if the upgrade failed
+     * @throws UpgradeCancelledException if the upgrade was cancelled
+     * @throws InterruptedException       if the waiting thread is interrupted
+     */
+    public void awaitReady() throws InterruptedException {
+        try {
+            future.get();
+        } catch (ExecutionException e) {
+            throw failure(e.getCause());
+        } catch (CancellationException e) {
+            throw failure(e);
+        }
+    }
+
+    /**
+     * Waits until the schema is ready or the timeout elapses.
+     *
+     * @param timeout maximum time to wait
+     * @return true if the schema is ready, false if the upgrade is still running
+     * @throws DatabaseUpgradeException   if the upgrade failed
+     * @throws UpgradeCancelledException if the upgrade was cancelled
+     * @throws InterruptedException       if the waiting thread is interrupted
+     */
+    public boolean awaitReady(Duration timeout) throws InterruptedException {
+        try {
+            future.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        } catch (ExecutionException e) {
+            throw failure(e.getCause());
+        } catch (CancellationException e) {
+            throw failure(e);
+        }
+    }
+
+    /**
+     * Requests the upgrade to stop before the next version. An upgrade that has not started yet does not start at all.
+     * A new schema is created in a single step that can not be cancelled once it has started.
+     */
+    public void cancel() {
+        cancelled = true;
+        if (started.compareAndSet(false, true)) {
+            cancelled(new UpgradeCancelledException());
+        }
+    }
+
+    private void run(Task task) {
+        if (!started.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            task.run(control);
+            SchemaUpgradeProgress current = progress;
+            update(new SchemaUpgradeProgress(State.COMPLETED, current.getStartVersion(), current.getCurrentVersion(), current.getTargetVersion()));
+            future.complete(current.getCurrentVersion());
+        } catch (UpgradeCancelledException e) {
+            log.info("Schema upgrade cancelled at version {}", e.getVersion());
+            cancelled(e);
+        } catch (SQLException | IOException | RuntimeException e) {
+            log.error("Schema upgrade failed", e);
+            fail(e);
+        } catch (Error e) {
+            fail(e);
+            throw e;
+        }
+    }
+
+    private void cancelled(UpgradeCancelledException e) {
+        SchemaUpgradeProgress current = progress;
+        int version = e.getVersion() == UpgradeCancelledException.UNKNOWN_VERSION ? current.getCurrentVersion() : e.getVersion();
+        update(new SchemaUpgradeProgress(State.CANCELLED, current.getStartVersion(), version, current.getTargetVersion()));
+        CancellationException cancellation = new CancellationException(e.getMessage());
+        cancellation.initCause(e);
+        future.completeExceptionally(cancellation);
+    }
+
+    private void fail(Throwable e) {
+        SchemaUpgradeProgress current = progress;
+        update(new SchemaUpgradeProgress(State.FAILED, current.getStartVersion(), current.getCurrentVersion(), current.getTargetVersion()));
+        future.completeExceptionally(e);
+    }
+
+    private void update(SchemaUpgradeProgress newProgress) {
+        progress = newProgress;
+        for (Consumer<SchemaUpgradeProgress> listener : progressListeners) {
+            notify(listener, newProgress);
+        }
+    }
+
+    private static void notify(Consumer<SchemaUpgradeProgress> listener, SchemaUpgradeProgress progress) {
+        try {
+            listener.accept(progress);
+        } catch (RuntimeException e) {
+            log.warn("Schema upgrade progress listener {} failed", listener, e);
+        }
+    }
+
+    private static RuntimeException failure(Throwable cause) {
+        if (cause instanceof CancellationException && cause.getCause() instanceof UpgradeCancelledException) {
+            return (UpgradeCancelledException)cause.getCause();
+        }
+        if (cause instanceof DatabaseUpgradeException) {
+            return (DatabaseUpgradeException)cause;
+        }
+        return new DatabaseUpgradeException("Schema upgrade failed", cause);
+    }
+
+    @FunctionalInterface
+    interface Task {
+        void run(UpgradeControl control) throws SQLException, IOException;
+    }
+
+    private final class Control implements UpgradeControl {
+        @Override
+        public void started(int startVersion, int targetVersion) {
+            update(new SchemaUpgradeProgress(State.RUNNING, startVersion, startVersion, targetVersion));
+        }
+
+        @Override
+        public void versionCompleted(int version) {
+            SchemaUpgradeProgress current = progress;
+            update(new SchemaUpgradeProgress(State.RUNNING, current.getStartVersion(), version, current.getTargetVersion()));
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package care.better.schema.db.impl;
+
+import care.better.schema.db.exception.DatabaseUpgradeException;
+import care.better.schema.db.script.ScriptDialect;
+import care.better.schema.db.script.SqlStatement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Guards upgrade statements against queuing behind long-running application transactions. The session lock timeout
+ * ({@code lock_timeout}, {@code SET LOCK_TIMEOUT}, {@code DDL_LOCK_TIMEOUT}, {@code lock_wait_timeout} and
+ * {@code innodb_lock_wait_timeout}) makes a statement fail instead of blocking every later query on its table, the
+ * statement is then retried with jittered exponential backoff. On dialects with transactional DDL the statement runs
+ * under a savepoint, so a timed out statement does not abort the upgrade transaction.
+ */
+final class LockTimeoutPolicy {
+    private static final Logger log = LoggerFactory.getLogger(LockTimeoutPolicy.class);
+    private static final Duration MAX_BACKOFF = Duration.ofMinutes(1L);
+
+    private final ScriptDialect scriptDialect;
+    private final Duration lockTimeout;
+    private final Duration statementTimeout;
+    private final int maxRetries;
+    private final Duration backoff;
+    private final UpgradeEvents events;
+    private final AtomicLong retries;
+
+    /**
+     * @param lockTimeout      session lock timeout, {@code null} keeps the database default and disables retries
+     * @param statementTimeout JDBC query timeout of transactional statements, {@code null} for none
+     * @param maxRetries       maximum number of retries of a statement that timed out waiting for a lock
+     * @param backoff          delay before the first retry, doubled for every further retry
+     * @param retries          counter of all retries
+     */
+    LockTimeoutPolicy(
+            ScriptDialect scriptDialect,
+            Duration lockTimeout,
+            Duration statementTimeout,
+            int maxRetries,
+            Duration backoff,
+            UpgradeEvents events,
+            AtomicLong retries) {
+        this.scriptDialect = scriptDialect;
+        this.lockTimeout = lockTimeout;
+        this.statementTimeout = statementTimeout;
+        this.maxRetries = lockTimeout == null ? 0 : maxRetries;
+        this.backoff = backoff;
+        this.events = events;
+        this.retries = retries;
+    }
+
+    /**
+     * Sets the lock timeout of the session. The settings are changed and committed before the upgrade transaction
+     * starts and restored after it has been committed or rolled back, so they are neither rolled back with a failed
+     * upgrade (PostgreSQL) nor left in a pending transaction.
+     *
+     * @param connection upgrade connection
+     * @return restores the previous settings when closed
+     * @throws SQLException on database errors
+     */
+    Session apply(Connection connection) throws SQLException {
+        if (lockTimeout == null) {
+            return () -> {
+            };
+        }
+        long millis = Math.max(lockTimeout.toMillis(), 1L);
+        long seconds = Math.max((millis + 999L) / 1000L, 1L);
+        String set;
+        String reset;
+        switch (scriptDialect) {
+            case PGSQL:
+                set = "SET lock_timeout = '" + millis + "ms'";
+                reset = "SET lock_timeout = '" + query(connection, "SELECT current_setting('lock_timeout')") + '\'';
+                break;
+            case MSSQL:
+                set = "SET LOCK_TIMEOUT " + millis;
+                reset = "SET LOCK_TIMEOUT " + query(connection, "SELECT @@LOCK_TIMEOUT");
+                break;
+            case ORA:
+                set = "ALTER SESSION SET DDL_LOCK_TIMEOUT = " + Math.min(seconds, 1_000_000L);
+                reset = "ALTER SESSION SET DDL_LOCK_TIMEOUT = " + queryOracleDdlLockTimeout(connection);
+                break;
+            case MYSQL:
+                set = "SET SESSION lock_wait_timeout = " + seconds + ", innodb_lock_wait_timeout = " + seconds;
+                reset = "SET SESSION lock_wait_timeout = " + query(connection, "SELECT @@SESSION.lock_wait_timeout")
+                        + ", innodb_lock_wait_timeout = " + query(connection, "SELECT @@SESSION.innodb_lock_wait_timeout");
+                break;
+            case H2:
+                set = "SET LOCK_TIMEOUT " + millis;
+                reset = "SET LOCK_TIMEOUT " + query(connection, "SELECT LOCK_TIMEOUT()");
+                break;
+            default:
+                log.warn("Lock timeout is not supported on {}, upgrade statements wait for locks as long as the database does", scriptDialect);
+                return () -> {
+                };
+        }
+        execute(connection, set);
+        log.info("Upgrade statements wait at most {} ms for locks", millis);
+        return () -> execute(connection, reset);
+    }
+
+    /**
+     * @param statement statement executing upgrade scripts
+     * @throws SQLException on database errors
+     */
+    void configure(Statement statement) throws SQLException {
+        if (statementTimeout != null) {
+            statement.setQueryTimeout((int)Math.max((statementTimeout.toMillis() + 999L) / 1000L, 1L));
+        }
+    }
+
+    /**
+     * @return true if statements need a savepoint to be retried within the upgrade transaction
+     */
+    boolean isSavepointRequired() {
+        return scriptDialect.isTransactionalDdl();
+    }
+
+    /**
+     * Executes the call, retrying it after lock timeouts.
+     *
+     * @param connection     connection
+     * @param statement      executed statement, the first statement of a batch
+     * @param savepoint      true to roll back to a savepoint before a retry, false if a failed statement has no effect
+     *                       on the transaction (auto-commit, statement level rollback)
+     * @param version        schema version of the script
+     * @param scriptResource script resource
+     * @param call           executes the statement
+     * @return result of the call
+     * @throws SQLException if the call fails with another error or still times out after the last retry
+     */
+    <T> T execute(Connection connection, SqlStatement statement, boolean savepoint, int version, String scriptResource, Call<T> call) throws SQLException {
+        for (int attempt = 1; ; attempt++) {
+            Savepoint retryPoint = savepoint && maxRetries > 0 ? connection.setSavepoint() : null;
+            try {
+                T result = call.execute(attempt > 1);
+                if (retryPoint != null) {
+                    release(connection, retryPoint);
+                }
+                return result;
+            } catch (SQLException e) {
+                if (attempt > maxRetries || !isLockTimeout(e)) {
+                    throw e;
+                }
+                if (retryPoint != null) {
+                    try {
+                        connection.rollback(retryPoint);
+                    } catch (SQLException rollbackFailure) {
+                        e.addSuppressed(rollbackFailure);
+                        throw e;
+                    }
+                }
+                Duration delay = getBackoff(attempt);
+                log.warn("Statement at line {} of {} timed out waiting for a lock, retry {} of {} in {} ms: {}",
+                         statement.getLineNumber(), scriptResource, attempt, maxRetries, delay.toMillis(), e.getMessage());
+                retries.incrementAndGet();
+                events.statementRetried(version, scriptResource, statement, attempt, delay, e);
+                sleep(delay);
+            }
+        }
+    }
+
+    private void release(Connection connection, Savepoint savepoint) throws SQLException {
+        // SQL Server releases savepoints with the transaction only
+        if (scriptDialect != ScriptDialect.MSSQL) {
+            connection.releaseSavepoint(savepoint);
+        }
+    }
+
+    /**
+     * Equal jitter: half of the exponential delay is fixed, the other half random, so upgrades of several tenants
+     * waiting for the same lock do not retry in lockstep.
+     */
+    private Duration getBackoff(int attempt) {
+        long millis = Math.min(backoff.toMillis() << Math.min(attempt - 1, 20), MAX_BACKOFF.toMillis());
+        long half = millis / 2L;
+        return Duration.ofMillis(half + ThreadLocalRandom.current().nextLong(millis - half + 1L));
+    }
+
+    private static void sleep(Duration delay) {
+        try {
+            Thread.sleep(delay.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DatabaseUpgradeException("Interrupted while waiting to retry upgrade statement", e);
+        }
+    }
+
+    /**
+     * @param e statement failure
+     * @return true if the statement failed waiting for a lock
+     */
+    boolean isLockTimeout(SQLException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException) {
+                for (SQLException next = (SQLException)cause; next != null; next = next.getNextException()) {
+                    if (isLockTimeoutError(next)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean isLockTimeoutError(SQLException e) {
+        switch (scriptDialect) {
+            case PGSQL:
+                return "55P03".equals(e.getSQLState());
+            case MSSQL:
+                return e.getErrorCode() == 1222;
+            case ORA:
+                // ORA-00054 resource busy, ORA-30006 resource busy with WAIT timeout, ORA-04021 timeout locking an object
+                return e.getErrorCode() == 54 || e.getErrorCode() == 30006 || e.getErrorCode() == 4021;
+            case MYSQL:
+                return e.getErrorCode() == 1205;
+            case H2:
+                return e.getErrorCode() == 50200;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * @return session value of {@code DDL_LOCK_TIMEOUT}, or the default 0 if {@code V$PARAMETER} is not readable
+     */
+    private static String queryOracleDdlLockTimeout(Connection connection) {
+        try {
+            String value = query(connection, "SELECT value FROM v$parameter WHERE name = 'ddl_lock_timeout'");
+            return value == null ? "0" : value;
+        } catch (SQLException e) {
+            log.warn("Can not read DDL_LOCK_TIMEOUT of the session, it will be reset to 0 after the upgrade: {}", e.getMessage());
+            return "0";
+        }
+    }
+
+    private static String query(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement(); ResultSet resultSet = statement.executeQuery(sql)) {
+            return resultSet.next() ? resultSet.getString(1) : null;
+        }
+    }
+
+    private static void execute(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+        if (!connection.getAutoCommit()) {
+            connection.commit();
+        }
+    }
+
+    /**
+     * Restores the session settings, closed after the upgrade transaction has been committed or rolled back.
+     */
+    @FunctionalInterface
+    interface Session extends AutoCloseable {
+        @Override
+        void close() throws SQLException;
+    }
+
+    @FunctionalInterface
+    interface Call<T> {
+        /**
+         * @param retry true if the statement is executed again after a lock timeout
+         */
+        T execute(boolean retry) throws SQLException;
+    }
+}
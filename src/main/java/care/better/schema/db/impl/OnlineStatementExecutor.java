@@ -0,0 +1,249 @@
+package care.better.schema.db.impl;
+
+import care.better.schema.db.script.ScriptDialect;
+import care.better.schema.db.script.SqlStatement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Executes statements outside of the upgrade transaction. Statements marked {@code @online} are rewritten to their
+ * non-blocking form:
+ * <ul>
+ * <li>PostgreSQL: {@code CREATE INDEX CONCURRENTLY}; foreign key and check constraints are added {@code NOT VALID} and
+ * validated with a separate {@code VALIDATE CONSTRAINT}</li>
+ * <li>SQL Server: {@code CREATE INDEX ... WITH (ONLINE = ON)}</li>
+ * <li>Oracle: {@code CREATE INDEX ... ONLINE}; constraints are added {@code ENABLE NOVALIDATE} and validated
+ * separately</li>
+ * </ul>
+ * Rewritten statements can be executed again after a failure: an invalid index left behind by a failed concurrent
+ * build is dropped, an index that has been built but whose progress was not recorded is skipped and a constraint that
+ * was added but not validated is only validated.
+ */
+final class OnlineStatementExecutor {
+    private static final Logger log = LoggerFactory.getLogger(OnlineStatementExecutor.class);
+
+    private static final Pattern CREATE_INDEX = Pattern.compile(
+            "^(CREATE\\s+(?:UNIQUE\\s+|BITMAP\\s+|CLUSTERED\\s+|NONCLUSTERED\\s+)*INDEX\\s+)(CONCURRENTLY\\s+)?(?:IF\\s+NOT\\s+EXISTS\\s+)?(\\S+)\\s+ON\\s+(?:ONLY\\s+)?([^\\s(]+)",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern ADD_CONSTRAINT = Pattern.compile(
+            "^ALTER\\s+TABLE\\s+(?:ONLY\\s+)?(\\S+)\\s+ADD\\s+CONSTRAINT\\s+(\\S+)\\s+(?:FOREIGN\\s+KEY|CHECK)\\b",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern CONCURRENTLY = Pattern.compile("\\bCONCURRENTLY\\b", Pattern.CASE_INSENSITIVE);
+    private static final Pattern WITH_OPTIONS = Pattern.compile("\\bWITH\\s*\\(", Pattern.CASE_INSENSITIVE);
+
+    private final ScriptDialect scriptDialect;
+
+    OnlineStatementExecutor(ScriptDialect scriptDialect) {
+        this.scriptDialect = scriptDialect;
+    }
+
+    /**
+     * @param statement script statement
+     * @return true if the statement is marked as non-transactional or cannot run inside a transaction at all
+     */
+    boolean isNonTransactional(SqlStatement statement) {
+        return statement.isNonTransactional() || scriptDialect == ScriptDialect.PGSQL && CONCURRENTLY.matcher(statement.getSql()).find();
+    }
+
+    /**
+     * Executes the statement with auto-commit enabled. The caller must commit its transaction first.
+     *
+     * @param connection connection
+     * @param statement  script statement
+     * @throws SQLException on database errors
+     */
+    void execute(Connection connection, SqlStatement statement) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(true);
+        try (Statement jdbcStatement = connection.createStatement()) {
+            for (String sql : prepare(connection, statement)) {
+                log.info("Executing non-transactional upgrade script {}", sql);
+                jdbcStatement.execute(sql);
+            }
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    private List<String> prepare(Connection connection, SqlStatement statement) throws SQLException {
+        String sql = statement.getSql();
+        Matcher index = CREATE_INDEX.matcher(sql);
+        Matcher constraint = ADD_CONSTRAINT.matcher(sql);
+        switch (scriptDialect) {
+            case PGSQL:
+                if (index.find()) {
+                    if (index.group(2) == null && statement.isOnline()) {
+                        sql = toOnlineIndex(sql);
+                    }
+                    if (index.group(2) != null || statement.isOnline()) {
+                        dropInvalidPostgreSqlIndex(connection, index.group(3));
+                        if (indexExists(connection, index)) {
+                            return Collections.emptyList();
+                        }
+                    }
+                    return Collections.singletonList(sql);
+                }
+                if (statement.isOnline() && constraint.find()) {
+                    return addAndValidate(
+                            connection,
+                            constraint,
+                            containsWords(sql, "NOT VALID") ? sql : sql + " NOT VALID",
+                            "ALTER TABLE " + constraint.group(1) + " VALIDATE CONSTRAINT " + constraint.group(2));
+                }
+                break;
+            case MSSQL:
+                if (statement.isOnline() && index.find()) {
+                    if (indexExists(connection, index)) {
+                        return Collections.emptyList();
+                    }
+                    return Collections.singletonList(toOnlineIndex(sql));
+                }
+                break;
+            case ORA:
+                if (statement.isOnline() && index.find()) {
+                    if (indexExists(connection, index)) {
+                        return Collections.emptyList();
+                    }
+                    return Collections.singletonList(toOnlineIndex(sql));
+                }
+                if (statement.isOnline() && constraint.find()) {
+                    return addAndValidate(
+                            connection,
+                            constraint,
+                            containsWords(sql, "NOVALIDATE") ? sql : sql + " ENABLE NOVALIDATE",
+                            "ALTER TABLE " + constraint.group(1) + " MODIFY CONSTRAINT " + constraint.group(2) + " VALIDATE");
+                }
+                break;
+            default:
+                break;
+        }
+        return Collections.singletonList(sql);
+    }
+
+    /**
+     * @param sql statement
+     * @return the {@code CREATE INDEX} statement in the non-blocking form of the dialect, other statements unchanged
+     */
+    String toOnlineIndex(String sql) {
+        Matcher index = CREATE_INDEX.matcher(sql);
+        if (!index.find()) {
+            return sql;
+        }
+        switch (scriptDialect) {
+            case PGSQL:
+                return index.group(2) == null ? sql.substring(0, index.end(1)) + "CONCURRENTLY " + sql.substring(index.end(1)) : sql;
+            case MSSQL:
+                if (containsWords(sql, "ONLINE")) {
+                    return sql;
+                }
+                Matcher with = WITH_OPTIONS.matcher(sql);
+                return with.find(index.end())
+                        ? sql.substring(0, with.end()) + "ONLINE = ON, " + sql.substring(with.end())
+                        : sql + " WITH (ONLINE = ON)";
+            case ORA:
+                return containsWords(sql, "ONLINE") ? sql : sql + " ONLINE";
+            default:
+                return sql;
+        }
+    }
+
+    private List<String> addAndValidate(Connection connection, Matcher constraint, String add, String validate) throws SQLException {
+        List<String> statements = new ArrayList<>(2);
+        if (constraintExists(connection, constraint.group(2))) {
+            log.info("Constraint {} already exists, it will only be validated", constraint.group(2));
+        } else {
+            statements.add(add);
+        }
+        statements.add(validate);
+        return statements;
+    }
+
+    private void dropInvalidPostgreSqlIndex(Connection connection, String indexName) throws SQLException {
+        String query = "SELECT 1 FROM pg_index i JOIN pg_class c ON c.oid = i.indexrelid WHERE c.relname = ? AND NOT i.indisvalid";
+        boolean invalid;
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            statement.setString(1, normalizeIdentifier(indexName));
+            try (ResultSet resultSet = statement.executeQuery()) {
+                invalid = resultSet.next();
+            }
+        }
+        if (invalid) {
+            log.info("Dropping invalid index {} left by a failed concurrent build", indexName);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("DROP INDEX CONCURRENTLY IF EXISTS " + indexName);
+            }
+        }
+    }
+
+    /**
+     * @return true if a usable index with the name of the created index exists, e.g. when an interrupted upgrade built
+     * it but did not record its progress
+     */
+    private boolean indexExists(Connection connection, Matcher index) throws SQLException {
+        String query;
+        switch (scriptDialect) {
+            case PGSQL:
+                query = "SELECT 1 FROM pg_index i JOIN pg_class c ON c.oid = i.indexrelid WHERE c.relname = ? AND i.indisvalid AND pg_table_is_visible(c.oid)";
+                break;
+            case MSSQL:
+                query = "SELECT 1 FROM sys.indexes WHERE name = ? AND object_id = OBJECT_ID(?)";
+                break;
+            case ORA:
+                query = "SELECT 1 FROM user_indexes WHERE index_name = ? AND status <> 'UNUSABLE'";
+                break;
+            default:
+                return false;
+        }
+        boolean exists;
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            statement.setString(1, normalizeIdentifier(index.group(3)));
+            if (scriptDialect == ScriptDialect.MSSQL) {
+                statement.setString(2, index.group(4));
+            }
+            try (ResultSet resultSet = statement.executeQuery()) {
+                exists = resultSet.next();
+            }
+        }
+        if (exists) {
+            log.info("Index {} already exists, skipping its creation", index.group(3));
+        }
+        return exists;
+    }
+
+    private boolean constraintExists(Connection connection, String constraintName) throws SQLException {
+        String query = scriptDialect == ScriptDialect.ORA
+                ? "SELECT 1 FROM user_constraints WHERE constraint_name = ?"
+                : "SELECT 1 FROM pg_constraint WHERE conname = ?";
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            statement.setString(1, normalizeIdentifier(constraintName));
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next();
+            }
+        }
+    }
+
+    private String normalizeIdentifier(String identifier) {
+        String name = identifier.substring(identifier.lastIndexOf('.') + 1);
+        if (name.length() > 1
+                && (name.charAt(0) == '"' && name.charAt(name.length() - 1) == '"' || name.charAt(0) == '[' && name.charAt(name.length() - 1) == ']')) {
+            return name.substring(1, name.length() - 1);
+        }
+        return scriptDialect == ScriptDialect.ORA ? name.toUpperCase(Locale.ROOT) : name.toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean containsWords(String sql, String words) {
+        return Pattern.compile("\\b" + words.replace(" ", "\\s+") + "\\b", Pattern.CASE_INSENSITIVE).matcher(sql).find();
+    }
+}
@@ -0,0 +1,199 @@
+package care.better.schema.db.impl;
+
+import care.better.schema.db.script.SqlStatement;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Executes a schema creation script over several connections. The script is turned into a dependency graph: every
+ * {@code CREATE TABLE}, {@code CREATE SEQUENCE}, {@code CREATE INDEX}, {@code ALTER TABLE} and {@code COMMENT ON}
+ * statement depends on the previous statement touching the same tables (including tables referenced by foreign keys),
+ * so statements on different tables run in parallel while statements on the same table keep the script order. Any
+ * other statement is a barrier executed alone after everything before it has completed.
+ * <p>
+ * Statements are executed with auto-commit enabled, so a failure leaves the statements completed so far in place.
+ */
+final class ParallelScriptExecutor {
+    private static final Logger log = LoggerFactory.getLogger(ParallelScriptExecutor.class);
+
+    private static final String NAME = "([\\w$#.\"`\\[\\]]+)";
+    private static final Pattern CREATE_TABLE = Pattern.compile(
+            "^CREATE\\s+(?:(?:GLOBAL\\s+|LOCAL\\s+)?(?:TEMPORARY\\s+|TEMP\\s+)|UNLOGGED\\s+|MEMORY\\s+|CACHED\\s+|COLUMN\\s+)?TABLE\\s+(?:IF\\s+NOT\\s+EXISTS\\s+)?" + NAME,
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern CREATE_SEQUENCE = Pattern.compile("^CREATE\\s+SEQUENCE\\s+(?:IF\\s+NOT\\s+EXISTS\\s+)?" + NAME, Pattern.CASE_INSENSITIVE);
+    private static final Pattern CREATE_INDEX = Pattern.compile(
+            "^CREATE\\s+(?:UNIQUE\\s+|BITMAP\\s+|CLUSTERED\\s+|NONCLUSTERED\\s+|SPATIAL\\s+|FULLTEXT\\s+)*INDEX\\s.*?\\bON\\s+(?:ONLY\\s+)?" + NAME,
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+    private static final Pattern ALTER_TABLE = Pattern.compile("^ALTER\\s+TABLE\\s+(?:IF\\s+EXISTS\\s+)?(?:ONLY\\s+)?" + NAME, Pattern.CASE_INSENSITIVE);
+    private static final Pattern COMMENT_ON = Pattern.compile("^COMMENT\\s+ON\\s+(TABLE|COLUMN)\\s+" + NAME, Pattern.CASE_INSENSITIVE);
+    private static final Pattern REFERENCES = Pattern.compile("\\bREFERENCES\\s+" + NAME, Pattern.CASE_INSENSITIVE);
+
+    private final DataSource dataSource;
+    private final int parallelism;
+    private final UpgradeEvents events;
+    private final int version;
+    private final String scriptResource;
+
+    ParallelScriptExecutor(DataSource dataSource, int parallelism, UpgradeEvents events, int version, String scriptResource) {
+        this.dataSource = dataSource;
+        this.parallelism = parallelism;
+        this.events = events != null && events.isEnabled() ? events : null;
+        this.version = version;
+        this.scriptResource = scriptResource;
+    }
+
+    /**
+     * @param statements script statements in script order
+     * @throws SQLException on the first failed statement
+     */
+    void execute(List<SqlStatement> statements) throws SQLException {
+        BlockingQueue<Connection> connections = new ArrayBlockingQueue<>(parallelism);
+        ExecutorService executor = Executors.newFixedThreadPool(
+                parallelism,
+                new ThreadFactoryBuilder().setNameFormat("schema-initializer-%d").setDaemon(true).build());
+        try {
+            for (int i = 0; i < parallelism; i++) {
+                Connection connection = dataSource.getConnection();
+                connection.setAutoCommit(true);
+                connections.add(connection);
+            }
+            List<CompletableFuture<Void>> nodes = schedule(statements, connections, executor);
+            CompletableFuture.allOf(nodes.toArray(new CompletableFuture<?>[0])).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while creating schema", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof CompletionException ? e.getCause().getCause() : e.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException)cause;
+            }
+            throw new SQLException(cause);
+        } finally {
+            executor.shutdownNow();
+            for (Connection connection : connections) {
+                try {
+                    connection.close();
+                } catch (SQLException e) {
+                    log.warn("Unable to close connection", e);
+                }
+            }
+        }
+    }
+
+    private List<CompletableFuture<Void>> schedule(List<SqlStatement> statements, BlockingQueue<Connection> connections, ExecutorService executor) {
+        List<CompletableFuture<Void>> nodes = new ArrayList<>(statements.size());
+        Map<String, CompletableFuture<Void>> lastByTable = new HashMap<>();
+        List<CompletableFuture<Void>> sinceBarrier = new ArrayList<>();
+        CompletableFuture<Void> barrier = CompletableFuture.completedFuture(null);
+
+        for (SqlStatement statement : statements) {
+            Set<String> tables = getTables(statement);
+            List<CompletableFuture<Void>> dependencies = new ArrayList<>();
+            dependencies.add(barrier);
+            if (tables.isEmpty()) {
+                dependencies.addAll(sinceBarrier);
+            } else {
+                for (String table : tables) {
+                    CompletableFuture<Void> previous = lastByTable.get(table);
+                    if (previous != null) {
+                        dependencies.add(previous);
+                    }
+                }
+            }
+
+            CompletableFuture<Void> node = CompletableFuture.allOf(dependencies.toArray(new CompletableFuture<?>[0]))
+                    .thenRunAsync(() -> executeStatement(statement, connections), executor);
+            nodes.add(node);
+            if (tables.isEmpty()) {
+                barrier = node;
+                sinceBarrier.clear();
+                lastByTable.clear();
+            } else {
+                sinceBarrier.add(node);
+                for (String table : tables) {
+                    lastByTable.put(table, node);
+                }
+            }
+        }
+        return nodes;
+    }
+
+    private void executeStatement(SqlStatement statement, BlockingQueue<Connection> connections) {
+        Connection connection = null;
+        try {
+            connection = connections.take();
+            try (Statement jdbcStatement = connection.createStatement()) {
+                log.debug("Executing schema script {}", statement);
+                long start = events == null ? 0L : System.nanoTime();
+                boolean resultSet = jdbcStatement.execute(statement.getSql());
+                if (events != null) {
+                    events.statementExecuted(version, scriptResource, statement, System.nanoTime() - start, resultSet ? -1L : jdbcStatement.getUpdateCount(), 1);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(new SQLException("Interrupted while creating schema", e));
+        } catch (SQLException e) {
+            throw new CompletionException(new SQLException(
+                    "Schema script failed on statement at line " + statement.getLineNumber() + ": " + statement.getSql(),
+                    e.getSQLState(),
+                    e.getErrorCode(),
+                    e));
+        } finally {
+            if (connection != null) {
+                connections.add(connection);
+            }
+        }
+    }
+
+    /**
+     * @return tables and sequences touched by the statement or an empty set if the statement is a barrier
+     */
+    private static Set<String> getTables(SqlStatement statement) {
+        Set<String> tables = new LinkedHashSet<>();
+        if (statement.isBlock() || statement.isNonTransactional()) {
+            return tables;
+        }
+        String sql = statement.getSql();
+        Matcher matcher;
+        if ((matcher = CREATE_TABLE.matcher(sql)).find() || (matcher = ALTER_TABLE.matcher(sql)).find()) {
+            tables.add(normalize(matcher.group(1)));
+            Matcher references = REFERENCES.matcher(sql);
+            while (references.find()) {
+                tables.add(normalize(references.group(1)));
+            }
+        } else if ((matcher = CREATE_SEQUENCE.matcher(sql)).find() || (matcher = CREATE_INDEX.matcher(sql)).find()) {
+            tables.add(normalize(matcher.group(1)));
+        } else if ((matcher = COMMENT_ON.matcher(sql)).find()) {
+            String name = normalize(matcher.group(2));
+            tables.add("COLUMN".equalsIgnoreCase(matcher.group(1)) ? name.substring(0, Math.max(name.lastIndexOf('.'), 0)) : name);
+        }
+        return tables;
+    }
+
+    private static String normalize(String name) {
+        return name.replace("\"", "").replace("`", "").replace("[", "").replace("]", "").toLowerCase(Locale.ROOT);
+    }
+}
@@ -1,19 +1,43 @@
 package care.better.schema.db.impl;
 
 import care.better.schema.db.SchemaInitializer;
+import care.better.schema.db.drift.SchemaDriftChecker;
+import care.better.schema.db.drift.SchemaDriftReport;
 import care.better.schema.db.exception.DatabaseUpgradeException;
 import care.better.schema.db.exception.SchemaNotEmptyException;
+import care.better.schema.db.exception.UpgradeCancelledException;
 import care.better.schema.db.exception.VersionMismatchException;
+import care.better.schema.db.listener.SchemaUpgradeListener;
+import care.better.schema.db.lock.SchemaLock;
+import care.better.schema.db.script.ScriptCache;
+import care.better.schema.db.script.ScriptDialect;
+import care.better.schema.db.script.SqlScriptReader;
+import care.better.schema.db.script.SqlStatement;
+import care.better.schema.db.script.StatementCost;
+import care.better.schema.db.script.StatementCostClassifier;
+import care.better.schema.db.upgrade.ContextualDbUpgrade;
 import care.better.schema.db.upgrade.DbUpgrade;
+import care.better.schema.db.upgrade.UpgradeBaseline;
+import care.better.schema.db.upgrade.UpgradeContext;
+import care.better.schema.db.upgrade.UpgradeHistory;
+import care.better.schema.db.upgrade.UpgradeHistoryEntry;
+import care.better.schema.db.upgrade.UpgradeManifest;
+import care.better.schema.db.upgrade.UpgradePlan;
+import care.better.schema.db.upgrade.UpgradeStep;
 import com.google.common.base.Preconditions;
-import org.apache.commons.io.IOUtils;
-import org.apache.commons.lang3.StringUtils;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.sql.DataSource;
+import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
 import java.lang.reflect.InvocationTargetException;
 import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
@@ -22,27 +46,58 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
-
-import static care.better.schema.db.utils.SqlUtils.getValidScriptParts;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
 
 public class SchemaInitializerImpl implements SchemaInitializer {
     private static final Logger log = LoggerFactory.getLogger(SchemaInitializerImpl.class);
 
-    private static final String DEPRECATED_DB_UPGRADES_PACKAGE = "com.marand.thinkehr.db.upgrade.impl.";
-    private static final String DB_UPGRADES_PACKAGE = "care.better.schema.db.upgrade.impl.";
     private static final String SCHEMA_DIRECTORY = "/schema";
     private static final String SCRIPTS_DIRECTORY = "/schema/upgrades";
     private static final String ADDITIONAL_DIRECTORY = "/schema/additional";
+    private static final Duration LOCK_WAIT_SLICE = Duration.ofSeconds(5L);
+    private static final Cache<ClassLoader, ConcurrentMap<String, UpgradeManifest>> UPGRADE_MANIFESTS = CacheBuilder.newBuilder().weakKeys().build();
 
     private final DataSource dataSource;
     private final Boolean azure;
     private final String dialect;
+    private final ScriptDialect scriptDialect;
 
     private final String dialectScriptsDirectory;
     private final String dialectAdditionalDirectory;
     private final String entireSchemaResource;
     private final String schemaVersionTableName;
 
+    private int batchSize;
+    private SchemaLock schemaLock;
+    private Duration schemaLockTimeout = Duration.ofMinutes(30L);
+    private UpgradeManifest upgradeManifest;
+    private boolean checkpointMode;
+    private int initializationParallelism = 1;
+    private ScriptCache scriptCache;
+    private boolean baselinesEnabled = true;
+    private final UpgradeEvents events = new UpgradeEvents();
+    private final String upgradeProgressTableName;
+    private final UpgradeHistoryTable upgradeHistory;
+    private boolean upgradeHistoryEnabled;
+    private String nodeId = ManagementFactory.getRuntimeMXBean().getName();
+    private Duration lockTimeout;
+    private Duration statementTimeout;
+    private int lockTimeoutRetries = 3;
+    private Duration lockTimeoutBackoff = Duration.ofSeconds(1L);
+    private final AtomicLong statementRetries = new AtomicLong();
+
     public SchemaInitializerImpl(DataSource dataSource, String dialect, Boolean azure, String schemaVersionTableName, String dialectDir) {
         this.dataSource = dataSource;
         this.schemaVersionTableName = schemaVersionTableName;
@@ -51,6 +106,9 @@ public class SchemaInitializerImpl implements SchemaInitializer {
         Preconditions.checkNotNull(dialectDir, "Unable to find upgrades for dialect " + dialect);
         log.info("Found dialect dir {} for {}", dialectDir, dialect);
 
+        scriptDialect = ScriptDialect.forDirectory(dialectDir);
+        upgradeProgressTableName = schemaVersionTableName + "_progress";
+        upgradeHistory = new UpgradeHistoryTable(schemaVersionTableName + "_history", scriptDialect);
         dialectScriptsDirectory = SCRIPTS_DIRECTORY + '/' + dialectDir;
         dialectAdditionalDirectory = ADDITIONAL_DIRECTORY + '/' + dialectDir;
 
@@ -73,21 +131,7 @@ public class SchemaInitializerImpl implements SchemaInitializer {
     @Override
     public void initializeEmpty() throws SQLException, IOException {
         try (Connection connection = dataSource.getConnection()) {
-            connection.setAutoCommit(false);
-            Integer version = getVersion(connection);
-            if (version != null) {
-                throw new SchemaNotEmptyException("Schema not empty, initialization aborted!");
-            }
-            int latestVersion = calculateLatestVersion();
-
-            log.info("Initializing database schema from scratch to version {}", latestVersion);
-            createLatestVersionSchema(connection);
-
-            executeAdditionalScript(connection);
-            int newVersion = getVersion(connection);
-            connection.commit();
-
-            log.info("Update complete, version set to {}", newVersion);
+            initializeEmpty(connection, UpgradeControl.NONE);
         }
     }
 
@@ -99,17 +143,457 @@ public class SchemaInitializerImpl implements SchemaInitializer {
      */
     @Override
     public void updateExisting() throws SQLException, IOException {
-        Connection connection = dataSource.getConnection();
+        runUpdateExisting(UpgradeControl.NONE);
+    }
+
+    /**
+     * initialize/update schema to latest version, however is needed.
+     *
+     * @throws SQLException
+     * @throws IOException
+     */
+    @Override
+    public void initializeOrUpdate() throws SQLException, IOException {
+        runInitializeOrUpdate(UpgradeControl.NONE);
+    }
+
+    /**
+     * Initializes or updates the schema in the background, see {@link #initializeOrUpdate()}.
+     *
+     * @param executor executor that runs the upgrade, e.g. a single thread executor
+     * @return running upgrade with its progress, readiness gate and cancellation
+     */
+    public AsyncSchemaUpgrade initializeOrUpdateAsync(Executor executor) {
+        Preconditions.checkNotNull(executor, "executor is null!");
+        return AsyncSchemaUpgrade.start(executor, this::runInitializeOrUpdate);
+    }
+
+    /**
+     * Updates the existing schema in the background, see {@link #updateExisting()}.
+     *
+     * @param executor executor that runs the upgrade, e.g. a single thread executor
+     * @return running upgrade with its progress, readiness gate and cancellation
+     */
+    public AsyncSchemaUpgrade updateExistingAsync(Executor executor) {
+        Preconditions.checkNotNull(executor, "executor is null!");
+        return AsyncSchemaUpgrade.start(executor, this::runUpdateExisting);
+    }
+
+    /**
+     * Enables JDBC batching of consecutive DDL and DML script statements. Procedural blocks and statements of dialects
+     * that can not batch DDL (Oracle, Ignite) are still executed one by one.
+     *
+     * @param batchSize maximum number of statements in a batch, 0 or 1 disables batching (default)
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Enables checkpoint mode: every upgraded version is committed together with its schema version, instead of
+     * upgrading all versions in a single transaction (default). On dialects without transactional DDL (Oracle, MySQL,
+     * Ignite) the number of executed statements of the current version is also committed to
+     * {@code {schema_version_table}_progress} after every statement, so an interrupted upgrade resumes where it stopped.
+     *
+     * @param checkpointMode true to commit after every version
+     */
+    public void setCheckpointMode(boolean checkpointMode) {
+        this.checkpointMode = checkpointMode;
+    }
+
+    /**
+     * Creates the initial schema over several connections: statements on different tables (table and index creation,
+     * constraints) are executed in parallel, see {@link ParallelScriptExecutor}. Parallel creation is not atomic, a
+     * failure leaves a partially created schema behind, so it is meant for new tenant and test databases.
+     *
+     * @param initializationParallelism number of connections used to execute the schema script, 1 executes it in a
+     *                                  single transaction (default)
+     */
+    public void setInitializationParallelism(int initializationParallelism) {
+        Preconditions.checkArgument(initializationParallelism >= 1, "Parallelism must be at least 1");
+        this.initializationParallelism = initializationParallelism;
+    }
+
+    /**
+     * @param scriptCache cache of parsed scripts shared with other initializers, e.g. {@link ScriptCache#shared()},
+     *                    {@code null} streams the scripts on every initialization (default). Cached scripts are read
+     *                    into memory as a whole. Scripts are keyed by the checksum in a
+     *                    generated upgrade manifest or in their precompiled form (see
+     *                    {@link care.better.schema.db.script.ScriptPrecompiler}), otherwise by a hash of their contents.
+     */
+    public void setScriptCache(ScriptCache scriptCache) {
+        this.scriptCache = scriptCache;
+    }
+
+    /**
+     * @param baselinesEnabled true to upgrade schemas at the version a {@code baseline-{version}.sql} script declares with
+     *                         {@code -- @baseline-from} directly to the baseline version (default), false to replay every
+     *                         upgrade script and {@code DbUpgrade} implementation
+     */
+    public void setBaselinesEnabled(boolean baselinesEnabled) {
+        this.baselinesEnabled = baselinesEnabled;
+    }
+
+    /**
+     * Records every applied upgrade script, baseline and initial schema with its checksum, {@code DbUpgrade} class, start
+     * time, duration, number of statements and node id in {@code {schema_version_table}_history}, in the transaction of
+     * the version update. Before an upgrade the checksums of the applied scripts are compared with the packaged scripts
+     * and changed scripts are logged, see {@link #verifyChecksums()}.
+     *
+     * @param upgradeHistoryEnabled true to record the upgrade history, false to only keep the schema version (default)
+     */
+    public void setUpgradeHistoryEnabled(boolean upgradeHistoryEnabled) {
+        this.upgradeHistoryEnabled = upgradeHistoryEnabled;
+    }
+
+    /**
+     * @param nodeId node recorded in the upgrade history (default {@code pid@hostname} of the JVM)
+     */
+    public void setNodeId(String nodeId) {
+        Preconditions.checkNotNull(nodeId, "nodeId is null!");
+        this.nodeId = nodeId;
+    }
+
+    /**
+     * @return upgrades recorded in {@code {schema_version_table}_history}, empty if the history is not recorded
+     * @throws SQLException on database errors
+     */
+    public UpgradeHistory readUpgradeHistory() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(true);
+            return upgradeHistory.read(connection);
+        }
+    }
+
+    /**
+     * Compares the checksums of the applied upgrade scripts and baselines, read with a single query from the upgrade
+     * history, with the packaged scripts. Scripts without a checksum in the upgrade manifest are hashed.
+     *
+     * @return applied scripts that have changed or are missing since they were applied, empty if there are none
+     * @throws SQLException on database errors
+     * @throws IOException  on read errors
+     */
+    public List<String> verifyChecksums() throws SQLException, IOException {
+        Map<String, UpgradeHistoryEntry> applied = new LinkedHashMap<>();
+        for (UpgradeHistoryEntry entry : readUpgradeHistory().getEntries()) {
+            if (entry.getChecksum() != null) {
+                applied.put(entry.getScriptResource(), entry);
+            }
+        }
+
+        List<String> mismatches = new ArrayList<>();
+        for (UpgradeHistoryEntry entry : applied.values()) {
+            String checksum = getPackagedChecksum(entry);
+            if (checksum == null) {
+                continue;
+            }
+            if (checksum.isEmpty()) {
+                mismatches.add(entry.getScriptResource() + " (version " + entry.getVersion() + ") applied at " + entry.getStartedAt() + " is missing");
+            } else if (!checksum.equals(entry.getChecksum())) {
+                mismatches.add(entry.getScriptResource() + " (version " + entry.getVersion() + ") changed after it was applied at "
+                                       + entry.getStartedAt() + ", checksum " + checksum + ", applied " + entry.getChecksum());
+            }
+        }
+        return mismatches;
+    }
+
+    /**
+     * Estimates the duration of the pending upgrade of this schema from the upgrade history of a database that has
+     * already been upgraded, e.g. staging.
+     *
+     * @param reference upgrade history of the upgraded database, see {@link #readUpgradeHistory()}
+     * @return sum of the recorded durations of the pending versions, versions missing in the reference are logged
+     * @throws SQLException on database errors
+     * @throws IOException  on read errors
+     */
+    public Duration estimateUpgradeDuration(UpgradeHistory reference) throws SQLException, IOException {
+        Integer version;
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(true);
+            version = queryVersion(connection);
+        }
+        if (version == null) {
+            throw new DatabaseUpgradeException("Schema is uninitialized, upgrade duration can not be estimated!");
+        }
+        int latestVersion = calculateLatestVersion();
+        List<Integer> missingVersions = reference.getMissingVersions(version, latestVersion);
+        if (!missingVersions.isEmpty()) {
+            log.info("No recorded duration for versions {}, not included in the estimate", missingVersions);
+        }
+        return reference.estimateDuration(version, latestVersion);
+    }
+
+    /**
+     * Plans the pending upgrade without running it: the schema version (and the progress of an interrupted upgrade) is
+     * read once, then every pending upgrade script or baseline is read and its statements are classified by cost, see
+     * {@link StatementCostClassifier}. Nothing is written to the database and no schema lock is taken.
+     *
+     * @return steps {@link #updateExisting()} would run, empty if the schema is at the latest version
+     * @throws SQLException on database errors
+     * @throws IOException  on read errors
+     */
+    public UpgradePlan planUpgrade() throws SQLException, IOException {
+        Integer version;
+        int completedStatements;
+        UpgradeBaseline baseline;
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(true);
+            version = queryVersion(connection);
+            if (version == null) {
+                throw new DatabaseUpgradeException("Schema is uninitialized, upgrade can not be planned!");
+            }
+            UpgradeProgress upgradeProgress = openUpgradeProgress(connection);
+            completedStatements = upgradeProgress.read(connection, version + 1);
+            baseline = completedStatements < 0 ? getBaseline(version) : null;
+            if (baseline != null) {
+                completedStatements = upgradeProgress.read(connection, baseline.getVersion());
+            }
+        }
+
+        StatementCostClassifier classifier = new StatementCostClassifier(scriptDialect);
+        List<UpgradePlan.Step> steps = new ArrayList<>();
+        int newVersion = version;
+        while (true) {
+            UpgradeStep step = baseline == null ? getUpgradeManifest().getStep(newVersion + 1) : null;
+            if (baseline == null && step == null) {
+                break;
+            }
+            String scriptResource = baseline != null ? baseline.getScriptResource() : step.getScriptResource();
+            List<SqlStatement> statements = readUpgradeScript(scriptResource, baseline != null ? baseline.getChecksum() : step.getChecksum());
+            int skippedStatements = Math.min(Math.max(completedStatements, 0), statements.size());
+            List<StatementCost> costs = new ArrayList<>(statements.size() - skippedStatements);
+            for (SqlStatement statement : statements.subList(skippedStatements, statements.size())) {
+                costs.add(classifier.classify(statement));
+            }
+            int stepVersion = baseline != null ? baseline.getVersion() : newVersion + 1;
+            // an interrupted upgrade has already executed the Java upgrade of the version it resumes
+            String upgradeClassName = step == null || completedStatements >= 0 ? null : step.getUpgradeClassName();
+            steps.add(new UpgradePlan.Step(stepVersion, newVersion, scriptResource, upgradeClassName, skippedStatements, costs));
+            newVersion = stepVersion;
+            completedStatements = -1;
+            baseline = getBaseline(newVersion);
+        }
+        UpgradePlan plan = new UpgradePlan(scriptDialect, schemaVersionTableName, version, newVersion, steps);
+        log.info("Planned upgrade: {}", plan);
+        return plan;
+    }
+
+    /**
+     * Compares the live schema with the packaged {@code {db_name}-schema.sql}, which describes the latest version, using
+     * bulk catalog queries, see {@link SchemaDriftChecker}. Meant for a startup or health check after the schema has
+     * been upgraded to the latest version.
+     *
+     * @return differences between the live schema and the schema script
+     * @throws SQLException on database errors
+     * @throws IOException  on read errors
+     */
+    public SchemaDriftReport checkSchemaDrift() throws SQLException, IOException {
+        try (InputStream inputStream = getResourceAsStream(entireSchemaResource)) {
+            Preconditions.checkNotNull(inputStream, "Unable to find schema script " + entireSchemaResource);
+            SchemaDriftReport report = new SchemaDriftChecker(scriptDialect, schemaVersionTableName)
+                    .check(dataSource, new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+            if (!report.isInSync()) {
+                log.warn("Schema differs from {}: {}", entireSchemaResource, report.getDrifts());
+            }
+            return report;
+        }
+    }
+
+    /**
+     * Registers a listener notified of script parse, statement, Java upgrade, version and lock wait timings, e.g.
+     * {@link care.better.schema.db.listener.Slf4jSchemaUpgradeListener} or
+     * {@link care.better.schema.db.listener.JfrSchemaUpgradeListener}. Timings are only measured when a listener is
+     * registered.
+     *
+     * @param listener upgrade listener
+     */
+    public void addListener(SchemaUpgradeListener listener) {
+        Preconditions.checkNotNull(listener, "listener is null!");
+        events.add(listener);
+    }
+
+    /**
+     * Enables the native cluster lock of the dialect (see {@link SchemaLock#forDialect}), so that only one node
+     * initializes or upgrades the schema while the others wait.
+     */
+    public void enableSchemaLock() {
+        schemaLock = SchemaLock.forDialect(scriptDialect, schemaVersionTableName + "_lock");
+    }
+
+    /**
+     * @param schemaLock cluster lock held while the schema is initialized or upgraded, {@code null} disables locking (default)
+     */
+    public void setSchemaLock(SchemaLock schemaLock) {
+        this.schemaLock = schemaLock;
+    }
+
+    /**
+     * @param schemaLockTimeout maximum time to wait for the schema lock held by another node (default 30 minutes)
+     */
+    public void setSchemaLockTimeout(Duration schemaLockTimeout) {
+        this.schemaLockTimeout = schemaLockTimeout;
+    }
+
+    /**
+     * Limits how long upgrade statements wait for table and row locks, so a statement queued behind a long-running
+     * application transaction fails instead of blocking every later query on the table. The timeout is set on the
+     * upgrade session for the duration of the upgrade ({@code lock_timeout} on PostgreSQL, {@code SET LOCK_TIMEOUT} on
+     * SQL Server and H2, {@code DDL_LOCK_TIMEOUT} on Oracle, {@code lock_wait_timeout} and
+     * {@code innodb_lock_wait_timeout} on MySQL) and also applies to {@code DbUpgrade} implementations. Script statements
+     * that time out are retried, see {@link #setLockTimeoutRetries(int)}.
+     *
+     * @param lockTimeout maximum time a statement waits for a lock, {@code null} keeps the database default (default)
+     */
+    public void setLockTimeout(Duration lockTimeout) {
+        this.lockTimeout = lockTimeout;
+    }
+
+    /**
+     * @param statementTimeout JDBC query timeout of upgrade script statements, {@code null} for none (default).
+     *                         Non-transactional and {@code @online} statements are not limited.
+     */
+    public void setStatementTimeout(Duration statementTimeout) {
+        this.statementTimeout = statementTimeout;
+    }
+
+    /**
+     * @param lockTimeoutRetries maximum number of retries of a script statement that timed out waiting for a lock (default
+     *                           3), 0 fails the upgrade on the first lock timeout. Only used with a lock timeout.
+     */
+    public void setLockTimeoutRetries(int lockTimeoutRetries) {
+        Preconditions.checkArgument(lockTimeoutRetries >= 0, "Retries must not be negative");
+        this.lockTimeoutRetries = lockTimeoutRetries;
+    }
+
+    /**
+     * @param lockTimeoutBackoff delay before the first retry after a lock timeout (default 1 second), doubled for every
+     *                           further retry up to a minute, half of it randomized
+     */
+    public void setLockTimeoutBackoff(Duration lockTimeoutBackoff) {
+        Preconditions.checkNotNull(lockTimeoutBackoff, "lockTimeoutBackoff is null!");
+        this.lockTimeoutBackoff = lockTimeoutBackoff;
+    }
+
+    /**
+     * @return number of script statements retried after a lock timeout by this initializer
+     */
+    public long getStatementRetries() {
+        return statementRetries.get();
+    }
+
+    private void runUpdateExisting(UpgradeControl control) throws SQLException, IOException {
+        checkUpgradeHistory();
+        withSchemaLock(control, () -> doUpdateExisting(control));
+    }
+
+    private void runInitializeOrUpdate(UpgradeControl control) throws SQLException, IOException {
+        checkUpgradeHistory();
+        withSchemaLock(control, () -> doInitializeOrUpdate(control));
+    }
+
+    private void doUpdateExisting(UpgradeControl control) throws SQLException, IOException {
+        try (Connection connection = dataSource.getConnection()) {
+            updateExisting(connection, control);
+        }
+    }
+
+    private void doInitializeOrUpdate(UpgradeControl control) throws SQLException, IOException {
+        try (Connection connection = dataSource.getConnection()) {
+            Integer version = queryVersion(connection);
+            if (version != null && version == calculateLatestVersion()) {
+                log.info("Update not needed, version already at {}", version);
+                control.started(version, version);
+                return;
+            }
+
+            if (version == null) {
+                connection.setAutoCommit(false);
+                version = getVersion(connection);
+                connection.rollback();
+            }
+            if (version == null) {
+                initializeEmpty(connection, control);
+            } else if (version >= 0) {
+                updateExisting(connection, control);
+            } else {
+                throw new DatabaseUpgradeException("Database schema version is [" + version + "]. This state is undefined. Manual upgrade necessary!");
+            }
+        }
+    }
+
+    private void initializeEmpty(Connection connection, UpgradeControl control) throws SQLException, IOException {
+        connection.setAutoCommit(false);
+        Integer version = readVersion(connection);
+        if (version != null) {
+            throw new SchemaNotEmptyException("Schema not empty, initialization aborted!");
+        }
+        int latestVersion = calculateLatestVersion();
+        if (upgradeHistoryEnabled) {
+            upgradeHistory.create(connection);
+        }
+
+        log.info("Initializing database schema from scratch to version {}", latestVersion);
+        control.started(0, latestVersion);
+        withVersionEvents(latestVersion, () -> {
+            createLatestVersionSchema(connection);
+            executeAdditionalScript(connection);
+        });
+        int newVersion = getVersion(connection);
+        connection.commit();
+        control.versionCompleted(newVersion);
+
+        log.info("Update complete, version set to {}", newVersion);
+    }
+
+    private void updateExisting(Connection connection, UpgradeControl control) throws SQLException, IOException {
+        LockTimeoutPolicy lockTimeoutPolicy = createLockTimeoutPolicy();
+        long retries = statementRetries.get();
+        LockTimeoutPolicy.Session session = lockTimeoutPolicy == null ? null : lockTimeoutPolicy.apply(connection);
+        try {
+            try {
+                updateVersions(connection, control);
+            } finally {
+                if (session != null) {
+                    session.close();
+                }
+            }
+        } finally {
+            retries = statementRetries.get() - retries;
+            if (retries > 0L) {
+                log.info("Retried {} upgrade statements after lock timeouts", retries);
+            }
+        }
+    }
+
+    private void updateVersions(Connection connection, UpgradeControl control) throws SQLException, IOException {
         try {
             connection.setAutoCommit(false);
-            Integer initialVersion = getVersion(connection);
+            Integer initialVersion = readVersion(connection);
             if (initialVersion == null) {
                 throw new DatabaseUpgradeException("Schema is uninitialized, upgrade aborted!");
             }
 
             int newVersion = initialVersion;
-            while (updateToVersion(connection, newVersion + 1)) {
-                newVersion++;
+            control.started(initialVersion, calculateLatestVersion());
+            UpgradeProgress upgradeProgress = openUpgradeProgress(connection);
+            int completedStatements = upgradeProgress.read(connection, newVersion + 1);
+            UpgradeBaseline baseline = completedStatements < 0 ? getBaseline(newVersion) : null;
+            if (baseline != null) {
+                completedStatements = upgradeProgress.read(connection, baseline.getVersion());
+            }
+            if (upgradeHistoryEnabled) {
+                upgradeHistory.create(connection);
+            }
+            while (baseline != null
+                    ? updateToBaseline(connection, upgradeProgress, baseline, completedStatements, control)
+                    : updateToVersion(connection, upgradeProgress, newVersion + 1, completedStatements, control)) {
+                newVersion = baseline != null ? baseline.getVersion() : newVersion + 1;
+                completedStatements = -1;
+                if (checkpointMode) {
+                    connection.commit();
+                }
+                control.versionCompleted(newVersion);
+                baseline = getBaseline(newVersion);
             }
 
             if (newVersion > initialVersion) {
@@ -121,37 +605,104 @@ public class SchemaInitializerImpl implements SchemaInitializer {
                 log.info("Update not needed, version already at {}", newVersion);
             }
             connection.commit();
-        } catch (SQLException | IOException | DatabaseUpgradeException e) {
-            connection.rollback();
+        } catch (Throwable e) {
+            // also for runtime exceptions of Java upgrades, before the lock timeout session is reset
+            try {
+                connection.rollback();
+            } catch (SQLException rollbackFailure) {
+                e.addSuppressed(rollbackFailure);
+            }
             throw e;
-        } finally {
-            connection.close();
         }
     }
 
     /**
-     * initialize/update schema to latest version, however is needed.
-     *
-     * @throws SQLException
-     * @throws IOException
+     * @return progress of an upgrade on the connection, with a single catalog check for its table
      */
-    @Override
-    public void initializeOrUpdate() throws SQLException, IOException {
-        Integer version;
-        try (Connection connection = dataSource.getConnection()) {
-            connection.setAutoCommit(false);
-            version = getVersion(connection);
-            connection.rollback();
+    private UpgradeProgress openUpgradeProgress(Connection connection) throws SQLException {
+        return new UpgradeProgress(upgradeProgressTableName, tableExists(connection, upgradeProgressTableName));
+    }
+
+    private LockTimeoutPolicy createLockTimeoutPolicy() {
+        if (lockTimeout == null && statementTimeout == null) {
+            return null;
         }
-        if (version == null) {
-            initializeEmpty();
-        } else if (version >= 0) {
-            updateExisting();
-        } else {
-            throw new DatabaseUpgradeException("Database schema version is [" + version + "]. This state is undefined. Manual upgrade necessary!");
+        return new LockTimeoutPolicy(scriptDialect, lockTimeout, statementTimeout, lockTimeoutRetries, lockTimeoutBackoff, events, statementRetries);
+    }
+
+    private void withSchemaLock(UpgradeControl control, SchemaAction action) throws SQLException, IOException {
+        if (schemaLock == null) {
+            action.run();
+            return;
+        }
+
+        int latestVersion = calculateLatestVersion();
+        if (isVersionCurrent(latestVersion)) {
+            log.info("Update not needed, version already at {}", latestVersion);
+            control.started(latestVersion, latestVersion);
+            return;
+        }
+
+        try (Connection lockConnection = dataSource.getConnection()) {
+            lockConnection.setAutoCommit(true);
+            String lockName = getSchemaLockName(lockConnection);
+            long start = System.nanoTime();
+            boolean acquired = acquireSchemaLock(lockConnection, lockName, latestVersion, control);
+            events.lockWaited(lockName, System.nanoTime() - start, acquired);
+            if (acquired) {
+                try {
+                    action.run();
+                } finally {
+                    schemaLock.release(lockConnection, lockName);
+                    log.info("Released schema lock {}", lockName);
+                }
+            } else {
+                log.info("Schema updated by another node, version already at {}", latestVersion);
+                control.started(latestVersion, latestVersion);
+            }
+        }
+    }
+
+    private boolean acquireSchemaLock(Connection lockConnection, String lockName, int latestVersion, UpgradeControl control) throws SQLException {
+        Instant deadline = Instant.now().plus(schemaLockTimeout);
+        while (true) {
+            if (control.isCancelled()) {
+                try (Connection connection = dataSource.getConnection()) {
+                    Integer version = queryVersion(connection);
+                    throw version == null ? new UpgradeCancelledException() : new UpgradeCancelledException(version);
+                }
+            }
+            Duration remaining = Duration.between(Instant.now(), deadline);
+            if (remaining.isNegative()) {
+                throw new DatabaseUpgradeException("Timed out after " + schemaLockTimeout + " waiting for schema lock " + lockName);
+            }
+            if (schemaLock.tryAcquire(lockConnection, lockName, remaining.compareTo(LOCK_WAIT_SLICE) < 0 ? remaining : LOCK_WAIT_SLICE)) {
+                log.info("Acquired schema lock {}", lockName);
+                if (isVersionCurrent(latestVersion)) {
+                    schemaLock.release(lockConnection, lockName);
+                    return false;
+                }
+                return true;
+            }
+            if (isVersionCurrent(latestVersion)) {
+                return false;
+            }
+            log.info("Waiting for schema lock {} held by another node", lockName);
+        }
+    }
+
+    private boolean isVersionCurrent(int latestVersion) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            Integer version = queryVersion(connection);
+            return version != null && version == latestVersion;
         }
     }
 
+    private String getSchemaLockName(Connection connection) throws SQLException {
+        String schema = connection.getSchema() == null ? connection.getCatalog() : connection.getSchema();
+        return schema == null ? schemaVersionTableName : schema + '.' + schemaVersionTableName;
+    }
+
     protected DataSource getDataSource() {
         return dataSource;
     }
@@ -168,74 +719,440 @@ public class SchemaInitializerImpl implements SchemaInitializer {
         return schemaVersionTableName;
     }
 
+    /**
+     * Upgrade steps are loaded once per class loader and dialect from the build time manifest or by probing the
+     * classpath, so the latest version is known without any I/O after the first initializer has been used.
+     *
+     * @return upgrade steps of the dialect
+     * @throws IOException on read errors
+     */
+    protected UpgradeManifest getUpgradeManifest() throws IOException {
+        if (upgradeManifest == null) {
+            try {
+                upgradeManifest = UPGRADE_MANIFESTS.get(getClass().getClassLoader(), ConcurrentHashMap::new)
+                        .computeIfAbsent(dialectScriptsDirectory, this::loadUpgradeManifest);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+        return upgradeManifest;
+    }
 
-    private boolean updateToVersion(Connection connection, int version) throws IOException, SQLException {
-        try (InputStream inputStream = getClass().getResourceAsStream(dialectScriptsDirectory + '/' + version + ".sql")) {
-            if (inputStream == null) {
-                return false;
-            } else {
-                log.info("Updating schema to version {}", version);
+    private UpgradeManifest loadUpgradeManifest(String scriptsDirectory) {
+        try {
+            UpgradeManifest manifest = UpgradeManifest.load(scriptsDirectory, this::getResourceAsStream);
+            log.info("Loaded {} upgrade steps for {}{}", manifest.getLatestVersion(), scriptsDirectory, manifest.isGenerated() ? " from manifest" : "");
+            return manifest;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 
-                executeJavaUpgrade(connection, version);
-                executeScript(connection, inputStream);
+    protected InputStream getResourceAsStream(String resource) {
+        return getClass().getResourceAsStream(resource);
+    }
 
-                setSchemaVersion(connection, version);
 
-                log.info("Successfully updated schema to version {}", version);
+    private boolean updateToVersion(
+            Connection connection,
+            UpgradeProgress upgradeProgress,
+            int version,
+            int completedStatements,
+            UpgradeControl control) throws IOException, SQLException {
+        UpgradeStep step = getUpgradeManifest().getStep(version);
+        if (step == null) {
+            return false;
+        }
+        stopIfCancelled(connection, control, version - 1);
+        return withVersionEvents(version, () -> applyVersion(connection, upgradeProgress, step, version, completedStatements));
+    }
 
-                return true;
+    private void applyVersion(
+            Connection connection,
+            UpgradeProgress upgradeProgress,
+            UpgradeStep step,
+            int version,
+            int completedStatements) throws IOException, SQLException {
+        Instant startedAt = Instant.now();
+        long start = System.nanoTime();
+        boolean trackStatements = checkpointMode && !scriptDialect.isTransactionalDdl();
+        if (completedStatements < 0) {
+            log.info("Updating schema to version {}", version);
+            executeJavaUpgrade(connection, step, version);
+            if (trackStatements) {
+                upgradeProgress.save(connection, version, 0);
+            }
+        } else {
+            log.info("Resuming update of schema to version {} after {} completed statements", version, completedStatements);
+        }
+
+        int statements = executeUpgradeScript(connection, upgradeProgress, version, step.getScriptResource(), step.getChecksum(), completedStatements, trackStatements);
+
+        setSchemaVersion(connection, version);
+        recordHistory(connection, version, version - 1, step.getScriptResource(), step.getChecksum(), step.getUpgradeClassName(), startedAt, start, statements);
+        upgradeProgress.clear(connection);
+
+        log.info("Successfully updated schema to version {}", version);
+    }
+
+    private boolean updateToBaseline(
+            Connection connection,
+            UpgradeProgress upgradeProgress,
+            UpgradeBaseline baseline,
+            int completedStatements,
+            UpgradeControl control) throws IOException, SQLException {
+        stopIfCancelled(connection, control, baseline.getFromVersion());
+        return withVersionEvents(baseline.getVersion(), () -> applyBaseline(connection, upgradeProgress, baseline, completedStatements));
+    }
+
+    private void applyBaseline(
+            Connection connection,
+            UpgradeProgress upgradeProgress,
+            UpgradeBaseline baseline,
+            int completedStatements) throws IOException, SQLException {
+        int version = baseline.getVersion();
+        Instant startedAt = Instant.now();
+        long start = System.nanoTime();
+        boolean trackStatements = checkpointMode && !scriptDialect.isTransactionalDdl();
+        if (completedStatements < 0) {
+            log.info("Updating schema from version {} to version {} with baseline {}", baseline.getFromVersion(), version, baseline.getScriptResource());
+            if (trackStatements) {
+                upgradeProgress.save(connection, version, 0);
             }
+        } else {
+            log.info("Resuming update of schema to baseline version {} after {} completed statements", version, completedStatements);
+        }
+
+        int statements = executeUpgradeScript(connection, upgradeProgress, version, baseline.getScriptResource(), baseline.getChecksum(), completedStatements, trackStatements);
+
+        setSchemaVersion(connection, version);
+        recordHistory(connection, version, baseline.getFromVersion(), baseline.getScriptResource(), baseline.getChecksum(), null, startedAt, start, statements);
+        upgradeProgress.clear(connection);
+
+        log.info("Successfully updated schema to baseline version {}", version);
+    }
+
+    /**
+     * Commits the versions upgraded so far and stops a cancelled upgrade.
+     */
+    private static void stopIfCancelled(Connection connection, UpgradeControl control, int version) throws SQLException {
+        if (control.isCancelled()) {
+            connection.commit();
+            throw new UpgradeCancelledException(version);
         }
     }
 
+    private boolean withVersionEvents(int version, SchemaAction action) throws SQLException, IOException {
+        events.versionStarted(version);
+        long start = System.nanoTime();
+        try {
+            action.run();
+        } catch (SQLException | IOException | RuntimeException e) {
+            events.versionFailed(version, System.nanoTime() - start, e);
+            throw e;
+        }
+        events.versionCompleted(version, System.nanoTime() - start);
+        return true;
+    }
+
+    private void recordHistory(
+            Connection connection,
+            int version,
+            int fromVersion,
+            String scriptResource,
+            String checksum,
+            String upgradeClassName,
+            Instant startedAt,
+            long start,
+            int statements) throws SQLException, IOException {
+        if (upgradeHistoryEnabled) {
+            upgradeHistory.insert(connection, new UpgradeHistoryEntry(
+                    version,
+                    fromVersion,
+                    scriptResource,
+                    checksum == null ? computeChecksum(scriptResource) : checksum,
+                    upgradeClassName,
+                    startedAt,
+                    Duration.ofNanos(System.nanoTime() - start),
+                    statements,
+                    nodeId));
+        }
+    }
+
+    private void checkUpgradeHistory() throws SQLException, IOException {
+        if (upgradeHistoryEnabled) {
+            for (String mismatch : verifyChecksums()) {
+                log.warn("Applied upgrade script does not match the packaged script: {}", mismatch);
+            }
+        }
+    }
+
+    /**
+     * @return checksum of the packaged script of an applied upgrade, an empty string if the script is missing or
+     * {@code null} if the entry is not an upgrade script or baseline of the current upgrade manifest
+     */
+    private String getPackagedChecksum(UpgradeHistoryEntry entry) throws IOException {
+        UpgradeManifest manifest = getUpgradeManifest();
+        String checksum;
+        if (entry.isUpgradeStep()) {
+            UpgradeStep step = manifest.getStep(entry.getVersion());
+            if (step == null) {
+                return "";
+            }
+            if (!step.getScriptResource().equals(entry.getScriptResource())) {
+                return null;
+            }
+            checksum = step.getChecksum();
+        } else {
+            UpgradeBaseline baseline = manifest.getBaselines().stream()
+                    .filter(b -> b.getScriptResource().equals(entry.getScriptResource()))
+                    .findFirst()
+                    .orElse(null);
+            if (baseline == null) {
+                return null;
+            }
+            checksum = baseline.getChecksum();
+        }
+        if (checksum == null) {
+            checksum = computeChecksum(entry.getScriptResource());
+        }
+        return checksum == null ? "" : checksum;
+    }
+
+    private String computeChecksum(String scriptResource) throws IOException {
+        try (InputStream inputStream = getResourceAsStream(scriptResource)) {
+            return inputStream == null ? null : UpgradeManifest.checksum(inputStream);
+        }
+    }
+
+    private UpgradeBaseline getBaseline(int version) throws IOException {
+        return baselinesEnabled ? getUpgradeManifest().getBaseline(version) : null;
+    }
+
+    private int executeUpgradeScript(
+            Connection connection,
+            UpgradeProgress upgradeProgress,
+            int version,
+            String scriptResource,
+            String checksum,
+            int completedStatements,
+            boolean trackStatements) throws IOException, SQLException {
+        ScriptExecutor.Progress progress = statements -> upgradeProgress.save(connection, version, statements);
+        if (scriptCache != null) {
+            return executeStatements(
+                    connection,
+                    readUpgradeScript(scriptResource, checksum),
+                    version,
+                    scriptResource,
+                    Math.max(completedStatements, 0),
+                    progress,
+                    trackStatements,
+                    createLockTimeoutPolicy());
+        } else {
+            try (InputStream inputStream = openUpgradeScript(scriptResource)) {
+                return executeScript(
+                        connection,
+                        inputStream,
+                        version,
+                        scriptResource,
+                        Math.max(completedStatements, 0),
+                        progress,
+                        trackStatements,
+                        createLockTimeoutPolicy());
+            }
+        }
+    }
+
+    private List<SqlStatement> readUpgradeScript(String scriptResource, String checksum) throws IOException {
+        if (scriptCache != null) {
+            List<SqlStatement> statements = scriptCache.load(scriptResource, checksum, scriptDialect, this::getResourceAsStream);
+            if (statements == null) {
+                throw new DatabaseUpgradeException("Upgrade script " + scriptResource + " not found!");
+            }
+            return statements;
+        }
+        List<SqlStatement> statements = new ArrayList<>();
+        try (SqlScriptReader scriptReader = new SqlScriptReader(new InputStreamReader(openUpgradeScript(scriptResource), StandardCharsets.UTF_8), scriptDialect)) {
+            SqlStatement statement;
+            while ((statement = scriptReader.readStatement()) != null) {
+                statements.add(statement);
+            }
+        }
+        return statements;
+    }
+
+    private InputStream openUpgradeScript(String scriptResource) {
+        InputStream inputStream = getResourceAsStream(scriptResource);
+        if (inputStream == null) {
+            throw new DatabaseUpgradeException("Upgrade script " + scriptResource + " not found!");
+        }
+        return inputStream;
+    }
+
     private int createLatestVersionSchema(Connection connection) throws SQLException, IOException {
         int latestVersion = calculateLatestVersion();
+        Instant startedAt = Instant.now();
+        long start = System.nanoTime();
+        int statementCount;
 
-        executeScript(connection, getClass().getResourceAsStream(entireSchemaResource));
+        if (scriptCache != null) {
+            List<SqlStatement> statements = scriptCache.load(entireSchemaResource, null, scriptDialect, this::getResourceAsStream);
+            Preconditions.checkNotNull(statements, "Unable to find schema script " + entireSchemaResource);
+            statementCount = executeSchemaScript(connection, statements, latestVersion);
+        } else {
+            try (InputStream inputStream = getResourceAsStream(entireSchemaResource)) {
+                Preconditions.checkNotNull(inputStream, "Unable to find schema script " + entireSchemaResource);
+                if (initializationParallelism > 1) {
+                    List<SqlStatement> statements = SqlScriptReader.readAll(
+                            new String(inputStream.readAllBytes(), StandardCharsets.UTF_8),
+                            scriptDialect);
+                    statementCount = executeSchemaScript(connection, statements, latestVersion);
+                } else {
+                    statementCount = executeScript(connection, inputStream, latestVersion, entireSchemaResource);
+                }
+            }
+        }
 
         createEmptySchemaVersionTable(connection);
         setSchemaVersion(connection, latestVersion);
+        recordHistory(connection, latestVersion, -1, entireSchemaResource, null, null, startedAt, start, statementCount);
 
         return getVersion(connection);
     }
 
-    private void executeJavaUpgrade(Connection connection, int version) {
-        if (!executeJavaUpgrade(connection, version, DB_UPGRADES_PACKAGE)) {
-            executeJavaUpgrade(connection, version, DEPRECATED_DB_UPGRADES_PACKAGE);
+    private int executeSchemaScript(Connection connection, List<SqlStatement> statements, int latestVersion) throws SQLException, IOException {
+        if (initializationParallelism > 1) {
+            connection.commit();
+            log.info("Executing {} schema statements over {} connections", statements.size(), initializationParallelism);
+            new ParallelScriptExecutor(dataSource, initializationParallelism, events, latestVersion, entireSchemaResource).execute(statements);
+            return statements.size();
         }
+        return executeStatements(connection, statements, latestVersion, entireSchemaResource, 0, null, false, null);
     }
 
-    private Boolean executeJavaUpgrade(Connection connection, int version, String classPackage) {
+    private void executeJavaUpgrade(Connection connection, UpgradeStep step, int version) {
+        if (step.getUpgradeClassName() == null) {
+            return;
+        }
         try {
-            Class<?> upgradeClass = Class.forName(classPackage + "UpgradeTo" + version);
-            DbUpgrade dbUpgrade = (DbUpgrade) upgradeClass.getConstructor().newInstance();
-            dbUpgrade.upgrade(connection, dialect);
-            return true;
-        } catch (ClassNotFoundException ignored) {
-            return false;
-        } catch (InstantiationException | IllegalAccessException | InvocationTargetException | NoSuchMethodException e) {
+            Class<?> upgradeClass = Class.forName(step.getUpgradeClassName());
+            Object upgrade = upgradeClass.getConstructor().newInstance();
+            long start = System.nanoTime();
+            if (upgrade instanceof ContextualDbUpgrade) {
+                // a checkpoint commits half of a version, which only checkpoint mode can resume
+                UpgradeContext.Checkpoint checkpoint = checkpointMode
+                        ? () -> {
+                            setSchemaVersion(connection, version - 1);
+                            connection.commit();
+                        }
+                        : null;
+                ((ContextualDbUpgrade)upgrade).upgrade(
+                        new UpgradeContext(connection, dataSource, dialect, scriptDialect, version, schemaVersionTableName, checkpoint));
+            } else if (upgrade instanceof DbUpgrade) {
+                ((DbUpgrade)upgrade).upgrade(connection, dialect);
+            } else {
+                throw new DatabaseUpgradeException(
+                        step.getUpgradeClassName() + " implements neither " + DbUpgrade.class.getName() + " nor " + ContextualDbUpgrade.class.getName());
+            }
+            events.javaUpgradeExecuted(version, step.getUpgradeClassName(), System.nanoTime() - start);
+        } catch (ClassNotFoundException | InstantiationException | IllegalAccessException | InvocationTargetException | NoSuchMethodException e) {
             throw new DatabaseUpgradeException(e);
         }
     }
 
-    private void executeScript(Connection connection, InputStream scriptStream) throws SQLException, IOException {
-        try (Statement statement = connection.createStatement()) {
-            String scriptContents = IOUtils.toString(scriptStream, StandardCharsets.UTF_8);
-            for (String script : getValidScriptParts(scriptContents)) {
-                log.debug("Executing upgrade script {}", script);
-                if (dialectScriptsDirectory.endsWith("ora") && StringUtils.endsWithIgnoreCase(script, "END")) {
-                    statement.execute(script + ';');
-                } else {
-                    statement.execute(script);
+    private int executeScript(Connection connection, InputStream scriptStream, int version, String scriptResource) throws SQLException, IOException {
+        return executeScript(connection, scriptStream, version, scriptResource, 0, null, false, null);
+    }
+
+    private int executeScript(
+            Connection connection,
+            InputStream scriptStream,
+            int version,
+            String scriptResource,
+            int skipStatements,
+            ScriptExecutor.Progress progress,
+            boolean everyStatement,
+            LockTimeoutPolicy lockTimeoutPolicy) throws SQLException, IOException {
+        try (SqlScriptReader scriptReader = new SqlScriptReader(new InputStreamReader(scriptStream, StandardCharsets.UTF_8), scriptDialect)) {
+            return new ScriptExecutor(scriptDialect, batchSize, events, version, scriptResource, lockTimeoutPolicy).execute(
+                    connection,
+                    scriptReader::readStatement,
+                    skipStatements,
+                    progress,
+                    everyStatement);
+        }
+    }
+
+    private int executeStatements(
+            Connection connection,
+            List<SqlStatement> statements,
+            int version,
+            String scriptResource,
+            int skipStatements,
+            ScriptExecutor.Progress progress,
+            boolean everyStatement,
+            LockTimeoutPolicy lockTimeoutPolicy) throws SQLException, IOException {
+        return new ScriptExecutor(scriptDialect, batchSize, events, version, scriptResource, lockTimeoutPolicy).execute(
+                connection,
+                ScriptExecutor.StatementSource.of(statements),
+                skipStatements,
+                progress,
+                everyStatement);
+    }
+
+    private void executeAdditionalScript(Connection connection) throws SQLException, IOException {
+        loadSeedData(connection);
+        String scriptResource = dialectAdditionalDirectory + "/add.sql";
+        if (scriptCache != null) {
+            List<SqlStatement> statements = scriptCache.load(scriptResource, null, scriptDialect, this::getResourceAsStream);
+            if (statements != null) {
+                executeStatements(connection, statements, calculateLatestVersion(), scriptResource, 0, null, false, null);
+            }
+        } else {
+            try (InputStream inputStream = getResourceAsStream(scriptResource)) {
+                if (inputStream != null) {
+                    executeScript(connection, inputStream, calculateLatestVersion(), scriptResource);
                 }
             }
         }
     }
 
-    private void executeAdditionalScript(Connection connection) throws SQLException, IOException {
-        try (InputStream inputStream = getClass().getResourceAsStream(dialectAdditionalDirectory + "/add.sql")) {
-            if (inputStream != null) {
-                executeScript(connection, inputStream);
+    /**
+     * Loads the tables listed in {@code data.txt} of the dialect additional directory, or of {@code /schema/additional}
+     * when the dialect has none, from {@code {table}.csv} or {@code {table}.csv.gz} files in the same directory.
+     */
+    private void loadSeedData(Connection connection) throws SQLException, IOException {
+        String directory = dialectAdditionalDirectory;
+        InputStream tableList = getResourceAsStream(directory + "/data.txt");
+        if (tableList == null) {
+            directory = ADDITIONAL_DIRECTORY;
+            tableList = getResourceAsStream(directory + "/data.txt");
+        }
+        if (tableList == null) {
+            return;
+        }
+        List<String> tables;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(tableList, StandardCharsets.UTF_8))) {
+            tables = reader.lines()
+                    .map(String::trim)
+                    .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                    .collect(Collectors.toList());
+        }
+
+        SeedDataLoader loader = new SeedDataLoader(scriptDialect);
+        for (String table : tables) {
+            InputStream inputStream = getResourceAsStream(directory + '/' + table + ".csv");
+            if (inputStream == null) {
+                InputStream compressed = getResourceAsStream(directory + '/' + table + ".csv.gz");
+                if (compressed == null) {
+                    throw new DatabaseUpgradeException("Data file " + directory + '/' + table + ".csv not found!");
+                }
+                inputStream = new GZIPInputStream(compressed);
+            }
+            try (Reader reader = new InputStreamReader(inputStream, StandardCharsets.UTF_8)) {
+                loader.load(connection, table, reader);
             }
         }
     }
@@ -277,32 +1194,50 @@ public class SchemaInitializerImpl implements SchemaInitializer {
         }
     }
 
-    private int calculateLatestVersion() throws IOException {
-        int i = 0;
-        while (true) {
-            try (InputStream stream = getClass().getResourceAsStream(dialectScriptsDirectory + '/' + ++i + ".sql")) {
-                if (stream == null) {
-                    break;
-                }
+    /**
+     * Reads the version with a single query, without checking the catalog for the version table first. Must be called
+     * at the start of a transaction, since a failed query is rolled back.
+     *
+     * @param connection connection
+     * @return schema version or {@code null} if it could not be read, e.g. because the version table does not exist
+     * @throws SQLException if a failed query can not be rolled back
+     */
+    protected Integer queryVersion(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT version FROM " + schemaVersionTableName)) {
+            return rs.next() ? rs.getInt(1) : 0;
+        } catch (SQLException e) {
+            log.debug("Unable to query schema version: {}", e.getMessage());
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
             }
+            return null;
         }
-        return i - 1;
+    }
+
+    private Integer readVersion(Connection connection) throws SQLException {
+        Integer version = queryVersion(connection);
+        return version == null ? getVersion(connection) : version;
+    }
+
+    private int calculateLatestVersion() throws IOException {
+        return getUpgradeManifest().getLatestVersion();
     }
 
     protected boolean tableExists(Connection connection, String tableName) throws SQLException {
         DatabaseMetaData metaData = connection.getMetaData();
         String databaseName = connection.getCatalog() != null && connection.getCatalog().isBlank() ? null : connection.getCatalog();
         boolean exists;
-        try (ResultSet tableExists = metaData.getTables(databaseName, dialectScriptsDirectory.endsWith("ora") ? connection.getSchema() : null, tableName, null)) {
+        try (ResultSet tableExists = metaData.getTables(databaseName, scriptDialect == ScriptDialect.ORA ? connection.getSchema() : null, tableName, null)) {
             exists = tableExists.next();
         }
         if (!exists) {
-            try (ResultSet tableExists = metaData.getTables(databaseName, dialectScriptsDirectory.endsWith("ora") ? connection.getSchema() : null, tableName.toLowerCase(), null)) {
+            try (ResultSet tableExists = metaData.getTables(databaseName, scriptDialect == ScriptDialect.ORA ? connection.getSchema() : null, tableName.toLowerCase(), null)) {
                 exists = tableExists.next();
             }
         }
         if (!exists) {
-            try (ResultSet tableExists = metaData.getTables(databaseName, dialectScriptsDirectory.endsWith("ora") ? connection.getSchema() : null, tableName.toUpperCase(), null)) {
+            try (ResultSet tableExists = metaData.getTables(databaseName, scriptDialect == ScriptDialect.ORA ? connection.getSchema() : null, tableName.toUpperCase(), null)) {
                 exists = tableExists.next();
             }
         }
@@ -310,10 +1245,13 @@ public class SchemaInitializerImpl implements SchemaInitializer {
     }
 
     private void validateVersionUpgradeFileExists(int initialVersion) throws IOException {
-        try (InputStream stream = getClass().getResourceAsStream(dialectScriptsDirectory + '/' + initialVersion + ".sql")) {
-            if (stream == null) {
-                throw new VersionMismatchException(initialVersion);
-            }
+        if (getUpgradeManifest().getStep(initialVersion) == null) {
+            throw new VersionMismatchException(initialVersion);
         }
     }
+
+    @FunctionalInterface
+    private interface SchemaAction {
+        void run() throws SQLException, IOException;
+    }
 }
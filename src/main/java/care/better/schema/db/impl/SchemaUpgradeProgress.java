@@ -0,0 +1,75 @@
+package care.better.schema.db.impl;
+
+/**
+ * Snapshot of the progress of an {@link AsyncSchemaUpgrade}.
+ */
+public final class SchemaUpgradeProgress {
+    private final State state;
+    private final int startVersion;
+    private final int currentVersion;
+    private final int targetVersion;
+
+    SchemaUpgradeProgress(State state, int startVersion, int currentVersion, int targetVersion) {
+        this.state = state;
+        this.startVersion = startVersion;
+        this.currentVersion = currentVersion;
+        this.targetVersion = targetVersion;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * @return schema version before the upgrade, 0 for a new schema
+     */
+    public int getStartVersion() {
+        return startVersion;
+    }
+
+    /**
+     * @return latest upgraded schema version
+     */
+    public int getCurrentVersion() {
+        return currentVersion;
+    }
+
+    /**
+     * @return latest schema version of the application
+     */
+    public int getTargetVersion() {
+        return targetVersion;
+    }
+
+    /**
+     * @return share of the upgraded versions, from 0 to 100; a new schema is created in a single step
+     */
+    public double getPercentDone() {
+        if (state == State.COMPLETED) {
+            return 100.0;
+        }
+        if (targetVersion <= startVersion) {
+            return 0.0;
+        }
+        return Math.max(0, currentVersion - startVersion) * 100.0 / (targetVersion - startVersion);
+    }
+
+    @Override
+    public String toString() {
+        return "SchemaUpgradeProgress{" + state + ", version " + currentVersion + " of " + targetVersion + String.format(" (%.1f%%)", getPercentDone()) + '}';
+    }
+
+    public enum State {
+        /**
+         * waiting for a thread of the executor or for the schema lock
+         */
+        PENDING,
+        RUNNING,
+        COMPLETED,
+        FAILED,
+        /**
+         * stopped between versions, see {@link AsyncSchemaUpgrade#cancel()}
+         */
+        CANCELLED
+    }
+}
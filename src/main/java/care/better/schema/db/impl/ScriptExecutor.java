@@ -0,0 +1,256 @@
+package care.better.schema.db.impl;
+
+import care.better.schema.db.script.ScriptDialect;
+import care.better.schema.db.script.SqlScriptReader;
+import care.better.schema.db.script.SqlStatement;
+import com.google.common.collect.ImmutableSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Executes statements of a script, optionally grouping consecutive batchable statements into JDBC batches.
+ * Non-transactional statements are executed with auto-commit enabled after the work done so far has been committed
+ * together with the progress, so an interrupted upgrade resumes with the first statement that did not complete.
+ */
+final class ScriptExecutor {
+    private static final Logger log = LoggerFactory.getLogger(ScriptExecutor.class);
+
+    private static final Set<String> DML_COMMANDS = ImmutableSet.of("INSERT", "UPDATE", "DELETE", "MERGE");
+    private static final Set<String> DDL_COMMANDS = ImmutableSet.of("CREATE", "ALTER", "DROP", "COMMENT", "GRANT", "REVOKE", "TRUNCATE", "RENAME");
+
+    private final ScriptDialect scriptDialect;
+    private final int batchSize;
+    private final OnlineStatementExecutor onlineStatementExecutor;
+    private final UpgradeEvents events;
+    private final int version;
+    private final String scriptResource;
+    private final LockTimeoutPolicy lockTimeoutPolicy;
+
+    ScriptExecutor(ScriptDialect scriptDialect, int batchSize) {
+        this(scriptDialect, batchSize, null, 0, null, null);
+    }
+
+    /**
+     * @param events            listeners notified of parse and statement timings, {@code null} or without listeners
+     *                          to skip timing
+     * @param version           schema version of the script
+     * @param scriptResource    script resource
+     * @param lockTimeoutPolicy statement timeout and retries of statements that time out waiting for a lock,
+     *                          {@code null} to execute every statement once without a timeout
+     */
+    ScriptExecutor(ScriptDialect scriptDialect, int batchSize, UpgradeEvents events, int version, String scriptResource, LockTimeoutPolicy lockTimeoutPolicy) {
+        this.scriptDialect = scriptDialect;
+        this.batchSize = batchSize;
+        this.events = events != null && events.isEnabled() ? events : null;
+        this.version = version;
+        this.scriptResource = scriptResource;
+        this.lockTimeoutPolicy = lockTimeoutPolicy;
+        onlineStatementExecutor = new OnlineStatementExecutor(scriptDialect);
+    }
+
+    /**
+     * @param connection     connection
+     * @param statements     script statements
+     * @param skipStatements number of leading statements already executed by a previous, interrupted run
+     * @param progress       commits the transaction together with the number of completed statements, may be
+     *                       {@code null}
+     * @param everyStatement true to notify progress after every statement or batch, false to notify it only around
+     *                       non-transactional statements
+     * @return number of statements of the script, including the skipped ones
+     */
+    int execute(Connection connection, StatementSource statements, int skipStatements, Progress progress, boolean everyStatement)
+            throws SQLException, IOException {
+        Progress statementProgress = everyStatement ? progress : null;
+        try (Statement statement = connection.createStatement()) {
+            if (lockTimeoutPolicy != null) {
+                lockTimeoutPolicy.configure(statement);
+            }
+            boolean transactional = !connection.getAutoCommit();
+            List<SqlStatement> batch = new ArrayList<>();
+            int executed = 0;
+            long parseNanos = 0L;
+            SqlStatement script;
+            while (true) {
+                long start = events == null ? 0L : System.nanoTime();
+                script = statements.next();
+                if (events != null) {
+                    parseNanos += System.nanoTime() - start;
+                }
+                if (script == null) {
+                    break;
+                }
+                executed++;
+                if (executed <= skipStatements) {
+                    log.debug("Skipping already executed upgrade script {}", script);
+                } else if (onlineStatementExecutor.isNonTransactional(script)) {
+                    executeBatch(connection, statement, transactional, batch, executed - 1, statementProgress);
+                    commit(connection, executed - 1, progress);
+                    start = events == null ? 0L : System.nanoTime();
+                    executeOnline(connection, script);
+                    if (events != null) {
+                        events.statementExecuted(version, scriptResource, script, System.nanoTime() - start, -1L, 1);
+                    }
+                    commit(connection, executed, progress);
+                } else if (isBatchable(script)) {
+                    log.debug("Adding upgrade script to batch {}", script);
+                    statement.addBatch(script.getSql());
+                    batch.add(script);
+                    if (batch.size() >= batchSize) {
+                        executeBatch(connection, statement, transactional, batch, executed, statementProgress);
+                    }
+                } else {
+                    executeBatch(connection, statement, transactional, batch, executed - 1, statementProgress);
+                    log.debug("Executing upgrade script {}", script);
+                    start = events == null ? 0L : System.nanoTime();
+                    boolean resultSet = execute(connection, statement, transactional, script);
+                    if (events != null) {
+                        events.statementExecuted(version, scriptResource, script, System.nanoTime() - start, resultSet ? -1L : statement.getUpdateCount(), 1);
+                    }
+                    if (statementProgress != null) {
+                        statementProgress.completed(executed);
+                    }
+                }
+            }
+            executeBatch(connection, statement, transactional, batch, executed, statementProgress);
+            if (events != null) {
+                events.scriptParsed(version, scriptResource, executed, Duration.ofNanos(parseNanos));
+            }
+            return executed;
+        }
+    }
+
+    private static void commit(Connection connection, int executed, Progress progress) throws SQLException {
+        if (progress != null) {
+            progress.completed(executed);
+        } else if (!connection.getAutoCommit()) {
+            connection.commit();
+        }
+    }
+
+    private boolean isBatchable(SqlStatement script) {
+        if (batchSize <= 1 || !scriptDialect.isBatching() || script.isBlock()) {
+            return false;
+        }
+        String command = script.getCommand();
+        return DML_COMMANDS.contains(command) || scriptDialect.isDdlBatching() && DDL_COMMANDS.contains(command);
+    }
+
+    private void executeOnline(Connection connection, SqlStatement script) throws SQLException {
+        if (lockTimeoutPolicy == null) {
+            onlineStatementExecutor.execute(connection, script);
+        } else {
+            lockTimeoutPolicy.execute(connection, script, false, version, scriptResource, retry -> {
+                onlineStatementExecutor.execute(connection, script);
+                return null;
+            });
+        }
+    }
+
+    private boolean execute(Connection connection, Statement statement, boolean transactional, SqlStatement script) throws SQLException {
+        if (lockTimeoutPolicy == null) {
+            return statement.execute(script.getSql());
+        }
+        boolean savepoint = transactional && lockTimeoutPolicy.isSavepointRequired();
+        return lockTimeoutPolicy.execute(connection, script, savepoint, version, scriptResource, retry -> statement.execute(script.getSql()));
+    }
+
+    /**
+     * A batch is retried under a savepoint only, since the statements before the one that timed out have already been
+     * executed. Drivers other than PostgreSQL may continue a batch after a failed statement and DDL executed after it
+     * commits the transaction on dialects without transactional DDL (and on H2), so only batches of DML are retried there.
+     */
+    private int[] runBatch(Connection connection, Statement statement, boolean transactional, List<SqlStatement> batch) throws SQLException {
+        if (lockTimeoutPolicy == null
+                || !transactional
+                || scriptDialect != ScriptDialect.PGSQL && !batch.stream().allMatch(script -> DML_COMMANDS.contains(script.getCommand()))) {
+            return statement.executeBatch();
+        }
+        return lockTimeoutPolicy.execute(connection, batch.get(0), true, version, scriptResource, retry -> {
+            if (retry) {
+                statement.clearBatch();
+                for (SqlStatement script : batch) {
+                    statement.addBatch(script.getSql());
+                }
+            }
+            return statement.executeBatch();
+        });
+    }
+
+    private void executeBatch(Connection connection, Statement statement, boolean transactional, List<SqlStatement> batch, int executed, Progress progress)
+            throws SQLException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        log.debug("Executing batch of {} upgrade scripts", batch.size());
+        try {
+            long start = events == null ? 0L : System.nanoTime();
+            int[] updateCounts = runBatch(connection, statement, transactional, batch);
+            if (events != null) {
+                long nanos = System.nanoTime() - start;
+                for (int i = 0; i < batch.size(); i++) {
+                    long rowCount = updateCounts != null && i < updateCounts.length && updateCounts[i] >= 0 ? updateCounts[i] : -1L;
+                    events.statementExecuted(version, scriptResource, batch.get(i), nanos, rowCount, batch.size());
+                }
+            }
+            if (progress != null) {
+                progress.completed(executed);
+            }
+        } catch (BatchUpdateException e) {
+            int failedIndex = getFailedIndex(e.getUpdateCounts(), batch.size());
+            String message = failedIndex < 0
+                    ? "Batch execution failed on statements at lines " + batch.get(0).getLineNumber() + '-' + batch.get(batch.size() - 1).getLineNumber()
+                    : "Batch execution failed on statement at line " + batch.get(failedIndex).getLineNumber() + ": " + batch.get(failedIndex).getSql();
+            throw new SQLException(
+                    message,
+                    e.getSQLState(),
+                    e.getErrorCode(),
+                    e.getNextException() == null ? e : e.getNextException());
+        } finally {
+            statement.clearBatch();
+            batch.clear();
+        }
+    }
+
+    private static int getFailedIndex(int[] updateCounts, int batchSize) {
+        if (updateCounts != null) {
+            for (int i = 0; i < updateCounts.length; i++) {
+                if (updateCounts[i] == Statement.EXECUTE_FAILED) {
+                    return i;
+                }
+            }
+            if (updateCounts.length < batchSize) {
+                return updateCounts.length;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Source of script statements, e.g. {@link SqlScriptReader#readStatement()}.
+     */
+    @FunctionalInterface
+    interface StatementSource {
+        SqlStatement next() throws IOException;
+
+        static StatementSource of(List<SqlStatement> statements) {
+            Iterator<SqlStatement> iterator = statements.iterator();
+            return () -> iterator.hasNext() ? iterator.next() : null;
+        }
+    }
+
+    @FunctionalInterface
+    interface Progress {
+        void completed(int statements) throws SQLException;
+    }
+}
@@ -0,0 +1,247 @@
+package care.better.schema.db.impl;
+
+import care.better.schema.db.exception.DatabaseUpgradeException;
+import care.better.schema.db.script.ScriptDialect;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.reflect.InvocationTargetException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Loads reference data from CSV files (see {@code /schema/additional}) with the fastest path of the dialect:
+ * {@code COPY ... FROM STDIN} through the PostgreSQL JDBC driver's {@code CopyManager}, multi-row {@code VALUES}
+ * inserts on SQL Server and MySQL, and batched prepared inserts elsewhere (which the Oracle driver sends with array
+ * binding).
+ * <p>
+ * The first record of a file holds the column names. Fields are separated with commas and quoted with double quotes,
+ * a quote inside a quoted field is doubled. An unquoted empty field is {@code NULL}, a quoted empty field is an empty
+ * string. Values are converted to the column types by the driver.
+ */
+final class SeedDataLoader {
+    private static final Logger log = LoggerFactory.getLogger(SeedDataLoader.class);
+
+    private static final int BATCH_SIZE = 1000;
+    private static final int MAX_ROWS_PER_INSERT = 1000;
+    private static final int MAX_PARAMETERS = 2000;
+
+    private final ScriptDialect dialect;
+
+    SeedDataLoader(ScriptDialect dialect) {
+        this.dialect = dialect;
+    }
+
+    /**
+     * @param connection connection of the initialization transaction
+     * @param table      target table
+     * @param csv        CSV data with a header record, not closed
+     * @return number of loaded rows
+     * @throws SQLException on database errors
+     * @throws IOException  on read errors
+     */
+    long load(Connection connection, String table, Reader csv) throws SQLException, IOException {
+        BufferedReader reader = new BufferedReader(csv);
+        List<String> columns = readRecord(reader);
+        if (columns == null) {
+            return 0L;
+        }
+        String columnList = String.join(", ", columns);
+
+        long rows;
+        if (dialect == ScriptDialect.PGSQL) {
+            // the header of a CRLF file ends at '\r', its '\n' would otherwise reach COPY as an empty first row
+            reader.mark(1);
+            if (reader.read() != '\n') {
+                reader.reset();
+            }
+            rows = copy(connection, "COPY " + table + " (" + columnList + ") FROM STDIN WITH (FORMAT csv)", reader);
+            if (rows >= 0L) {
+                log.info("Copied {} rows into {}", rows, table);
+                return rows;
+            }
+        }
+
+        int[] types = getColumnTypes(connection, table, columnList, columns.size());
+        if (dialect == ScriptDialect.MSSQL || dialect == ScriptDialect.MYSQL) {
+            rows = insertMultiRow(connection, table, columnList, types, reader);
+        } else {
+            rows = insertBatched(connection, table, columnList, types, reader);
+        }
+        log.info("Inserted {} rows into {}", rows, table);
+        return rows;
+    }
+
+    private static int[] getColumnTypes(Connection connection, String table, String columnList, int columnCount) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT " + columnList + " FROM " + table + " WHERE 1 = 0")) {
+            ResultSetMetaData metaData = rs.getMetaData();
+            int[] types = new int[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+                types[i] = metaData.getColumnType(i + 1);
+            }
+            return types;
+        }
+    }
+
+    private static long insertBatched(Connection connection, String table, String columnList, int[] types, BufferedReader reader) throws SQLException, IOException {
+        long rows = 0L;
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO " + table + " (" + columnList + ") VALUES " + placeholders(types.length, 1))) {
+            int batched = 0;
+            List<String> record;
+            while ((record = readRecord(reader)) != null) {
+                bind(insert, 0, record, types);
+                insert.addBatch();
+                rows++;
+                if (++batched == BATCH_SIZE) {
+                    insert.executeBatch();
+                    batched = 0;
+                }
+            }
+            if (batched > 0) {
+                insert.executeBatch();
+            }
+        }
+        return rows;
+    }
+
+    private static long insertMultiRow(Connection connection, String table, String columnList, int[] types, BufferedReader reader) throws SQLException, IOException {
+        int rowsPerInsert = Math.max(1, Math.min(MAX_ROWS_PER_INSERT, MAX_PARAMETERS / types.length));
+        String sql = "INSERT INTO " + table + " (" + columnList + ") VALUES ";
+        long rows = 0L;
+        List<List<String>> pending = new ArrayList<>(rowsPerInsert);
+        try (PreparedStatement insert = connection.prepareStatement(sql + placeholders(types.length, rowsPerInsert))) {
+            List<String> record;
+            while ((record = readRecord(reader)) != null) {
+                pending.add(record);
+                if (pending.size() == rowsPerInsert) {
+                    for (int i = 0; i < pending.size(); i++) {
+                        bind(insert, i * types.length, pending.get(i), types);
+                    }
+                    insert.executeUpdate();
+                    rows += pending.size();
+                    pending.clear();
+                }
+            }
+        }
+        if (!pending.isEmpty()) {
+            try (PreparedStatement insert = connection.prepareStatement(sql + placeholders(types.length, pending.size()))) {
+                for (int i = 0; i < pending.size(); i++) {
+                    bind(insert, i * types.length, pending.get(i), types);
+                }
+                insert.executeUpdate();
+                rows += pending.size();
+            }
+        }
+        return rows;
+    }
+
+    private static String placeholders(int columns, int rows) {
+        String row = '(' + String.join(", ", Collections.nCopies(columns, "?")) + ')';
+        return String.join(", ", Collections.nCopies(rows, row));
+    }
+
+    private static void bind(PreparedStatement statement, int offset, List<String> record, int[] types) throws SQLException {
+        if (record.size() != types.length) {
+            throw new DatabaseUpgradeException("Expected " + types.length + " values, found " + record.size() + ": " + record);
+        }
+        for (int i = 0; i < types.length; i++) {
+            String value = record.get(i);
+            if (value == null) {
+                statement.setNull(offset + i + 1, types[i]);
+            } else {
+                statement.setObject(offset + i + 1, value, types[i]);
+            }
+        }
+    }
+
+    /**
+     * Streams the CSV records to {@code COPY} through {@code org.postgresql.PGConnection#getCopyAPI()}, without a
+     * compile time dependency on the driver.
+     *
+     * @return number of copied rows or -1 if the connection is not a PostgreSQL JDBC driver connection
+     */
+    private static long copy(Connection connection, String sql, Reader reader) throws SQLException, IOException {
+        Class<?> pgConnectionClass;
+        try {
+            pgConnectionClass = Class.forName("org.postgresql.PGConnection", false, connection.getClass().getClassLoader());
+        } catch (ClassNotFoundException | LinkageError e) {
+            return -1L;
+        }
+        if (!connection.isWrapperFor(pgConnectionClass)) {
+            return -1L;
+        }
+        try {
+            Object pgConnection = connection.unwrap(pgConnectionClass);
+            Object copyManager = pgConnectionClass.getMethod("getCopyAPI").invoke(pgConnection);
+            return (Long)copyManager.getClass().getMethod("copyIn", String.class, Reader.class).invoke(copyManager, sql, reader);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException)e.getCause();
+            }
+            if (e.getCause() instanceof IOException) {
+                throw (IOException)e.getCause();
+            }
+            throw new DatabaseUpgradeException(e.getCause());
+        } catch (ReflectiveOperationException e) {
+            log.debug("PostgreSQL copy API not available: {}", e.getMessage());
+            return -1L;
+        }
+    }
+
+    /**
+     * @return fields of the next record or {@code null} at the end of the data
+     */
+    static List<String> readRecord(Reader reader) throws IOException {
+        int c = reader.read();
+        while (c == '\r' || c == '\n') {
+            c = reader.read();
+        }
+        if (c < 0) {
+            return null;
+        }
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        while (true) {
+            if (c == '"' && field.length() == 0 && !quoted) {
+                quoted = true;
+                while (true) {
+                    c = reader.read();
+                    if (c < 0) {
+                        throw new DatabaseUpgradeException("Unterminated quoted field: " + field);
+                    }
+                    if (c == '"') {
+                        c = reader.read();
+                        if (c != '"') {
+                            break;
+                        }
+                    }
+                    field.append((char)c);
+                }
+                continue;
+            }
+            if (c == ',' || c == '\n' || c == '\r' || c < 0) {
+                fields.add(quoted || field.length() > 0 ? field.toString() : null);
+                field.setLength(0);
+                quoted = false;
+                if (c != ',') {
+                    return fields;
+                }
+            } else {
+                field.append((char)c);
+            }
+            c = reader.read();
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package care.better.schema.db.impl;
+
+/**
+ * Reports the progress of an upgrade and stops it between versions when it is cancelled.
+ */
+interface UpgradeControl {
+    UpgradeControl NONE = new UpgradeControl() {
+        @Override
+        public void started(int startVersion, int targetVersion) {
+        }
+
+        @Override
+        public void versionCompleted(int version) {
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+    };
+
+    /**
+     * @param startVersion  schema version before the upgrade, 0 for a new schema
+     * @param targetVersion latest schema version
+     */
+    void started(int startVersion, int targetVersion);
+
+    /**
+     * @param version upgraded schema version
+     */
+    void versionCompleted(int version);
+
+    /**
+     * @return true if the upgrade should stop before the next version
+     */
+    boolean isCancelled();
+}
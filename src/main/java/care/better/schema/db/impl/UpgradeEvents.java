@@ -0,0 +1,77 @@
+package care.better.schema.db.impl;
+
+import care.better.schema.db.listener.SchemaUpgradeListener;
+import care.better.schema.db.listener.StatementExecution;
+import care.better.schema.db.script.SqlStatement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Dispatches upgrade pipeline events to the registered {@link SchemaUpgradeListener}s, isolating the upgrade from
+ * listener failures.
+ */
+final class UpgradeEvents {
+    private static final Logger log = LoggerFactory.getLogger(UpgradeEvents.class);
+
+    private final List<SchemaUpgradeListener> listeners = new CopyOnWriteArrayList<>();
+
+    void add(SchemaUpgradeListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * @return true if there are listeners, so timings need to be measured
+     */
+    boolean isEnabled() {
+        return !listeners.isEmpty();
+    }
+
+    void scriptParsed(int version, String scriptResource, int statements, Duration duration) {
+        fire(listener -> listener.scriptParsed(version, scriptResource, statements, duration));
+    }
+
+    void statementExecuted(int version, String scriptResource, SqlStatement statement, long nanos, long rowCount, int batchSize) {
+        StatementExecution execution = new StatementExecution(version, scriptResource, statement, Duration.ofNanos(nanos), rowCount, batchSize);
+        fire(listener -> listener.statementExecuted(execution));
+    }
+
+    void statementRetried(int version, String scriptResource, SqlStatement statement, int attempt, Duration backoff, SQLException error) {
+        fire(listener -> listener.statementRetried(version, scriptResource, statement, attempt, backoff, error));
+    }
+
+    void javaUpgradeExecuted(int version, String upgradeClassName, long nanos) {
+        fire(listener -> listener.javaUpgradeExecuted(version, upgradeClassName, Duration.ofNanos(nanos)));
+    }
+
+    void versionStarted(int version) {
+        fire(listener -> listener.versionStarted(version));
+    }
+
+    void versionCompleted(int version, long nanos) {
+        fire(listener -> listener.versionCompleted(version, Duration.ofNanos(nanos)));
+    }
+
+    void versionFailed(int version, long nanos, Throwable error) {
+        fire(listener -> listener.versionFailed(version, Duration.ofNanos(nanos), error));
+    }
+
+    void lockWaited(String lockName, long nanos, boolean acquired) {
+        fire(listener -> listener.lockWaited(lockName, Duration.ofNanos(nanos), acquired));
+    }
+
+    private void fire(Consumer<SchemaUpgradeListener> event) {
+        for (SchemaUpgradeListener listener : listeners) {
+            try {
+                event.accept(listener);
+            } catch (RuntimeException e) {
+                log.warn("Schema upgrade listener {} failed", listener, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package care.better.schema.db.impl;
+
+import care.better.schema.db.script.ScriptDialect;
+import care.better.schema.db.upgrade.UpgradeHistory;
+import care.better.schema.db.upgrade.UpgradeHistoryEntry;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Applied upgrades in {@code {schema_version_table}_history}, one row per upgrade script, baseline or initial schema,
+ * written in the transaction of the version update.
+ */
+final class UpgradeHistoryTable {
+    private static final String COLUMNS = "version, from_version, script, checksum, upgrade_class, started_at, duration_ms, statements, node_id";
+    private static final int MAX_NAME_LENGTH = 255;
+
+    private final String tableName;
+    private final ScriptDialect dialect;
+
+    UpgradeHistoryTable(String tableName, ScriptDialect dialect) {
+        this.tableName = tableName;
+        this.dialect = dialect;
+    }
+
+    /**
+     * Creates the table if it does not exist yet.
+     *
+     * @param connection connection at the start of a transaction, since a failed query is rolled back
+     * @throws SQLException on database errors
+     */
+    void create(Connection connection) throws SQLException {
+        if (exists(connection)) {
+            return;
+        }
+        String bigint = dialect == ScriptDialect.ORA ? "NUMBER(19)" : "BIGINT";
+        String timestamp = dialect == ScriptDialect.MSSQL ? "DATETIME2" : dialect == ScriptDialect.MYSQL ? "DATETIME(3)" : "TIMESTAMP";
+        String primaryKey = dialect == ScriptDialect.MSSQL ? "PRIMARY KEY CLUSTERED" : "PRIMARY KEY";
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE " + tableName + " (version INTEGER NOT NULL, from_version INTEGER NOT NULL, script VARCHAR(255) NOT NULL, "
+                                      + "checksum VARCHAR(64), upgrade_class VARCHAR(255), started_at " + timestamp + " NOT NULL, duration_ms " + bigint
+                                      + " NOT NULL, statements INTEGER NOT NULL, node_id VARCHAR(255) NOT NULL, " + primaryKey + " (version, started_at))"
+                                      + (dialect == ScriptDialect.IGNITE
+                                              ? " WITH \"template=replicated,atomicity=transactional_snapshot,cache_name=" + tableName + '"'
+                                              : ""));
+        }
+    }
+
+    private boolean exists(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.executeQuery("SELECT version FROM " + tableName + " WHERE 1 = 0").close();
+            return true;
+        } catch (SQLException e) {
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+            }
+            return false;
+        }
+    }
+
+    void insert(Connection connection, UpgradeHistoryEntry entry) throws SQLException {
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO " + tableName + " (" + COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
+            insert.setInt(1, entry.getVersion());
+            insert.setInt(2, entry.getFromVersion());
+            insert.setString(3, truncate(entry.getScriptResource()));
+            insert.setString(4, entry.getChecksum());
+            if (entry.getUpgradeClassName() == null) {
+                insert.setNull(5, Types.VARCHAR);
+            } else {
+                insert.setString(5, truncate(entry.getUpgradeClassName()));
+            }
+            insert.setTimestamp(6, Timestamp.from(entry.getStartedAt()));
+            insert.setLong(7, entry.getDuration().toMillis());
+            insert.setInt(8, entry.getStatements());
+            insert.setString(9, truncate(entry.getNodeId()));
+            insert.executeUpdate();
+        }
+    }
+
+    /**
+     * @param connection connection at the start of a transaction or in auto-commit mode
+     * @return recorded upgrades, empty if the table does not exist
+     * @throws SQLException on database errors
+     */
+    UpgradeHistory read(Connection connection) throws SQLException {
+        List<UpgradeHistoryEntry> entries = new ArrayList<>();
+        if (exists(connection)) {
+            try (Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery("SELECT " + COLUMNS + " FROM " + tableName + " ORDER BY started_at, version")) {
+                while (rs.next()) {
+                    entries.add(new UpgradeHistoryEntry(
+                            rs.getInt(1),
+                            rs.getInt(2),
+                            rs.getString(3),
+                            rs.getString(4),
+                            rs.getString(5),
+                            rs.getTimestamp(6).toInstant(),
+                            Duration.ofMillis(rs.getLong(7)),
+                            rs.getInt(8),
+                            rs.getString(9)));
+                }
+            }
+        }
+        return new UpgradeHistory(entries);
+    }
+
+    private static String truncate(String value) {
+        return value.length() <= MAX_NAME_LENGTH ? value : value.substring(value.length() - MAX_NAME_LENGTH);
+    }
+}
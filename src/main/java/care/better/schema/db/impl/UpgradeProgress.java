@@ -0,0 +1,78 @@
+package care.better.schema.db.impl;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Progress of an interrupted upgrade: the version being applied and the number of its script statements that have
+ * already been committed. Kept as a single row in {@code {schema_version_table}_progress}; a row with
+ * {@code statements = 0} means that the Java upgrade of the version has completed. An instance tracks a single upgrade
+ * on one connection.
+ */
+final class UpgradeProgress {
+    private final String tableName;
+    private boolean tableExists;
+
+    /**
+     * @param tableName   progress table
+     * @param tableExists true if the table exists when the upgrade starts
+     */
+    UpgradeProgress(String tableName, boolean tableExists) {
+        this.tableName = tableName;
+        this.tableExists = tableExists;
+    }
+
+    /**
+     * @param connection connection at the start of a transaction
+     * @param version    version about to be applied
+     * @return number of committed statements of the version or -1 if the version has not been started
+     * @throws SQLException on database errors
+     */
+    int read(Connection connection, int version) throws SQLException {
+        if (!tableExists) {
+            return -1;
+        }
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT version, statements FROM " + tableName)) {
+            return resultSet.next() && resultSet.getInt(1) == version ? resultSet.getInt(2) : -1;
+        }
+    }
+
+    /**
+     * Records and commits the progress of a version.
+     */
+    void save(Connection connection, int version, int statements) throws SQLException {
+        if (!tableExists) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TABLE " + tableName + " (version INTEGER NOT NULL, statements INTEGER NOT NULL)");
+            }
+            tableExists = true;
+        }
+        try (PreparedStatement update = connection.prepareStatement("UPDATE " + tableName + " SET version = ?, statements = ?")) {
+            update.setInt(1, version);
+            update.setInt(2, statements);
+            if (update.executeUpdate() == 0) {
+                try (PreparedStatement insert = connection.prepareStatement("INSERT INTO " + tableName + " (version, statements) VALUES (?, ?)")) {
+                    insert.setInt(1, version);
+                    insert.setInt(2, statements);
+                    insert.executeUpdate();
+                }
+            }
+        }
+        connection.commit();
+    }
+
+    /**
+     * Removes the progress of a completed version, in the same transaction as the version update.
+     */
+    void clear(Connection connection) throws SQLException {
+        if (tableExists) {
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate("DELETE FROM " + tableName);
+            }
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package care.better.schema.db.listener;
+
+import care.better.schema.db.script.SqlStatement;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+import java.sql.SQLException;
+import java.time.Duration;
+
+/**
+ * Emits JFR events for the upgrade pipeline (category "Schema Upgrade"), so a recording of a slow rollout shows every
+ * statement, statement retry, Java upgrade, version and lock wait with its duration. Events are created only when they are enabled in
+ * the recording, e.g. {@code -XX:StartFlightRecording} with the default settings.
+ */
+public class JfrSchemaUpgradeListener implements SchemaUpgradeListener {
+    @Override
+    public void scriptParsed(int version, String scriptResource, int statements, Duration duration) {
+        ScriptParsedEvent event = new ScriptParsedEvent();
+        if (event.shouldCommit()) {
+            event.version = version;
+            event.script = scriptResource;
+            event.statements = statements;
+            event.parseTime = duration.toNanos();
+            event.commit();
+        }
+    }
+
+    @Override
+    public void statementExecuted(StatementExecution execution) {
+        StatementExecutedEvent event = new StatementExecutedEvent();
+        if (event.shouldCommit()) {
+            event.version = execution.getVersion();
+            event.script = execution.getScriptResource();
+            event.line = execution.getStatement().getLineNumber();
+            event.command = execution.getStatement().getCommand();
+            event.fingerprint = execution.getFingerprint();
+            event.sql = execution.getStatement().getSql();
+            event.executionTime = execution.getDuration().toNanos();
+            event.rowCount = execution.getRowCount();
+            event.batchSize = execution.getBatchSize();
+            event.commit();
+        }
+    }
+
+    @Override
+    public void statementRetried(int version, String scriptResource, SqlStatement statement, int attempt, Duration backoff, SQLException error) {
+        StatementRetriedEvent event = new StatementRetriedEvent();
+        if (event.shouldCommit()) {
+            event.version = version;
+            event.script = scriptResource;
+            event.line = statement.getLineNumber();
+            event.sql = statement.getSql();
+            event.attempt = attempt;
+            event.backoff = backoff.toNanos();
+            event.error = error.toString();
+            event.commit();
+        }
+    }
+
+    @Override
+    public void javaUpgradeExecuted(int version, String upgradeClassName, Duration duration) {
+        JavaUpgradeEvent event = new JavaUpgradeEvent();
+        if (event.shouldCommit()) {
+            event.version = version;
+            event.upgradeClass = upgradeClassName;
+            event.executionTime = duration.toNanos();
+            event.commit();
+        }
+    }
+
+    @Override
+    public void versionCompleted(int version, Duration duration) {
+        commitVersion(version, duration, null);
+    }
+
+    @Override
+    public void versionFailed(int version, Duration duration, Throwable error) {
+        commitVersion(version, duration, error);
+    }
+
+    @Override
+    public void lockWaited(String lockName, Duration duration, boolean acquired) {
+        LockWaitEvent event = new LockWaitEvent();
+        if (event.shouldCommit()) {
+            event.lockName = lockName;
+            event.waitTime = duration.toNanos();
+            event.acquired = acquired;
+            event.commit();
+        }
+    }
+
+    private static void commitVersion(int version, Duration duration, Throwable error) {
+        VersionEvent event = new VersionEvent();
+        if (event.shouldCommit()) {
+            event.version = version;
+            event.executionTime = duration.toNanos();
+            event.error = error == null ? null : error.toString();
+            event.commit();
+        }
+    }
+
+    @Name("care.better.schema.ScriptParsed")
+    @Label("Script Parsed")
+    @Category("Schema Upgrade")
+    @StackTrace(false)
+    static final class ScriptParsedEvent extends Event {
+        @Label("Version")
+        int version;
+        @Label("Script")
+        String script;
+        @Label("Statements")
+        int statements;
+        @Label("Parse Time")
+        @Timespan
+        long parseTime;
+    }
+
+    @Name("care.better.schema.StatementExecuted")
+    @Label("Statement Executed")
+    @Category("Schema Upgrade")
+    @StackTrace(false)
+    static final class StatementExecutedEvent extends Event {
+        @Label("Version")
+        int version;
+        @Label("Script")
+        String script;
+        @Label("Line")
+        int line;
+        @Label("Command")
+        String command;
+        @Label("Fingerprint")
+        @Description("Hash of the statement text without literals")
+        String fingerprint;
+        @Label("SQL")
+        String sql;
+        @Label("Execution Time")
+        @Description("Execution time of the statement, or of the whole batch for a batched statement")
+        @Timespan
+        long executionTime;
+        @Label("Row Count")
+        long rowCount;
+        @Label("Batch Size")
+        int batchSize;
+    }
+
+    @Name("care.better.schema.StatementRetried")
+    @Label("Statement Retried")
+    @Category("Schema Upgrade")
+    @StackTrace(false)
+    static final class StatementRetriedEvent extends Event {
+        @Label("Version")
+        int version;
+        @Label("Script")
+        String script;
+        @Label("Line")
+        int line;
+        @Label("SQL")
+        String sql;
+        @Label("Attempt")
+        @Description("Number of the retry after a lock timeout")
+        int attempt;
+        @Label("Backoff")
+        @Timespan
+        long backoff;
+        @Label("Error")
+        String error;
+    }
+
+    @Name("care.better.schema.JavaUpgrade")
+    @Label("Java Upgrade")
+    @Category("Schema Upgrade")
+    @StackTrace(false)
+    static final class JavaUpgradeEvent extends Event {
+        @Label("Version")
+        int version;
+        @Label("Upgrade Class")
+        String upgradeClass;
+        @Label("Execution Time")
+        @Timespan
+        long executionTime;
+    }
+
+    @Name("care.better.schema.Version")
+    @Label("Schema Version")
+    @Category("Schema Upgrade")
+    @StackTrace(false)
+    static final class VersionEvent extends Event {
+        @Label("Version")
+        int version;
+        @Label("Execution Time")
+        @Timespan
+        long executionTime;
+        @Label("Error")
+        String error;
+    }
+
+    @Name("care.better.schema.LockWait")
+    @Label("Schema Lock Wait")
+    @Category("Schema Upgrade")
+    @StackTrace(false)
+    static final class LockWaitEvent extends Event {
+        @Label("Lock Name")
+        String lockName;
+        @Label("Wait Time")
+        @Timespan
+        long waitTime;
+        @Label("Acquired")
+        boolean acquired;
+    }
+}
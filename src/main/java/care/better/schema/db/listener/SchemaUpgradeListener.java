@@ -0,0 +1,80 @@
+package care.better.schema.db.listener;
+
+import care.better.schema.db.script.SqlStatement;
+
+import java.sql.SQLException;
+import java.time.Duration;
+
+/**
+ * Receives timings of the schema initialization and upgrade pipeline, registered with
+ * {@code SchemaInitializerImpl.addListener}. All methods are called on the upgrading thread (statements of a parallel
+ * initialization on the executing threads) and have empty default implementations. Exceptions thrown by a listener
+ * are logged and do not affect the upgrade.
+ *
+ * @see Slf4jSchemaUpgradeListener
+ * @see JfrSchemaUpgradeListener
+ */
+public interface SchemaUpgradeListener {
+    /**
+     * @param version        schema version
+     * @param scriptResource script resource
+     * @param statements     number of statements
+     * @param duration       time spent reading and parsing the script, excluding statement execution
+     */
+    default void scriptParsed(int version, String scriptResource, int statements, Duration duration) {
+    }
+
+    /**
+     * @param execution executed statement with its duration and row count
+     */
+    default void statementExecuted(StatementExecution execution) {
+    }
+
+    /**
+     * @param version        schema version
+     * @param scriptResource script resource
+     * @param statement      statement that timed out waiting for a lock, the first statement of a batch
+     * @param attempt        number of the retry, starting with 1
+     * @param backoff        delay before the retry
+     * @param error          lock timeout
+     */
+    default void statementRetried(int version, String scriptResource, SqlStatement statement, int attempt, Duration backoff, SQLException error) {
+    }
+
+    /**
+     * @param version          schema version
+     * @param upgradeClassName {@code DbUpgrade} implementation
+     * @param duration         execution time
+     */
+    default void javaUpgradeExecuted(int version, String upgradeClassName, Duration duration) {
+    }
+
+    /**
+     * @param version schema version about to be applied, the latest version for an initialization
+     */
+    default void versionStarted(int version) {
+    }
+
+    /**
+     * @param version  applied schema version
+     * @param duration time taken by the Java upgrade and the script of the version
+     */
+    default void versionCompleted(int version, Duration duration) {
+    }
+
+    /**
+     * @param version  schema version that failed
+     * @param duration time until the failure
+     * @param error    failure
+     */
+    default void versionFailed(int version, Duration duration, Throwable error) {
+    }
+
+    /**
+     * @param lockName schema lock name
+     * @param duration time spent waiting for the lock
+     * @param acquired true if the lock was acquired, false if another node upgraded the schema in the meantime
+     */
+    default void lockWaited(String lockName, Duration duration, boolean acquired) {
+    }
+}
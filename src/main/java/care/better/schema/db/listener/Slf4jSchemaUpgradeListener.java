@@ -0,0 +1,80 @@
+package care.better.schema.db.listener;
+
+import com.google.common.base.Preconditions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+
+/**
+ * Logs the upgrade timings. Versions, Java upgrades, lock waits and statements slower than the threshold are logged
+ * at info level with the statement line, fingerprint and text, every other statement at debug level.
+ */
+public class Slf4jSchemaUpgradeListener implements SchemaUpgradeListener {
+    private static final Logger log = LoggerFactory.getLogger(Slf4jSchemaUpgradeListener.class);
+    private static final int MAX_SQL_LENGTH = 500;
+
+    private final Duration slowStatementThreshold;
+
+    public Slf4jSchemaUpgradeListener() {
+        this(Duration.ofSeconds(1L));
+    }
+
+    /**
+     * @param slowStatementThreshold statements taking at least this long are logged at info level
+     */
+    public Slf4jSchemaUpgradeListener(Duration slowStatementThreshold) {
+        Preconditions.checkNotNull(slowStatementThreshold, "slowStatementThreshold is null!");
+        this.slowStatementThreshold = slowStatementThreshold;
+    }
+
+    @Override
+    public void scriptParsed(int version, String scriptResource, int statements, Duration duration) {
+        log.debug("Parsed {} statements of {} in {} ms", statements, scriptResource, duration.toMillis());
+    }
+
+    @Override
+    public void statementExecuted(StatementExecution execution) {
+        if (execution.getDuration().compareTo(slowStatementThreshold) >= 0) {
+            log.info("Slow statement at line {} of {} took {} ms{} (rows: {}, fingerprint: {}): {}",
+                     execution.getStatement().getLineNumber(),
+                     execution.getScriptResource(),
+                     execution.getDuration().toMillis(),
+                     execution.getBatchSize() > 1 ? " in a batch of " + execution.getBatchSize() : "",
+                     execution.getRowCount(),
+                     execution.getFingerprint(),
+                     abbreviate(execution.getStatement().getSql()));
+        } else if (log.isDebugEnabled()) {
+            log.debug("Statement at line {} of {} took {} ms (rows: {}, fingerprint: {})",
+                      execution.getStatement().getLineNumber(),
+                      execution.getScriptResource(),
+                      execution.getDuration().toMillis(),
+                      execution.getRowCount(),
+                      execution.getFingerprint());
+        }
+    }
+
+    @Override
+    public void javaUpgradeExecuted(int version, String upgradeClassName, Duration duration) {
+        log.info("Java upgrade {} of version {} took {} ms", upgradeClassName, version, duration.toMillis());
+    }
+
+    @Override
+    public void versionCompleted(int version, Duration duration) {
+        log.info("Version {} took {} ms", version, duration.toMillis());
+    }
+
+    @Override
+    public void versionFailed(int version, Duration duration, Throwable error) {
+        log.warn("Version {} failed after {} ms: {}", version, duration.toMillis(), error.toString());
+    }
+
+    @Override
+    public void lockWaited(String lockName, Duration duration, boolean acquired) {
+        log.info("Waited {} ms for schema lock {}{}", duration.toMillis(), lockName, acquired ? "" : ", schema upgraded by another node");
+    }
+
+    private static String abbreviate(String sql) {
+        return sql.length() <= MAX_SQL_LENGTH ? sql : sql.substring(0, MAX_SQL_LENGTH) + "...";
+    }
+}
@@ -0,0 +1,101 @@
+package care.better.schema.db.listener;
+
+import care.better.schema.db.script.SqlStatement;
+import com.google.common.hash.Hashing;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Executed script statement, see {@link SchemaUpgradeListener#statementExecuted(StatementExecution)}.
+ */
+public final class StatementExecution {
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w.])-?\\d+(?:\\.\\d+)?(?![\\w.])");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final int version;
+    private final String scriptResource;
+    private final SqlStatement statement;
+    private final Duration duration;
+    private final long rowCount;
+    private final int batchSize;
+    private String normalizedSql;
+
+    public StatementExecution(int version, String scriptResource, SqlStatement statement, Duration duration, long rowCount, int batchSize) {
+        this.version = version;
+        this.scriptResource = scriptResource;
+        this.statement = statement;
+        this.duration = duration;
+        this.rowCount = rowCount;
+        this.batchSize = batchSize;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public String getScriptResource() {
+        return scriptResource;
+    }
+
+    public SqlStatement getStatement() {
+        return statement;
+    }
+
+    /**
+     * @return execution time, for a batched statement the execution time of the whole batch
+     */
+    public Duration getDuration() {
+        return duration;
+    }
+
+    /**
+     * @return number of affected rows, -1 if unknown or not applicable (DDL)
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * @return number of statements executed in the same JDBC batch, 1 if the statement was executed alone
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * @return statement text with literals replaced by {@code ?} and whitespace collapsed, see {@link #normalize(String)}
+     */
+    public String getNormalizedSql() {
+        if (normalizedSql == null) {
+            normalizedSql = normalize(statement.getSql());
+        }
+        return normalizedSql;
+    }
+
+    /**
+     * @return hex fingerprint of the normalized statement text, equal for statements that differ only in literals
+     */
+    public String getFingerprint() {
+        return Hashing.farmHashFingerprint64().hashString(getNormalizedSql(), StandardCharsets.UTF_8).toString();
+    }
+
+    /**
+     * @param sql statement text
+     * @return lower case statement text with string and number literals replaced by {@code ?} and whitespace collapsed
+     */
+    public static String normalize(String sql) {
+        String normalized = STRING_LITERAL.matcher(sql).replaceAll("?");
+        normalized = NUMBER_LITERAL.matcher(normalized).replaceAll("?");
+        return WHITESPACE.matcher(normalized).replaceAll(" ").trim().toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    public String toString() {
+        return "StatementExecution{version=" + version + ", line=" + statement.getLineNumber() + ", duration=" + duration.toMillis()
+                + "ms, rows=" + rowCount + ", fingerprint=" + getFingerprint() + '}';
+    }
+}
@@ -0,0 +1,40 @@
+package care.better.schema.db.lock;
+
+import com.google.common.hash.Hashing;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+
+/**
+ * Named {@code GET_LOCK} lock, waiting natively for at most the requested time (in whole seconds).
+ */
+public class MySqlSchemaLock implements SchemaLock {
+    private static final int MAX_NAME_LENGTH = 64;
+
+    @Override
+    public boolean tryAcquire(Connection connection, String name, Duration wait) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            statement.setString(1, getLockName(name));
+            statement.setLong(2, Math.max(0L, wait.getSeconds()));
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() && resultSet.getInt(1) == 1;
+            }
+        }
+    }
+
+    @Override
+    public void release(Connection connection, String name) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            statement.setString(1, getLockName(name));
+            statement.executeQuery().close();
+        }
+    }
+
+    private static String getLockName(String name) {
+        return name.length() <= MAX_NAME_LENGTH ? name : Hashing.sha256().hashString(name, StandardCharsets.UTF_8).toString();
+    }
+}
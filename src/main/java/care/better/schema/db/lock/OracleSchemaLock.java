@@ -0,0 +1,40 @@
+package care.better.schema.db.lock;
+
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Duration;
+
+/**
+ * Exclusive {@code DBMS_LOCK} user lock that is not released on commit. The schema user needs the
+ * {@code EXECUTE} privilege on {@code DBMS_LOCK}.
+ */
+public class OracleSchemaLock implements SchemaLock {
+    private static final int SUCCESS = 0;
+    private static final int ALREADY_OWNED = 4;
+
+    @Override
+    public boolean tryAcquire(Connection connection, String name, Duration wait) throws SQLException {
+        try (CallableStatement statement = connection.prepareCall(
+                "DECLARE handle VARCHAR2(128); " +
+                        "BEGIN DBMS_LOCK.ALLOCATE_UNIQUE(?, handle); ? := DBMS_LOCK.REQUEST(handle, DBMS_LOCK.X_MODE, ?, FALSE); END;")) {
+            statement.setString(1, name);
+            statement.registerOutParameter(2, Types.INTEGER);
+            statement.setLong(3, Math.max(0L, wait.getSeconds()));
+            statement.execute();
+            int result = statement.getInt(2);
+            return result == SUCCESS || result == ALREADY_OWNED;
+        }
+    }
+
+    @Override
+    public void release(Connection connection, String name) throws SQLException {
+        try (CallableStatement statement = connection.prepareCall(
+                "DECLARE handle VARCHAR2(128); result INTEGER; " +
+                        "BEGIN DBMS_LOCK.ALLOCATE_UNIQUE(?, handle); result := DBMS_LOCK.RELEASE(handle); END;")) {
+            statement.setString(1, name);
+            statement.execute();
+        }
+    }
+}
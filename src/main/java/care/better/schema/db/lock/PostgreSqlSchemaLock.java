@@ -0,0 +1,58 @@
+package care.better.schema.db.lock;
+
+import com.google.common.hash.Hashing;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+
+/**
+ * Session level {@code pg_advisory_lock} keyed by a hash of the lock name. Waiting is bounded with {@code lock_timeout}.
+ */
+public class PostgreSqlSchemaLock implements SchemaLock {
+    private static final String LOCK_NOT_AVAILABLE = "55P03";
+
+    @Override
+    public boolean tryAcquire(Connection connection, String name, Duration wait) throws SQLException {
+        if (wait.isZero() || wait.isNegative()) {
+            try (PreparedStatement statement = connection.prepareStatement("SELECT pg_try_advisory_lock(?)")) {
+                statement.setLong(1, getKey(name));
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    return resultSet.next() && resultSet.getBoolean(1);
+                }
+            }
+        }
+
+        try (Statement timeoutStatement = connection.createStatement()) {
+            timeoutStatement.execute("SET lock_timeout = " + Math.max(1L, wait.toMillis()));
+            try (PreparedStatement statement = connection.prepareStatement("SELECT pg_advisory_lock(?)")) {
+                statement.setLong(1, getKey(name));
+                statement.executeQuery().close();
+                return true;
+            } catch (SQLException e) {
+                if (LOCK_NOT_AVAILABLE.equals(e.getSQLState())) {
+                    return false;
+                }
+                throw e;
+            } finally {
+                timeoutStatement.execute("RESET lock_timeout");
+            }
+        }
+    }
+
+    @Override
+    public void release(Connection connection, String name) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT pg_advisory_unlock(?)")) {
+            statement.setLong(1, getKey(name));
+            statement.executeQuery().close();
+        }
+    }
+
+    private static long getKey(String name) {
+        return Hashing.murmur3_128().hashString(name, StandardCharsets.UTF_8).asLong();
+    }
+}
@@ -0,0 +1,53 @@
+package care.better.schema.db.lock;
+
+import care.better.schema.db.script.ScriptDialect;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+
+/**
+ * Cluster wide lock that makes sure only one node initializes or upgrades the schema at a time. Locks are held on a
+ * dedicated connection in auto-commit mode for the whole duration of the upgrade.
+ */
+public interface SchemaLock {
+    /**
+     * Tries to acquire the lock, waiting at most the given time.
+     *
+     * @param connection dedicated lock connection
+     * @param name       lock name
+     * @param wait       maximum time to wait for the lock
+     * @return true if the lock has been acquired
+     * @throws SQLException on database errors other than a lock timeout
+     */
+    boolean tryAcquire(Connection connection, String name, Duration wait) throws SQLException;
+
+    /**
+     * Releases the lock acquired with {@link #tryAcquire(Connection, String, Duration)}.
+     *
+     * @param connection dedicated lock connection
+     * @param name       lock name
+     * @throws SQLException on database errors
+     */
+    void release(Connection connection, String name) throws SQLException;
+
+    /**
+     * @param scriptDialect script dialect of the database
+     * @param lockTableName table used by dialects without a native application lock
+     * @return native lock for the dialect, or a lock row in {@code lockTableName} for H2, Ignite and unknown dialects
+     */
+    static SchemaLock forDialect(ScriptDialect scriptDialect, String lockTableName) {
+        switch (scriptDialect) {
+            case PGSQL:
+                return new PostgreSqlSchemaLock();
+            case MSSQL:
+                return new SqlServerSchemaLock();
+            case ORA:
+                return new OracleSchemaLock();
+            case MYSQL:
+                return new MySqlSchemaLock();
+            default:
+                return new TableSchemaLock(lockTableName);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package care.better.schema.db.lock;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+
+/**
+ * Session owned exclusive {@code sp_getapplock}, waiting natively for at most the requested time.
+ */
+public class SqlServerSchemaLock implements SchemaLock {
+    @Override
+    public boolean tryAcquire(Connection connection, String name, Duration wait) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "DECLARE @result INT; " +
+                        "EXEC @result = sp_getapplock @Resource = ?, @LockMode = 'Exclusive', @LockOwner = 'Session', @LockTimeout = ?; " +
+                        "SELECT @result")) {
+            statement.setString(1, name);
+            statement.setLong(2, Math.max(0L, wait.toMillis()));
+            boolean hasResultSet = statement.execute();
+            while (!hasResultSet && statement.getUpdateCount() != -1) {
+                hasResultSet = statement.getMoreResults();
+            }
+            if (!hasResultSet) {
+                return false;
+            }
+            try (ResultSet resultSet = statement.getResultSet()) {
+                return resultSet.next() && resultSet.getInt(1) >= 0;
+            }
+        }
+    }
+
+    @Override
+    public void release(Connection connection, String name) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("EXEC sp_releaseapplock @Resource = ?, @LockOwner = 'Session'")) {
+            statement.setString(1, name);
+            statement.execute();
+        }
+    }
+}
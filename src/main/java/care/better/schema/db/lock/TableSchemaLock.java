@@ -0,0 +1,155 @@
+package care.better.schema.db.lock;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lock row in a dedicated table for databases without an application lock (H2, Ignite). The row is inserted to
+ * acquire the lock and deleted to release it; waiting nodes poll with a single insert attempt per interval. While
+ * the lock is held, its timestamp is refreshed three times per stale timeout, so only rows of crashed nodes get older
+ * than the stale timeout and are removed by waiting nodes, however long the upgrade takes.
+ */
+public class TableSchemaLock implements SchemaLock {
+    private static final Logger log = LoggerFactory.getLogger(TableSchemaLock.class);
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(500L);
+    // well below the default schema lock wait, so waiting nodes take over the lock of a crashed node
+    private static final Duration DEFAULT_STALE_TIMEOUT = Duration.ofMinutes(2L);
+
+    private final String tableName;
+    private final Duration staleTimeout;
+    private final String owner = UUID.randomUUID().toString();
+    private ScheduledExecutorService heartbeat;
+
+    public TableSchemaLock(String tableName) {
+        this(tableName, DEFAULT_STALE_TIMEOUT);
+    }
+
+    /**
+     * @param tableName    lock table name
+     * @param staleTimeout age of a lock row that has not been refreshed, after which it is removed by waiting nodes
+     *                     (default 2 minutes). Must be shorter than the schema lock timeout of the waiting nodes.
+     */
+    public TableSchemaLock(String tableName, Duration staleTimeout) {
+        this.tableName = tableName;
+        this.staleTimeout = staleTimeout;
+    }
+
+    @Override
+    public boolean tryAcquire(Connection connection, String name, Duration wait) throws SQLException {
+        createLockTable(connection);
+        Instant deadline = Instant.now().plus(wait);
+        while (true) {
+            removeStaleLock(connection);
+            if (insertLock(connection)) {
+                startHeartbeat(connection);
+                return true;
+            }
+            Duration remaining = Duration.between(Instant.now(), deadline);
+            if (remaining.isNegative() || remaining.isZero()) {
+                return false;
+            }
+            try {
+                Thread.sleep(Math.min(POLL_INTERVAL.toMillis(), remaining.toMillis()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+    }
+
+    @Override
+    public void release(Connection connection, String name) throws SQLException {
+        stopHeartbeat();
+        try (PreparedStatement statement = connection.prepareStatement("DELETE FROM " + tableName + " WHERE id = 1 AND locked_by = ?")) {
+            statement.setString(1, owner);
+            statement.executeUpdate();
+        }
+    }
+
+    private synchronized void startHeartbeat(Connection connection) {
+        long interval = Math.max(staleTimeout.toMillis() / 3L, 1L);
+        heartbeat = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("schema-lock-heartbeat").setDaemon(true).build());
+        heartbeat.scheduleWithFixedDelay(() -> refreshLock(connection), interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    private void stopHeartbeat() {
+        ScheduledExecutorService executor;
+        synchronized (this) {
+            executor = heartbeat;
+            heartbeat = null;
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+            try {
+                // the lock connection must not be used by a running refresh when the lock is released
+                executor.awaitTermination(staleTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void refreshLock(Connection connection) {
+        try (PreparedStatement statement = connection.prepareStatement("UPDATE " + tableName + " SET locked_at = ? WHERE id = 1 AND locked_by = ?")) {
+            statement.setTimestamp(1, Timestamp.from(Instant.now()));
+            statement.setString(2, owner);
+            if (statement.executeUpdate() == 0) {
+                log.warn("Schema lock in {} is no longer held by this node, another node may be upgrading the schema", tableName);
+            }
+        } catch (SQLException e) {
+            log.warn("Unable to refresh the schema lock in {}: {}", tableName, e.getMessage());
+        }
+    }
+
+    private void createLockTable(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.executeQuery("SELECT COUNT(*) FROM " + tableName).close();
+        } catch (SQLException ignored) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TABLE " + tableName + " (id INTEGER NOT NULL PRIMARY KEY, locked_by VARCHAR(64) NOT NULL, locked_at TIMESTAMP NOT NULL)");
+            } catch (SQLException e) {
+                // another node might have created the table in the meantime
+                try (Statement statement = connection.createStatement()) {
+                    statement.executeQuery("SELECT COUNT(*) FROM " + tableName).close();
+                } catch (SQLException retryException) {
+                    retryException.addSuppressed(e);
+                    throw retryException;
+                }
+            }
+        }
+    }
+
+    private void removeStaleLock(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("DELETE FROM " + tableName + " WHERE id = 1 AND locked_at < ?")) {
+            statement.setTimestamp(1, Timestamp.from(Instant.now().minus(staleTimeout)));
+            statement.executeUpdate();
+        }
+    }
+
+    private boolean insertLock(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("INSERT INTO " + tableName + " (id, locked_by, locked_at) VALUES (1, ?, ?)")) {
+            statement.setString(1, owner);
+            statement.setTimestamp(2, Timestamp.from(Instant.now()));
+            statement.executeUpdate();
+            return true;
+        } catch (SQLException e) {
+            if (e.getSQLState() != null && e.getSQLState().startsWith("23")) {
+                return false;
+            }
+            throw e;
+        }
+    }
+}
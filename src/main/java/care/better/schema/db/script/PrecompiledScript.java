@@ -0,0 +1,113 @@
+package care.better.schema.db.script;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Binary form of a parsed script, stored as {@code {script}.bin} next to the script by {@link ScriptPrecompiler}. The
+ * header holds the dialect and the checksum of the script it was compiled from, followed by the statements with their
+ * line numbers and directives, so loading it needs no text parsing.
+ */
+final class PrecompiledScript {
+    static final String SUFFIX = ".bin";
+
+    private static final int MAGIC = 0x53514c43;
+    private static final int FORMAT_VERSION = 1;
+
+    private final DataInputStream input;
+    private final ScriptDialect dialect;
+    private final String checksum;
+
+    private PrecompiledScript(DataInputStream input, ScriptDialect dialect, String checksum) {
+        this.input = input;
+        this.dialect = dialect;
+        this.checksum = checksum;
+    }
+
+    /**
+     * Reads the header of a precompiled script.
+     *
+     * @param inputStream precompiled script, not closed
+     * @return precompiled script positioned at its statements, {@code null} if it was written in another format version
+     * @throws IOException on read errors
+     */
+    static PrecompiledScript open(InputStream inputStream) throws IOException {
+        DataInputStream input = new DataInputStream(new BufferedInputStream(inputStream));
+        if (input.readInt() != MAGIC || input.readInt() != FORMAT_VERSION) {
+            return null;
+        }
+        return new PrecompiledScript(input, ScriptDialect.valueOf(input.readUTF()), input.readUTF());
+    }
+
+    ScriptDialect getDialect() {
+        return dialect;
+    }
+
+    /**
+     * @return checksum of the script the statements were compiled from, see {@code UpgradeManifest.checksum}
+     */
+    String getChecksum() {
+        return checksum;
+    }
+
+    /**
+     * @return statements of the script
+     * @throws IOException on read errors
+     */
+    List<SqlStatement> readStatements() throws IOException {
+        int count = input.readInt();
+        List<SqlStatement> statements = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int lineNumber = input.readInt();
+            boolean block = input.readBoolean();
+            int directiveCount = input.readUnsignedByte();
+            Set<String> directives = new HashSet<>(directiveCount);
+            for (int j = 0; j < directiveCount; j++) {
+                directives.add(input.readUTF());
+            }
+            byte[] sql = new byte[input.readInt()];
+            input.readFully(sql);
+            statements.add(new SqlStatement(new String(sql, StandardCharsets.UTF_8), lineNumber, block, directives));
+        }
+        return Collections.unmodifiableList(statements);
+    }
+
+    /**
+     * @param outputStream target, not closed
+     * @param dialect      dialect the statements were parsed with
+     * @param checksum     checksum of the script
+     * @param statements   parsed statements
+     * @throws IOException on write errors
+     */
+    static void write(OutputStream outputStream, ScriptDialect dialect, String checksum, List<SqlStatement> statements) throws IOException {
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(outputStream));
+        output.writeInt(MAGIC);
+        output.writeInt(FORMAT_VERSION);
+        output.writeUTF(dialect.name());
+        output.writeUTF(checksum);
+        output.writeInt(statements.size());
+        for (SqlStatement statement : statements) {
+            output.writeInt(statement.getLineNumber());
+            output.writeBoolean(statement.isBlock());
+            output.writeByte(statement.getDirectives().size());
+            for (String directive : statement.getDirectives()) {
+                output.writeUTF(directive);
+            }
+            byte[] sql = statement.getSql().getBytes(StandardCharsets.UTF_8);
+            output.writeInt(sql.length);
+            output.write(sql);
+        }
+        output.flush();
+    }
+}
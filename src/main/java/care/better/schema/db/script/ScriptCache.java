@@ -0,0 +1,185 @@
+package care.better.schema.db.script;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+
+/**
+ * Cache of parsed scripts shared between schema initializers, e.g. when upgrading many tenant databases with the same
+ * scripts. Entries are keyed by resource, checksum and dialect, and the cache is bounded by the total length of the
+ * cached statements.
+ */
+public final class ScriptCache {
+    private static final long SHARED_SIZE = 32L * 1024L * 1024L;
+    private static final ScriptCache SHARED = new ScriptCache(SHARED_SIZE);
+
+    private final Cache<Key, List<SqlStatement>> cache;
+
+    /**
+     * @param maximumSize maximum total number of characters of cached statements
+     */
+    public ScriptCache(long maximumSize) {
+        cache = CacheBuilder.newBuilder()
+                .maximumWeight(maximumSize)
+                // a single segment, since every segment is bounded by its share of the weight and evicts larger scripts
+                .concurrencyLevel(1)
+                .weigher((Key key, List<SqlStatement> statements) -> weigh(statements))
+                .build();
+    }
+
+    /**
+     * @return process-wide cache to share between all schema initializers, bounded to 32M characters of statements
+     */
+    public static ScriptCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * @param resource script resource
+     * @param checksum checksum of the script contents
+     * @param dialect  script dialect
+     * @param opener   opens the script when it is not cached yet
+     * @return parsed statements
+     * @throws IOException if the script can not be read
+     */
+    public List<SqlStatement> get(String resource, String checksum, ScriptDialect dialect, Callable<InputStream> opener) throws IOException {
+        return get(new Key(resource, checksum, dialect), () -> read(resource, dialect, opener));
+    }
+
+    /**
+     * Loads a script, preferring its precompiled form {@code {resource}.bin} (see {@link ScriptPrecompiler}) that is
+     * read without parsing. Without a known checksum the script is hashed, so a precompiled script is only used when it
+     * was compiled from the same contents, and the script is only parsed if its contents are not cached yet. A
+     * precompiled script of another dialect or checksum is ignored.
+     *
+     * @param resource  script resource
+     * @param checksum  checksum of the script contents, e.g. from an upgrade manifest, {@code null} if it is not known
+     * @param dialect   script dialect
+     * @param resources opens resources, returns {@code null} for missing ones
+     * @return parsed statements, {@code null} if the script does not exist
+     * @throws IOException if the script can not be read
+     */
+    public List<SqlStatement> load(String resource, String checksum, ScriptDialect dialect, Function<String, InputStream> resources) throws IOException {
+        byte[] contents = null;
+        String scriptChecksum = checksum;
+        if (scriptChecksum == null) {
+            try (InputStream inputStream = resources.apply(resource)) {
+                if (inputStream == null) {
+                    return null;
+                }
+                contents = inputStream.readAllBytes();
+            }
+            scriptChecksum = Hashing.sha256().hashBytes(contents).toString();
+        }
+        Key key = new Key(resource, scriptChecksum, dialect);
+        List<SqlStatement> statements = cache.getIfPresent(key);
+        if (statements != null) {
+            return statements;
+        }
+        try (InputStream inputStream = resources.apply(resource + PrecompiledScript.SUFFIX)) {
+            PrecompiledScript script = inputStream == null ? null : PrecompiledScript.open(inputStream);
+            if (script != null && script.getDialect() == dialect && scriptChecksum.equals(script.getChecksum())) {
+                return get(key, script::readStatements);
+            }
+        }
+        if (contents == null) {
+            return get(key, () -> read(resource, dialect, () -> resources.apply(resource)));
+        }
+        byte[] script = contents;
+        return get(key, () -> parse(new ByteArrayInputStream(script), dialect));
+    }
+
+    private List<SqlStatement> get(Key key, Callable<List<SqlStatement>> loader) throws IOException {
+        try {
+            return cache.get(key, loader);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException)e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (UncheckedExecutionException e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw e;
+        }
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    private static List<SqlStatement> read(String resource, ScriptDialect dialect, Callable<InputStream> opener) throws Exception {
+        try (InputStream inputStream = opener.call()) {
+            if (inputStream == null) {
+                throw new IOException("Script " + resource + " not found");
+            }
+            return parse(inputStream, dialect);
+        }
+    }
+
+    static List<SqlStatement> parse(InputStream inputStream, ScriptDialect dialect) throws IOException {
+        List<SqlStatement> statements = new ArrayList<>();
+        try (SqlScriptReader scriptReader = new SqlScriptReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8), dialect)) {
+            SqlStatement statement;
+            while ((statement = scriptReader.readStatement()) != null) {
+                statements.add(statement);
+            }
+        }
+        return Collections.unmodifiableList(statements);
+    }
+
+    private static int weigh(List<SqlStatement> statements) {
+        long weight = 0L;
+        for (SqlStatement statement : statements) {
+            weight += statement.getSql().length();
+        }
+        return (int)Math.min(weight, Integer.MAX_VALUE);
+    }
+
+    private static final class Key {
+        private final String resource;
+        private final String checksum;
+        private final ScriptDialect dialect;
+
+        private Key(String resource, String checksum, ScriptDialect dialect) {
+            this.resource = resource;
+            this.checksum = checksum;
+            this.dialect = dialect;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key)o;
+            return resource.equals(key.resource) && Objects.equals(checksum, key.checksum) && dialect == key.dialect;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(resource, checksum, dialect);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package care.better.schema.db.script;
+
+import java.util.Locale;
+
+/**
+ * Lexical rules of the SQL scripts for each supported dialect directory (see {@code /schema/upgrades/{db_name}}).
+ */
+public enum ScriptDialect {
+    PGSQL("pgsql", true, false, false, true),
+    ORA("ora", false, true, true, false),
+    H2("h2", true, false, false, false),
+    MSSQL("mssql", false, true, false, false),
+    MYSQL("mysql", false, true, false, false),
+    IGNITE("ignite", false, false, false, false),
+    GENERIC("", false, false, false, false);
+
+    private final String directoryPrefix;
+    private final boolean dollarQuoting;
+    private final boolean blocks;
+    private final boolean plSql;
+    private final boolean nestedComments;
+
+    ScriptDialect(String directoryPrefix, boolean dollarQuoting, boolean blocks, boolean plSql, boolean nestedComments) {
+        this.directoryPrefix = directoryPrefix;
+        this.dollarQuoting = dollarQuoting;
+        this.blocks = blocks;
+        this.plSql = plSql;
+        this.nestedComments = nestedComments;
+    }
+
+    /**
+     * @param dialectDir dialect directory name, e.g. {@code pgsql} or {@code mssql2012}
+     * @return matching script dialect or {@link #GENERIC} when the directory is unknown
+     */
+    public static ScriptDialect forDirectory(String dialectDir) {
+        if (dialectDir != null) {
+            String dir = dialectDir.toLowerCase(Locale.ROOT);
+            for (ScriptDialect scriptDialect : values()) {
+                if (scriptDialect != GENERIC && dir.startsWith(scriptDialect.directoryPrefix)) {
+                    return scriptDialect;
+                }
+            }
+        }
+        return GENERIC;
+    }
+
+    /**
+     * @return true if {@code $tag$ ... $tag$} quoted bodies are recognized
+     */
+    public boolean isDollarQuoting() {
+        return dollarQuoting;
+    }
+
+    /**
+     * @return true if {@code BEGIN ... END} blocks may contain semicolons that do not terminate the statement
+     */
+    public boolean isBlocks() {
+        return blocks;
+    }
+
+    /**
+     * @return true if PL/SQL program units are recognized and terminated with {@code END;} or a line containing a single {@code /}
+     */
+    public boolean isPlSql() {
+        return plSql;
+    }
+
+    /**
+     * @return true if {@code /* ... *&#47;} comments can be nested
+     */
+    public boolean isNestedComments() {
+        return nestedComments;
+    }
+
+    /**
+     * @return true if strings use backslash escapes
+     */
+    public boolean isBackslashEscapes() {
+        return this == MYSQL;
+    }
+
+    /**
+     * @return true if {@code #} starts a line comment
+     */
+    public boolean isHashComments() {
+        return this == MYSQL;
+    }
+
+    /**
+     * @return quote character for identifiers besides {@code "}, or 0 if there is none
+     */
+    public char getIdentifierQuote() {
+        if (this == MYSQL) {
+            return '`';
+        }
+        return this == MSSQL ? '[' : 0;
+    }
+
+    /**
+     * @return true if DDL statements are transactional, i.e. a failed upgrade can be rolled back completely
+     */
+    public boolean isTransactionalDdl() {
+        return this == PGSQL || this == MSSQL || this == H2;
+    }
+
+    /**
+     * @return true if the JDBC driver can execute statements of this dialect as a batch
+     */
+    public boolean isBatching() {
+        return this != IGNITE;
+    }
+
+    /**
+     * @return true if DDL statements can be part of a JDBC batch, otherwise only DML is batched
+     */
+    public boolean isDdlBatching() {
+        return this != ORA && this != IGNITE;
+    }
+
+    /**
+     * @return true if a line containing only {@code GO} separates statements
+     */
+    public boolean isBatchSeparator() {
+        return this == MSSQL;
+    }
+}
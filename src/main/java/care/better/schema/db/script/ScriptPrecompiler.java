@@ -0,0 +1,77 @@
+package care.better.schema.db.script;
+
+import com.google.common.base.Preconditions;
+import com.google.common.hash.Hashing;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Precompiles every script under {@code schema} of a build output directory to {@code {script}.bin}, which
+ * {@link ScriptCache#load} reads without parsing the script. The dialect of a script is taken from its directory
+ * ({@code schema/upgrades/{db_name}}, {@code schema/additional/{db_name}}) or from its name
+ * ({@code schema/{db_name}-schema.sql}). Meant to run in the {@code process-classes} phase, e.g. with the
+ * {@code exec-maven-plugin}:
+ * <pre>
+ * java care.better.schema.db.script.ScriptPrecompiler ${project.build.outputDirectory}
+ * </pre>
+ */
+public final class ScriptPrecompiler {
+    private static final String SCRIPTS_DIRECTORY = "schema";
+    private static final String SCRIPT_SUFFIX = ".sql";
+
+    private ScriptPrecompiler() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        Preconditions.checkArgument(args.length == 1, "Usage: ScriptPrecompiler <build output directory>");
+        List<Path> precompiled = generate(Paths.get(args[0]));
+        System.err.println("Precompiled " + precompiled.size() + " scripts in " + Paths.get(args[0]).toAbsolutePath());
+    }
+
+    /**
+     * @param outputDirectory build output directory containing the {@code schema} directory
+     * @return generated precompiled scripts
+     * @throws IOException on read or write errors
+     */
+    public static List<Path> generate(Path outputDirectory) throws IOException {
+        Path scriptsRoot = outputDirectory.resolve(SCRIPTS_DIRECTORY);
+        List<Path> precompiled = new ArrayList<>();
+        if (!Files.isDirectory(scriptsRoot)) {
+            return precompiled;
+        }
+        List<Path> scripts;
+        try (Stream<Path> stream = Files.walk(scriptsRoot)) {
+            scripts = stream.filter(path -> Files.isRegularFile(path) && path.getFileName().toString().endsWith(SCRIPT_SUFFIX))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+        for (Path script : scripts) {
+            byte[] contents = Files.readAllBytes(script);
+            ScriptDialect dialect = getDialect(scriptsRoot, script);
+            List<SqlStatement> statements = ScriptCache.parse(new ByteArrayInputStream(contents), dialect);
+            Path target = script.resolveSibling(script.getFileName() + PrecompiledScript.SUFFIX);
+            try (OutputStream outputStream = Files.newOutputStream(target)) {
+                PrecompiledScript.write(outputStream, dialect, Hashing.sha256().hashBytes(contents).toString(), statements);
+            }
+            precompiled.add(target);
+        }
+        return precompiled;
+    }
+
+    private static ScriptDialect getDialect(Path scriptsRoot, Path script) {
+        Path directory = script.getParent();
+        if (directory.equals(scriptsRoot)) {
+            return ScriptDialect.forDirectory(script.getFileName().toString());
+        }
+        return ScriptDialect.forDirectory(directory.getFileName().toString());
+    }
+}
@@ -0,0 +1,613 @@
+package care.better.schema.db.script;
+
+import com.google.common.collect.ImmutableSet;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Incremental SQL script tokenizer. Statements are read one at a time, so memory is bounded by the largest statement
+ * and not by the size of the script.
+ * <p>
+ * A statement ends with a {@code ;} or a blank line outside of quotes, comments, dollar quoted bodies and procedural
+ * blocks. Line comments are removed, leading block comments are skipped and whitespace outside of quoted text is
+ * collapsed. PL/SQL program units ({@code DECLARE}, {@code BEGIN}, {@code CREATE PROCEDURE} ...) end with the
+ * {@code ;} after their final {@code END} or with a line containing a single {@code /}; package specifications and
+ * bodies require the {@code /} line. On SQL Server a line containing only {@code GO} also ends a statement. MySQL
+ * routines end with the {@code ;} after the {@code END} of their body, or with the delimiter set by a
+ * {@code DELIMITER} line, e.g. {@code DELIMITER //}, which also disables the {@code ;} and blank line terminators until
+ * {@code DELIMITER ;}.
+ * <p>
+ * Line comments starting with {@code @} are directives, e.g. {@code -- @online}. A directive applies to the statement
+ * that follows it; directives at the top of the script that are followed by a blank line apply to every statement of
+ * the script. See {@link SqlStatement} for the supported directives.
+ */
+@SuppressWarnings("HardcodedLineSeparator")
+public final class SqlScriptReader implements Closeable {
+    private static final int BUFFER_SIZE = 8192;
+    private static final int MAX_LOOKAHEAD = 256;
+    private static final int HEAD_WORDS = 6;
+
+    private static final Set<String> TRANSACTION_WORDS = ImmutableSet.of("TRAN", "TRANSACTION", "DISTRIBUTED", "WORK");
+    private static final Set<String> END_CONTINUATIONS = ImmutableSet.of("IF", "LOOP", "WHILE", "REPEAT");
+    private static final Set<String> CREATE_MODIFIERS = ImmutableSet.of("OR", "REPLACE", "ALTER", "EDITIONABLE", "NONEDITIONABLE");
+    private static final Set<String> ROUTINES = ImmutableSet.of("PROCEDURE", "PROC", "FUNCTION", "TRIGGER");
+
+    private final Reader reader;
+    private final ScriptDialect dialect;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private boolean eof;
+
+    private int line = 1;
+    private boolean lineHasContent;
+
+    private final StringBuilder sql = new StringBuilder();
+    private final StringBuilder word = new StringBuilder();
+    private boolean pendingSpace;
+    private int startLine;
+
+    private final StringBuilder blocks = new StringBuilder();
+    private boolean blockSeen;
+    private boolean pendingBegin;
+    private boolean pendingEnd;
+    private int wordCount;
+    private boolean typeHead;
+    private boolean headDecided;
+    private boolean unit;
+    private boolean packageUnit;
+    private boolean unitComplete;
+
+    private String delimiter;
+
+    private final Set<String> directives = new HashSet<>();
+    private final Set<String> scriptDirectives = new HashSet<>();
+    private boolean header = true;
+
+    public SqlScriptReader(Reader reader, ScriptDialect dialect) {
+        this.reader = reader;
+        this.dialect = dialect;
+    }
+
+    /**
+     * Reads all statements of a script held in memory.
+     *
+     * @param script  script contents
+     * @param dialect script dialect
+     * @return list of statements
+     */
+    public static List<SqlStatement> readAll(String script, ScriptDialect dialect) {
+        List<SqlStatement> statements = new ArrayList<>();
+        try (SqlScriptReader scriptReader = new SqlScriptReader(new StringReader(script), dialect)) {
+            SqlStatement statement;
+            while ((statement = scriptReader.readStatement()) != null) {
+                statements.add(statement);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return statements;
+    }
+
+    /**
+     * @return next statement or {@code null} when the end of the script has been reached
+     * @throws IOException if the underlying reader fails
+     */
+    public SqlStatement readStatement() throws IOException {
+        while (true) {
+            int c = next();
+            if (c < 0) {
+                resolvePending(false);
+                return sql.length() > 0 ? emit() : null;
+            }
+
+            if (c == '\n') {
+                if (!lineHasContent && sql.length() == 0 && header && !directives.isEmpty()) {
+                    scriptDirectives.addAll(directives);
+                    directives.clear();
+                }
+                if (!lineHasContent && sql.length() > 0) {
+                    resolvePending(false);
+                    if (delimiter == null && isBlankLineTerminated()) {
+                        SqlStatement statement = emit();
+                        if (statement != null) {
+                            return statement;
+                        }
+                    }
+                }
+                lineHasContent = false;
+                pendingSpace = sql.length() > 0;
+                continue;
+            }
+            if (Character.isWhitespace(c)) {
+                pendingSpace = sql.length() > 0;
+                continue;
+            }
+
+            boolean lineStart = !lineHasContent;
+            lineHasContent = true;
+
+            if (delimiter != null && isDelimiter(c)) {
+                for (int i = 1; i < delimiter.length(); i++) {
+                    next();
+                }
+                resolvePending(false);
+                SqlStatement statement = emit();
+                if (statement != null) {
+                    return statement;
+                }
+            } else if (isWordStart(c)) {
+                SqlStatement statement = readWord((char)c, lineStart);
+                if (statement != null) {
+                    return statement;
+                }
+            } else if (c == ';') {
+                resolvePending(true);
+                if (delimiter == null && isSemicolonTerminated()) {
+                    SqlStatement statement = emit();
+                    if (statement != null) {
+                        return statement;
+                    }
+                } else {
+                    append(';');
+                }
+            } else if (c == '-' && peek(0) == '-' || c == '#' && dialect.isHashComments()) {
+                if (c == '-') {
+                    next();
+                }
+                readLineComment();
+            } else if (c == '/' && peek(0) == '*') {
+                next();
+                readBlockComment();
+            } else if (c == '/' && lineStart && dialect.isPlSql() && isRestOfLineBlank(0)) {
+                skipRestOfLine();
+                resolvePending(false);
+                SqlStatement statement = emit();
+                if (statement != null) {
+                    return statement;
+                }
+            } else {
+                resolvePending(false);
+                if (c == '\'') {
+                    readQuoted('\'', '\'', dialect.isBackslashEscapes() || isEscapeStringPrefix());
+                } else if (c == '"') {
+                    readQuoted('"', '"', false);
+                } else if (c == dialect.getIdentifierQuote()) {
+                    readQuoted((char)c, c == '[' ? ']' : (char)c, false);
+                } else if (c == '$' && dialect.isDollarQuoting()) {
+                    readDollarQuoted();
+                } else {
+                    append((char)c);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private SqlStatement readWord(char first, boolean lineStart) throws IOException {
+        word.setLength(0);
+        word.append(first);
+        while (isWordPart(peek(0))) {
+            word.append((char)next());
+        }
+
+        if (lineStart && dialect.isBatchSeparator() && word.length() == 2 && "GO".equalsIgnoreCase(word.toString()) && isRestOfLineBlank(0)) {
+            skipRestOfLine();
+            resolvePending(false);
+            return emit();
+        }
+
+        if (lineStart && dialect == ScriptDialect.MYSQL && sql.length() == 0 && "DELIMITER".equalsIgnoreCase(word.toString())) {
+            readDelimiter();
+            return null;
+        }
+
+        append(word);
+        if (dialect.isBlocks()) {
+            onWord(word.toString().toUpperCase(Locale.ROOT));
+        }
+        return null;
+    }
+
+    private void readDelimiter() throws IOException {
+        while (peek(0) == ' ' || peek(0) == '\t') {
+            next();
+        }
+        StringBuilder text = new StringBuilder();
+        int c;
+        while ((c = peek(0)) >= 0 && !Character.isWhitespace(c)) {
+            text.append((char)next());
+        }
+        skipRestOfLine();
+        delimiter = text.length() == 0 || ";".contentEquals(text) ? null : text.toString();
+    }
+
+    private boolean isDelimiter(int c) throws IOException {
+        if (c != delimiter.charAt(0)) {
+            return false;
+        }
+        for (int i = 1; i < delimiter.length(); i++) {
+            if (peek(i - 1) != delimiter.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void onWord(String upperWord) {
+        if (wordCount < HEAD_WORDS && !headDecided) {
+            detectUnit(upperWord);
+        }
+        wordCount++;
+
+        if (pendingBegin) {
+            pendingBegin = false;
+            if (!TRANSACTION_WORDS.contains(upperWord)) {
+                openBlock('B');
+            }
+        }
+        if (pendingEnd) {
+            pendingEnd = false;
+            if (END_CONTINUATIONS.contains(upperWord)) {
+                return;
+            }
+            closeBlock();
+            if ("CASE".equals(upperWord)) {
+                return;
+            }
+        }
+
+        switch (upperWord) {
+            case "BEGIN":
+                pendingBegin = true;
+                break;
+            case "CASE":
+                openBlock('C');
+                break;
+            case "END":
+                pendingEnd = true;
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void detectUnit(String upperWord) {
+        if (wordCount == 0) {
+            if ("DECLARE".equals(upperWord) || "BEGIN".equals(upperWord) && dialect.isPlSql()) {
+                unit = true;
+                headDecided = true;
+            } else {
+                headDecided = !"CREATE".equals(upperWord) && !"ALTER".equals(upperWord);
+            }
+        } else if (typeHead) {
+            unit = "BODY".equals(upperWord);
+            packageUnit = unit;
+            headDecided = true;
+        } else if (!CREATE_MODIFIERS.contains(upperWord)) {
+            if (ROUTINES.contains(upperWord)) {
+                unit = true;
+            } else if (dialect.isPlSql() && "PACKAGE".equals(upperWord)) {
+                unit = true;
+                packageUnit = true;
+            } else if (dialect.isPlSql() && "TYPE".equals(upperWord)) {
+                typeHead = true;
+            }
+            headDecided = !typeHead;
+        }
+    }
+
+    private void openBlock(char type) {
+        blocks.append(type);
+        blockSeen = true;
+    }
+
+    private void closeBlock() {
+        int depth = blocks.length();
+        if (depth > 0) {
+            char type = blocks.charAt(depth - 1);
+            blocks.setLength(depth - 1);
+            if (type == 'B' && depth == 1) {
+                unitComplete = true;
+            }
+        }
+    }
+
+    private void resolvePending(boolean semicolon) {
+        if (pendingBegin) {
+            pendingBegin = false;
+            if (!semicolon) {
+                openBlock('B');
+            }
+        }
+        if (pendingEnd) {
+            pendingEnd = false;
+            closeBlock();
+        }
+    }
+
+    private boolean isSemicolonTerminated() {
+        if (blocks.length() > 0) {
+            return false;
+        }
+        // MySQL routine bodies are a single statement or a BEGIN ... END block
+        return !unit || dialect == ScriptDialect.MYSQL || dialect.isPlSql() && unitComplete && !packageUnit;
+    }
+
+    private boolean isBlankLineTerminated() {
+        if (blocks.length() > 0) {
+            return false;
+        }
+        return !unit || !dialect.isPlSql() || unitComplete && !packageUnit;
+    }
+
+    private boolean isEscapeStringPrefix() {
+        int length = sql.length();
+        return dialect == ScriptDialect.PGSQL
+                && !pendingSpace
+                && length > 0
+                && Character.toUpperCase(sql.charAt(length - 1)) == 'E'
+                && (length == 1 || !isWordPart(sql.charAt(length - 2)));
+    }
+
+    private void readQuoted(char open, char close, boolean backslashEscapes) throws IOException {
+        append(open);
+        int c;
+        while ((c = next()) >= 0) {
+            sql.append((char)c);
+            if (backslashEscapes && c == '\\') {
+                int escaped = next();
+                if (escaped >= 0) {
+                    sql.append((char)escaped);
+                }
+            } else if (c == close) {
+                if (peek(0) == close) {
+                    sql.append((char)next());
+                } else {
+                    break;
+                }
+            }
+        }
+    }
+
+    private void readDollarQuoted() throws IOException {
+        int tagLength = 0;
+        if (peek(0) != '$') {
+            if (!Character.isLetter(peek(0)) && peek(0) != '_') {
+                append('$');
+                return;
+            }
+            while (tagLength < MAX_LOOKAHEAD && isTagPart(peek(tagLength))) {
+                tagLength++;
+            }
+            if (peek(tagLength) != '$') {
+                append('$');
+                return;
+            }
+        }
+
+        append('$');
+        int tagStart = sql.length() - 1;
+        for (int i = 0; i <= tagLength; i++) {
+            sql.append((char)next());
+        }
+        String tag = sql.substring(tagStart);
+        int bodyStart = sql.length();
+
+        int c;
+        while ((c = next()) >= 0) {
+            sql.append((char)c);
+            if (c == '$' && sql.length() - bodyStart >= tag.length() && endsWith(tag)) {
+                break;
+            }
+        }
+    }
+
+    private boolean endsWith(String suffix) {
+        int offset = sql.length() - suffix.length();
+        for (int i = 0; i < suffix.length(); i++) {
+            if (sql.charAt(offset + i) != suffix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void readBlockComment() throws IOException {
+        boolean keep = sql.length() > 0;
+        if (keep) {
+            append("/*");
+        }
+        int nesting = 1;
+        int c;
+        while (nesting > 0 && (c = next()) >= 0) {
+            if (keep) {
+                sql.append((char)c);
+            }
+            if (c == '*' && peek(0) == '/') {
+                nesting--;
+                consumeComment(keep);
+            } else if (c == '/' && peek(0) == '*' && dialect.isNestedComments()) {
+                nesting++;
+                consumeComment(keep);
+            }
+        }
+        pendingSpace = sql.length() > 0;
+    }
+
+    private void consumeComment(boolean keep) throws IOException {
+        int c = next();
+        if (keep) {
+            sql.append((char)c);
+        }
+    }
+
+    private void readLineComment() throws IOException {
+        while (peek(0) == ' ' || peek(0) == '\t') {
+            next();
+        }
+        if (peek(0) == '@') {
+            StringBuilder text = new StringBuilder();
+            int c;
+            while ((c = peek(0)) >= 0 && c != '\n') {
+                text.append((char)next());
+            }
+            for (String token : text.toString().trim().split("\\s+")) {
+                if (token.length() > 1 && token.charAt(0) == '@') {
+                    directives.add(token.substring(1).toLowerCase(Locale.ROOT));
+                }
+            }
+        } else {
+            skipRestOfLine();
+        }
+        pendingSpace = sql.length() > 0;
+    }
+
+    private void skipRestOfLine() throws IOException {
+        int c;
+        while ((c = peek(0)) >= 0 && c != '\n') {
+            next();
+        }
+    }
+
+    private boolean isRestOfLineBlank(int offset) throws IOException {
+        for (int i = offset; i < MAX_LOOKAHEAD; i++) {
+            int c = peek(i);
+            if (c < 0 || c == '\n') {
+                return true;
+            }
+            if (!Character.isWhitespace(c)) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private void append(char c) {
+        beforeAppend();
+        sql.append(c);
+    }
+
+    private void append(CharSequence text) {
+        beforeAppend();
+        sql.append(text);
+    }
+
+    private void beforeAppend() {
+        if (sql.length() == 0) {
+            startLine = line;
+        } else if (pendingSpace) {
+            sql.append(' ');
+        }
+        pendingSpace = false;
+    }
+
+    private SqlStatement emit() {
+        int end = sql.length();
+        while (end > 0 && Character.isWhitespace(sql.charAt(end - 1))) {
+            end--;
+        }
+        boolean plSqlUnit = unit && dialect.isPlSql();
+        if (!plSqlUnit && end > 0 && sql.charAt(end - 1) == ';') {
+            end--;
+            while (end > 0 && Character.isWhitespace(sql.charAt(end - 1))) {
+                end--;
+            }
+        }
+        sql.setLength(end);
+        if (plSqlUnit && end > 0 && sql.charAt(end - 1) != ';') {
+            sql.append(';');
+        }
+
+        SqlStatement statement = null;
+        if (sql.length() > 0) {
+            statement = new SqlStatement(sql.toString(), startLine, unit || blockSeen, getDirectives());
+            directives.clear();
+            header = false;
+        }
+        reset();
+        return statement;
+    }
+
+    private Set<String> getDirectives() {
+        if (directives.isEmpty()) {
+            return ImmutableSet.copyOf(scriptDirectives);
+        }
+        return ImmutableSet.<String>builder().addAll(scriptDirectives).addAll(directives).build();
+    }
+
+    private void reset() {
+        sql.setLength(0);
+        pendingSpace = false;
+        blocks.setLength(0);
+        blockSeen = false;
+        pendingBegin = false;
+        pendingEnd = false;
+        wordCount = 0;
+        typeHead = false;
+        headDecided = false;
+        unit = false;
+        packageUnit = false;
+        unitComplete = false;
+    }
+
+    private int next() throws IOException {
+        int c = peek(0);
+        if (c >= 0) {
+            position++;
+            if (c == '\n') {
+                line++;
+            }
+        }
+        return c;
+    }
+
+    private int peek(int offset) throws IOException {
+        while (position + offset >= limit) {
+            if (eof) {
+                return -1;
+            }
+            fill();
+        }
+        return buffer[position + offset];
+    }
+
+    private void fill() throws IOException {
+        if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, limit - position);
+            limit -= position;
+            position = 0;
+        }
+        int read = reader.read(buffer, limit, buffer.length - limit);
+        if (read < 0) {
+            eof = true;
+        } else {
+            limit += read;
+        }
+    }
+
+    private static boolean isWordStart(int c) {
+        return Character.isLetter(c) || c == '_';
+    }
+
+    private static boolean isWordPart(int c) {
+        return c >= 0 && (Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '#');
+    }
+
+    private static boolean isTagPart(int c) {
+        return c >= 0 && (Character.isLetterOrDigit(c) || c == '_');
+    }
+}
@@ -0,0 +1,103 @@
+package care.better.schema.db.script;
+
+import com.google.common.collect.ImmutableSet;
+
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Single executable statement read from an SQL script.
+ * <p>
+ * Supported directives:
+ * <ul>
+ * <li>{@code @nonTransactional}: the statement is executed outside of the upgrade transaction, with auto-commit
+ * enabled</li>
+ * <li>{@code @online}: like {@code @nonTransactional}, and the statement is rewritten to its non-blocking form where the
+ * database supports it, e.g. {@code CREATE INDEX CONCURRENTLY} on PostgreSQL or {@code WITH (ONLINE = ON)} on
+ * SQL Server</li>
+ * </ul>
+ */
+public final class SqlStatement {
+    public static final String NON_TRANSACTIONAL = "nontransactional";
+    public static final String ONLINE = "online";
+
+    private final String sql;
+    private final int lineNumber;
+    private final boolean block;
+    private final Set<String> directives;
+    private final String command;
+
+    public SqlStatement(String sql, int lineNumber, boolean block) {
+        this(sql, lineNumber, block, ImmutableSet.of());
+    }
+
+    public SqlStatement(String sql, int lineNumber, boolean block, Set<String> directives) {
+        this.sql = sql;
+        this.lineNumber = lineNumber;
+        this.block = block;
+        this.directives = ImmutableSet.copyOf(directives);
+        command = parseCommand(sql);
+    }
+
+    /**
+     * @return statement text without the trailing delimiter (PL/SQL blocks keep their closing {@code ;})
+     */
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * @return line of the script on which the statement starts
+     */
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * @return first keyword of the statement in upper case, e.g. {@code CREATE} or {@code INSERT}
+     */
+    public String getCommand() {
+        return command;
+    }
+
+    /**
+     * @return true if the statement is a procedural block ({@code BEGIN ... END}, PL/SQL unit)
+     */
+    public boolean isBlock() {
+        return block;
+    }
+
+    /**
+     * @return lower case names of the directives that apply to the statement, without the leading {@code @}
+     */
+    public Set<String> getDirectives() {
+        return directives;
+    }
+
+    /**
+     * @return true if the statement is marked as {@code @online}
+     */
+    public boolean isOnline() {
+        return directives.contains(ONLINE);
+    }
+
+    /**
+     * @return true if the statement must be executed outside of the upgrade transaction
+     */
+    public boolean isNonTransactional() {
+        return directives.contains(NON_TRANSACTIONAL) || directives.contains(ONLINE);
+    }
+
+    private static String parseCommand(String sql) {
+        int end = 0;
+        while (end < sql.length() && Character.isLetter(sql.charAt(end))) {
+            end++;
+        }
+        return sql.substring(0, end).toUpperCase(Locale.ROOT);
+    }
+
+    @Override
+    public String toString() {
+        return sql;
+    }
+}
@@ -0,0 +1,81 @@
+package care.better.schema.db.script;
+
+/**
+ * Estimated cost of a script statement on a large table, see {@link StatementCostClassifier}.
+ */
+public final class StatementCost {
+    /**
+     * Kind of work done by the database.
+     */
+    public enum Kind {
+        /**
+         * Catalog change only, independent of the table size.
+         */
+        METADATA_ONLY,
+        /**
+         * Reads every row of the table, e.g. to validate a constraint.
+         */
+        TABLE_SCAN,
+        /**
+         * Builds an index over every row of the table.
+         */
+        INDEX_BUILD,
+        /**
+         * Rewrites every row of the table, e.g. a column type change.
+         */
+        TABLE_REWRITE,
+        /**
+         * Inserts, updates or deletes rows.
+         */
+        DATA_CHANGE,
+        /**
+         * Statement not recognized by the classifier.
+         */
+        UNKNOWN
+    }
+
+    private final SqlStatement statement;
+    private final Kind kind;
+    private final boolean slow;
+    private final boolean blocking;
+    private final String description;
+
+    public StatementCost(SqlStatement statement, Kind kind, boolean slow, boolean blocking, String description) {
+        this.statement = statement;
+        this.kind = kind;
+        this.slow = slow;
+        this.blocking = blocking;
+        this.description = description;
+    }
+
+    public SqlStatement getStatement() {
+        return statement;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * @return true if the statement blocks writes to the table while it runs
+     */
+    public boolean isBlocking() {
+        return blocking;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * @return true if the statement takes time proportional to the table size
+     */
+    public boolean isSlow() {
+        return slow;
+    }
+
+    @Override
+    public String toString() {
+        return kind + (slow ? blocking ? " (slow, blocking)" : " (slow)" : "") + ": " + description;
+    }
+}
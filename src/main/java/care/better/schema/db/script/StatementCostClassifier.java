@@ -0,0 +1,111 @@
+package care.better.schema.db.script;
+
+import java.util.regex.Pattern;
+
+/**
+ * Classifies script statements by their cost on large tables, so that slow or blocking operations (non-concurrent
+ * index builds, table rewrites, constraint validation, bulk data changes) are noticed before they reach production.
+ * The classification is a static estimate based on the statement text and the dialect.
+ */
+public final class StatementCostClassifier {
+    private static final Pattern CREATE_INDEX = pattern("^CREATE\\s+(UNIQUE\\s+|BITMAP\\s+|CLUSTERED\\s+|NONCLUSTERED\\s+|SPATIAL\\s+|FULLTEXT\\s+)*INDEX\\b");
+    private static final Pattern CREATE_TABLE_AS = pattern("^CREATE\\s+.*\\bTABLE\\b.*\\bAS\\s*\\(?\\s*SELECT\\b");
+    private static final Pattern ALTER_TABLE = pattern("^ALTER\\s+TABLE\\b");
+    private static final Pattern ONLINE_INDEX = pattern("\\bCONCURRENTLY\\b|\\bONLINE\\s*=\\s*ON\\b|\\bONLINE\\s*$|\\bALGORITHM\\s*=\\s*INPLACE\\b");
+    private static final Pattern ADD_INDEX_CONSTRAINT = pattern("\\bADD\\s+(CONSTRAINT\\s+\\S+\\s+)?(PRIMARY\\s+KEY|UNIQUE)\\b");
+    private static final Pattern ADD_VALIDATED_CONSTRAINT = pattern("\\bADD\\s+(CONSTRAINT\\s+\\S+\\s+)?(FOREIGN\\s+KEY|CHECK)\\b");
+    private static final Pattern NOT_VALIDATED = pattern("\\bNOT\\s+VALID\\b|\\bNOVALIDATE\\b|\\bWITH\\s+NOCHECK\\b");
+    private static final Pattern TYPE_CHANGE = pattern("\\bALTER\\s+(COLUMN\\s+)?\\S+\\s+(SET\\s+DATA\\s+)?TYPE\\b");
+    private static final Pattern SQL_SERVER_TYPE_CHANGE = pattern("\\bALTER\\s+COLUMN\\s+\\S+\\s+(?!SET\\b|DROP\\b|ADD\\b)\\w+");
+    private static final Pattern MODIFY_COLUMN = pattern("\\bMODIFY\\b");
+    private static final Pattern SET_NOT_NULL = pattern("\\bSET\\s+NOT\\s+NULL\\b");
+    private static final Pattern DROP_COLUMN = pattern("\\bDROP\\s+(COLUMN\\s+)?(?!CONSTRAINT\\b|PRIMARY\\b|FOREIGN\\b|INDEX\\b|DEFAULT\\b|NOT\\b)\\S+");
+    private static final Pattern VOLATILE_DEFAULT = pattern(
+            "\\bADD\\s+(COLUMN\\s+)?\\S+\\s+(BIG|SMALL)?SERIAL\\b|\\bADD\\b.*\\bDEFAULT\\s+\\(?\\s*(NEXTVAL|RANDOM|CLOCK_TIMESTAMP|GEN_RANDOM_UUID|UUID_GENERATE_V4)\\b|\\bADD\\b.*\\bGENERATED\\s+ALWAYS\\s+AS\\s*\\(.*\\)\\s*STORED\\b");
+    private static final Pattern SELECT = pattern("\\bSELECT\\b");
+
+    private final ScriptDialect dialect;
+
+    public StatementCostClassifier(ScriptDialect dialect) {
+        this.dialect = dialect;
+    }
+
+    /**
+     * @param statement script statement
+     * @return estimated cost of the statement on a large table
+     */
+    public StatementCost classify(SqlStatement statement) {
+        String sql = statement.getSql();
+        if (statement.isBlock()) {
+            return cost(statement, StatementCost.Kind.UNKNOWN, false, false, "procedural block");
+        }
+        switch (statement.getCommand()) {
+            case "CREATE":
+                if (CREATE_INDEX.matcher(sql).find()) {
+                    if (statement.isOnline() || ONLINE_INDEX.matcher(sql).find()) {
+                        return cost(statement, StatementCost.Kind.INDEX_BUILD, true, false, "online index build");
+                    }
+                    return cost(statement, StatementCost.Kind.INDEX_BUILD, true, true, "index build blocks writes to the table, consider @online");
+                }
+                if (CREATE_TABLE_AS.matcher(sql).find()) {
+                    return cost(statement, StatementCost.Kind.DATA_CHANGE, true, false, "copies rows into a new table");
+                }
+                return cost(statement, StatementCost.Kind.METADATA_ONLY, false, false, "creates an object");
+            case "ALTER":
+                return ALTER_TABLE.matcher(sql).find() ? classifyAlterTable(statement) : cost(statement, StatementCost.Kind.METADATA_ONLY, false, false, "alters an object");
+            case "DROP":
+            case "COMMENT":
+            case "GRANT":
+            case "REVOKE":
+            case "RENAME":
+            case "TRUNCATE":
+                return cost(statement, StatementCost.Kind.METADATA_ONLY, false, false, "catalog change");
+            case "INSERT":
+                return SELECT.matcher(sql).find()
+                        ? cost(statement, StatementCost.Kind.DATA_CHANGE, true, false, "copies rows in a single transaction")
+                        : cost(statement, StatementCost.Kind.DATA_CHANGE, false, false, "inserts rows");
+            case "UPDATE":
+            case "DELETE":
+            case "MERGE":
+                return cost(statement, StatementCost.Kind.DATA_CHANGE, true, false, "changes rows in a single transaction");
+            default:
+                return cost(statement, StatementCost.Kind.UNKNOWN, false, false, "not classified");
+        }
+    }
+
+    private StatementCost classifyAlterTable(SqlStatement statement) {
+        String sql = statement.getSql();
+        if (TYPE_CHANGE.matcher(sql).find()
+                || dialect == ScriptDialect.MSSQL && SQL_SERVER_TYPE_CHANGE.matcher(sql).find()
+                || (dialect == ScriptDialect.ORA || dialect == ScriptDialect.MYSQL) && MODIFY_COLUMN.matcher(sql).find()) {
+            return cost(statement, StatementCost.Kind.TABLE_REWRITE, true, true, "column change may rewrite the table while blocking it");
+        }
+        if (dialect == ScriptDialect.PGSQL && VOLATILE_DEFAULT.matcher(sql).find()) {
+            return cost(statement, StatementCost.Kind.TABLE_REWRITE, true, true, "column with a volatile default rewrites the table while blocking it");
+        }
+        if ((dialect == ScriptDialect.ORA || dialect == ScriptDialect.MYSQL) && DROP_COLUMN.matcher(sql).find()) {
+            return cost(statement, StatementCost.Kind.TABLE_REWRITE, true, true, "dropping a column rewrites the table");
+        }
+        if (ADD_INDEX_CONSTRAINT.matcher(sql).find()) {
+            return cost(statement, StatementCost.Kind.INDEX_BUILD, true, true, "constraint builds an index while blocking writes to the table");
+        }
+        if (ADD_VALIDATED_CONSTRAINT.matcher(sql).find()) {
+            if (statement.isOnline() || NOT_VALIDATED.matcher(sql).find()) {
+                return cost(statement, StatementCost.Kind.METADATA_ONLY, false, false, "constraint added without validation");
+            }
+            return cost(statement, StatementCost.Kind.TABLE_SCAN, true, true, "constraint validation scans the table while blocking writes, consider @online");
+        }
+        if (SET_NOT_NULL.matcher(sql).find()) {
+            return cost(statement, StatementCost.Kind.TABLE_SCAN, true, true, "NOT NULL validation scans the table while blocking it");
+        }
+        return cost(statement, StatementCost.Kind.METADATA_ONLY, false, false, "alters the table definition");
+    }
+
+    private static StatementCost cost(SqlStatement statement, StatementCost.Kind kind, boolean slow, boolean blocking, String description) {
+        return new StatementCost(statement, kind, slow, blocking, description);
+    }
+
+    private static Pattern pattern(String regex) {
+        return Pattern.compile(regex, Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+    }
+}
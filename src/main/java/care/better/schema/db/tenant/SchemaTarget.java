@@ -0,0 +1,42 @@
+package care.better.schema.db.tenant;
+
+import care.better.schema.db.SchemaInitializer;
+import com.google.common.base.Preconditions;
+
+/**
+ * Tenant schema upgraded by {@link SchemaUpgradeOrchestrator}.
+ */
+public final class SchemaTarget {
+    private final String name;
+    private final String serverKey;
+    private final SchemaInitializer initializer;
+
+    /**
+     * @param name        tenant name used in results and logs
+     * @param serverKey   database server of the tenant (e.g. host and port), targets with the same key share the per
+     *                    server concurrency limit
+     * @param initializer initializer of the tenant schema
+     */
+    public SchemaTarget(String name, String serverKey, SchemaInitializer initializer) {
+        this.name = Preconditions.checkNotNull(name, "name");
+        this.serverKey = Preconditions.checkNotNull(serverKey, "serverKey");
+        this.initializer = Preconditions.checkNotNull(initializer, "initializer");
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getServerKey() {
+        return serverKey;
+    }
+
+    public SchemaInitializer getInitializer() {
+        return initializer;
+    }
+
+    @Override
+    public String toString() {
+        return name + '@' + serverKey;
+    }
+}
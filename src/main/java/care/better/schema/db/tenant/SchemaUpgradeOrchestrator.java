@@ -0,0 +1,164 @@
+package care.better.schema.db.tenant;
+
+import care.better.schema.db.impl.SchemaInitializerImpl;
+import care.better.schema.db.script.ScriptCache;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Upgrades many tenant schemas concurrently with {@link care.better.schema.db.SchemaInitializer#initializeOrUpdate()}.
+ * <p>
+ * Targets are executed on a fixed pool of worker threads. At most {@code maxConcurrentPerServer} targets of the same
+ * database server are upgraded at the same time; servers take turns, so a server with many tenants does not hold up
+ * the others. Parsed upgrade scripts are shared between {@link SchemaInitializerImpl} targets through a
+ * {@link ScriptCache}, and upgrade manifests are shared per class loader by {@link SchemaInitializerImpl} itself.
+ */
+public class SchemaUpgradeOrchestrator {
+    private static final Logger log = LoggerFactory.getLogger(SchemaUpgradeOrchestrator.class);
+    private static final long DEFAULT_SCRIPT_CACHE_SIZE = 64L * 1024L * 1024L;
+
+    private final int parallelism;
+    private final int maxConcurrentPerServer;
+    private final ScriptCache scriptCache;
+
+    /**
+     * @param parallelism            number of worker threads
+     * @param maxConcurrentPerServer maximum number of targets of a database server upgraded at the same time
+     */
+    public SchemaUpgradeOrchestrator(int parallelism, int maxConcurrentPerServer) {
+        this(parallelism, maxConcurrentPerServer, new ScriptCache(DEFAULT_SCRIPT_CACHE_SIZE));
+    }
+
+    /**
+     * @param parallelism            number of worker threads
+     * @param maxConcurrentPerServer maximum number of targets of a database server upgraded at the same time
+     * @param scriptCache            cache of parsed scripts set on {@link SchemaInitializerImpl} targets, {@code null}
+     *                               leaves the targets unchanged
+     */
+    public SchemaUpgradeOrchestrator(int parallelism, int maxConcurrentPerServer, ScriptCache scriptCache) {
+        Preconditions.checkArgument(parallelism >= 1, "Parallelism must be at least 1");
+        Preconditions.checkArgument(maxConcurrentPerServer >= 1, "Concurrency per server must be at least 1");
+        this.parallelism = parallelism;
+        this.maxConcurrentPerServer = maxConcurrentPerServer;
+        this.scriptCache = scriptCache;
+    }
+
+    /**
+     * Initializes or upgrades all targets. A failed target does not stop the others.
+     *
+     * @param targets tenant schemas
+     * @return results in the order of the targets
+     * @throws InterruptedException if the calling thread is interrupted while waiting for the upgrades
+     */
+    public List<SchemaUpgradeResult> upgradeAll(Collection<SchemaTarget> targets) throws InterruptedException {
+        Instant submittedAt = Instant.now();
+        SchemaUpgradeResult[] results = new SchemaUpgradeResult[targets.size()];
+        CountDownLatch remaining = new CountDownLatch(targets.size());
+
+        Map<String, Queue<Task>> queues = new LinkedHashMap<>();
+        int index = 0;
+        for (SchemaTarget target : targets) {
+            if (scriptCache != null && target.getInitializer() instanceof SchemaInitializerImpl) {
+                ((SchemaInitializerImpl)target.getInitializer()).setScriptCache(scriptCache);
+            }
+            queues.computeIfAbsent(target.getServerKey(), key -> new ConcurrentLinkedQueue<>()).add(new Task(index++, target));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(
+                parallelism,
+                new ThreadFactoryBuilder().setNameFormat("schema-upgrade-%d").setDaemon(true).build());
+        try {
+            for (Queue<Task> queue : queues.values()) {
+                for (int i = Math.min(queue.size(), maxConcurrentPerServer); i > 0; i--) {
+                    executor.execute(new Lane(queue, executor, results, remaining, submittedAt));
+                }
+            }
+            remaining.await();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        List<SchemaUpgradeResult> resultList = new ArrayList<>(Arrays.asList(results));
+        long failed = resultList.stream().filter(result -> !result.isSuccess()).count();
+        log.info(
+                "Upgraded {} schemas on {} servers in {} ms, {} failed",
+                resultList.size() - failed,
+                queues.size(),
+                Duration.between(submittedAt, Instant.now()).toMillis(),
+                failed);
+        return resultList;
+    }
+
+    private static final class Task {
+        private final int index;
+        private final SchemaTarget target;
+
+        private Task(int index, SchemaTarget target) {
+            this.index = index;
+            this.target = target;
+        }
+    }
+
+    /**
+     * Upgrades targets of one server one at a time, requeueing itself after each target so servers take turns.
+     */
+    private static final class Lane implements Runnable {
+        private final Queue<Task> queue;
+        private final ExecutorService executor;
+        private final SchemaUpgradeResult[] results;
+        private final CountDownLatch remaining;
+        private final Instant submittedAt;
+
+        private Lane(Queue<Task> queue, ExecutorService executor, SchemaUpgradeResult[] results, CountDownLatch remaining, Instant submittedAt) {
+            this.queue = queue;
+            this.executor = executor;
+            this.results = results;
+            this.remaining = remaining;
+            this.submittedAt = submittedAt;
+        }
+
+        @Override
+        public void run() {
+            Task task = queue.poll();
+            if (task == null) {
+                return;
+            }
+            Instant startedAt = Instant.now();
+            Throwable failure = null;
+            try {
+                log.info("Upgrading schema {}", task.target);
+                task.target.getInitializer().initializeOrUpdate();
+            } catch (Throwable t) {
+                log.error("Upgrade of schema {} failed", task.target, t);
+                failure = t;
+            } finally {
+                results[task.index] = new SchemaUpgradeResult(
+                        task.target,
+                        startedAt,
+                        Duration.between(submittedAt, startedAt),
+                        Duration.between(startedAt, Instant.now()),
+                        failure);
+                remaining.countDown();
+            }
+            if (!queue.isEmpty() && !executor.isShutdown()) {
+                executor.execute(this);
+            }
+        }
+    }
+}
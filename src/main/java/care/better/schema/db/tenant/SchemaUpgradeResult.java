@@ -0,0 +1,61 @@
+package care.better.schema.db.tenant;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Outcome of the upgrade of a single {@link SchemaTarget}.
+ */
+public final class SchemaUpgradeResult {
+    private final SchemaTarget target;
+    private final Instant startedAt;
+    private final Duration queueTime;
+    private final Duration duration;
+    private final Throwable failure;
+
+    SchemaUpgradeResult(SchemaTarget target, Instant startedAt, Duration queueTime, Duration duration, Throwable failure) {
+        this.target = target;
+        this.startedAt = startedAt;
+        this.queueTime = queueTime;
+        this.duration = duration;
+        this.failure = failure;
+    }
+
+    public SchemaTarget getTarget() {
+        return target;
+    }
+
+    public boolean isSuccess() {
+        return failure == null;
+    }
+
+    /**
+     * @return failure of the upgrade or {@code null} if it succeeded
+     */
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    /**
+     * @return time the target waited for a free worker and for the concurrency limit of its server
+     */
+    public Duration getQueueTime() {
+        return queueTime;
+    }
+
+    /**
+     * @return duration of the upgrade itself
+     */
+    public Duration getDuration() {
+        return duration;
+    }
+
+    @Override
+    public String toString() {
+        return target + (failure == null ? " upgraded" : " failed: " + failure) + " in " + duration.toMillis() + " ms (queued " + queueTime.toMillis() + " ms)";
+    }
+}
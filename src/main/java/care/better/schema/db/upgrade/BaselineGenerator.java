@@ -0,0 +1,112 @@
+package care.better.schema.db.upgrade;
+
+import care.better.schema.db.script.ScriptDialect;
+import care.better.schema.db.script.SqlScriptReader;
+import care.better.schema.db.script.SqlStatement;
+import com.google.common.base.Preconditions;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Squashes the upgrade scripts of a range of versions into {@code baseline-{toVersion}.sql}, which
+ * {@link care.better.schema.db.impl.SchemaInitializerImpl} executes instead of the individual scripts when the schema
+ * is at {@code fromVersion}:
+ * <pre>
+ * java care.better.schema.db.upgrade.BaselineGenerator src/main/resources/schema/upgrades/pgsql 100 300
+ * </pre>
+ * The squashed script executes the statements of all versions in a single pass, without a version update and commit
+ * per version. It can then be consolidated by hand (e.g. a column that is added and later dropped) and checked against
+ * the replayed chain with {@link BaselineVerifier}. Versions with a {@link DbUpgrade} implementation can not be squashed
+ * automatically.
+ */
+@SuppressWarnings("HardcodedLineSeparator")
+public final class BaselineGenerator {
+    private BaselineGenerator() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        Preconditions.checkArgument(args.length == 3, "Usage: BaselineGenerator <dialect scripts directory> <from version> <to version>");
+        Path baseline = generate(Paths.get(args[0]), Integer.parseInt(args[1]), Integer.parseInt(args[2]));
+        System.err.println("Generated " + baseline.toAbsolutePath());
+    }
+
+    /**
+     * @param dialectDirectory dialect scripts directory, e.g. {@code src/main/resources/schema/upgrades/pgsql}
+     * @param fromVersion      schema version the baseline upgrades from
+     * @param toVersion        schema version after the baseline
+     * @return generated baseline script
+     * @throws IOException on read or write errors
+     */
+    public static Path generate(Path dialectDirectory, int fromVersion, int toVersion) throws IOException {
+        Preconditions.checkArgument(fromVersion >= 0 && fromVersion < toVersion, "Invalid baseline from version %s to %s", fromVersion, toVersion);
+        ScriptDialect dialect = ScriptDialect.forDirectory(dialectDirectory.getFileName().toString());
+
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        List<String> javaUpgrades = new ArrayList<>();
+        for (int version = fromVersion + 1; version <= toVersion; version++) {
+            String upgradeClass = UpgradeManifest.findUpgradeClass(classLoader, version);
+            if (upgradeClass != null) {
+                javaUpgrades.add(upgradeClass);
+            }
+            if (!Files.isRegularFile(dialectDirectory.resolve(version + ".sql"))) {
+                throw new IllegalStateException("Upgrade script " + version + ".sql is missing in " + dialectDirectory);
+            }
+        }
+        if (!javaUpgrades.isEmpty()) {
+            throw new IllegalStateException("Versions upgraded with " + javaUpgrades + " can not be squashed, write the baseline by hand");
+        }
+
+        Path target = dialectDirectory.resolve("baseline-" + toVersion + ".sql").toAbsolutePath();
+        Path temporary = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+                writer.write("-- @baseline-from " + fromVersion + '\n');
+                writer.write("-- Upgrade scripts " + (fromVersion + 1) + ".sql to " + toVersion + ".sql, generated by " + BaselineGenerator.class.getSimpleName() + '\n');
+                for (int version = fromVersion + 1; version <= toVersion; version++) {
+                    writer.write("\n-- version " + version + '\n');
+                    try (Reader reader = Files.newBufferedReader(dialectDirectory.resolve(version + ".sql"), StandardCharsets.UTF_8);
+                         SqlScriptReader scriptReader = new SqlScriptReader(reader, dialect)) {
+                        SqlStatement statement;
+                        while ((statement = scriptReader.readStatement()) != null) {
+                            writeStatement(writer, statement, dialect);
+                        }
+                    }
+                }
+            }
+            try {
+                Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+        return target;
+    }
+
+    private static void writeStatement(Writer writer, SqlStatement statement, ScriptDialect dialect) throws IOException {
+        for (String directive : statement.getDirectives()) {
+            writer.write("-- @" + directive + '\n');
+        }
+        writer.write(statement.getSql());
+        if (!statement.isBlock()) {
+            writer.write(";\n");
+        } else if (dialect.isPlSql()) {
+            writer.write("\n/\n");
+        } else if (dialect.isBatchSeparator()) {
+            writer.write("\nGO\n");
+        } else {
+            writer.write("\n\n");
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package care.better.schema.db.upgrade;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Verifies a baseline script against the chain of upgrade scripts it replaces by comparing the catalogs of two
+ * databases upgraded from the same version, one by replaying the chain
+ * ({@code SchemaInitializerImpl.setBaselinesEnabled(false)}) and one with the baseline. Tables, columns, primary keys,
+ * foreign keys and indexes are compared by their columns; constraint and index names are ignored, since generated
+ * names differ between databases.
+ */
+public final class BaselineVerifier {
+    private final String schemaVersionTableName;
+
+    /**
+     * @param schemaVersionTableName name of the schema version table
+     */
+    public BaselineVerifier(String schemaVersionTableName) {
+        this.schemaVersionTableName = schemaVersionTableName.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @param replayed  database upgraded by replaying every upgrade script
+     * @param baselined database upgraded with the baseline
+     * @return differences between the schemas, empty if the baseline is equivalent to the replayed chain
+     * @throws SQLException on database errors
+     */
+    public List<String> verify(DataSource replayed, DataSource baselined) throws SQLException {
+        Map<String, Set<String>> expected;
+        Map<String, Set<String>> actual;
+        int expectedVersion;
+        int actualVersion;
+        try (Connection connection = replayed.getConnection()) {
+            expected = readCatalog(connection);
+            expectedVersion = readVersion(connection);
+        }
+        try (Connection connection = baselined.getConnection()) {
+            actual = readCatalog(connection);
+            actualVersion = readVersion(connection);
+        }
+
+        List<String> differences = new ArrayList<>();
+        if (expectedVersion != actualVersion) {
+            differences.add("schema version " + actualVersion + ", expected " + expectedVersion);
+        }
+        Set<String> tables = new TreeSet<>(expected.keySet());
+        tables.addAll(actual.keySet());
+        for (String table : tables) {
+            Set<String> expectedItems = expected.get(table);
+            Set<String> actualItems = actual.get(table);
+            if (expectedItems == null) {
+                differences.add("unexpected table " + table);
+            } else if (actualItems == null) {
+                differences.add("missing table " + table);
+            } else {
+                for (String item : expectedItems) {
+                    if (!actualItems.contains(item)) {
+                        differences.add("missing " + item);
+                    }
+                }
+                for (String item : actualItems) {
+                    if (!expectedItems.contains(item)) {
+                        differences.add("unexpected " + item);
+                    }
+                }
+            }
+        }
+        return differences;
+    }
+
+    private int readVersion(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT version FROM " + schemaVersionTableName)) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private Map<String, Set<String>> readCatalog(Connection connection) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        String catalog = connection.getCatalog();
+        String schema = connection.getSchema();
+
+        Map<String, Set<String>> tables = new TreeMap<>();
+        try (ResultSet rs = metaData.getTables(catalog, schema, "%", new String[]{"TABLE"})) {
+            while (rs.next()) {
+                String table = rs.getString("TABLE_NAME");
+                String name = table.toLowerCase(Locale.ROOT);
+                if (!name.startsWith(schemaVersionTableName + '_')) {
+                    tables.put(table, new TreeSet<>());
+                }
+            }
+        }
+
+        for (Map.Entry<String, Set<String>> entry : tables.entrySet()) {
+            String table = entry.getKey();
+            String name = table.toLowerCase(Locale.ROOT);
+            Set<String> items = entry.getValue();
+            try (ResultSet rs = metaData.getColumns(catalog, schema, table, "%")) {
+                while (rs.next()) {
+                    items.add("column " + name + '.' + rs.getString("COLUMN_NAME").toLowerCase(Locale.ROOT)
+                                      + ' ' + rs.getString("TYPE_NAME").toLowerCase(Locale.ROOT)
+                                      + '(' + rs.getInt("COLUMN_SIZE") + ',' + rs.getInt("DECIMAL_DIGITS") + ')'
+                                      + (rs.getInt("NULLABLE") == DatabaseMetaData.columnNoNulls ? " not null" : ""));
+                }
+            }
+            items.add("primary key " + name + readKeyColumns(metaData.getPrimaryKeys(catalog, schema, table)));
+            Map<String, TreeMap<Integer, String>> foreignKeys = new TreeMap<>();
+            try (ResultSet rs = metaData.getImportedKeys(catalog, schema, table)) {
+                while (rs.next()) {
+                    String key = rs.getString("PKTABLE_NAME").toLowerCase(Locale.ROOT) + '/' + rs.getString("FK_NAME");
+                    foreignKeys.computeIfAbsent(key, k -> new TreeMap<>()).put(rs.getInt("KEY_SEQ"), rs.getString("FKCOLUMN_NAME").toLowerCase(Locale.ROOT));
+                }
+            }
+            foreignKeys.forEach((key, columns) -> items.add(
+                    "foreign key " + name + columns.values() + " references " + key.substring(0, key.indexOf('/'))));
+            Map<String, TreeMap<Integer, String>> indexes = new TreeMap<>();
+            Map<String, Boolean> uniqueIndexes = new TreeMap<>();
+            try (ResultSet rs = metaData.getIndexInfo(catalog, schema, table, false, true)) {
+                while (rs.next()) {
+                    String index = rs.getString("INDEX_NAME");
+                    String column = rs.getString("COLUMN_NAME");
+                    if (index != null && column != null) {
+                        indexes.computeIfAbsent(index, k -> new TreeMap<>()).put((int)rs.getShort("ORDINAL_POSITION"), column.toLowerCase(Locale.ROOT));
+                        uniqueIndexes.put(index, !rs.getBoolean("NON_UNIQUE"));
+                    }
+                }
+            }
+            indexes.forEach((index, columns) -> items.add(
+                    (uniqueIndexes.get(index) ? "unique index " : "index ") + name + columns.values()));
+        }
+        return tables;
+    }
+
+    private static String readKeyColumns(ResultSet rs) throws SQLException {
+        try (rs) {
+            TreeMap<Integer, String> columns = new TreeMap<>();
+            while (rs.next()) {
+                columns.put(rs.getInt("KEY_SEQ"), rs.getString("COLUMN_NAME").toLowerCase(Locale.ROOT));
+            }
+            return columns.values().toString();
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package care.better.schema.db.upgrade;
+
+import care.better.schema.db.exception.DatabaseUpgradeException;
+import care.better.schema.db.script.ScriptDialect;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Data migration of a large table in chunks, for {@link ContextualDbUpgrade} implementations that backfill or convert
+ * data. Rows are processed in ranges of a numeric key column found by keyset pagination
+ * ({@code key > last ORDER BY key}), each chunk in its own transaction. The last processed key is committed with every
+ * chunk to {@code {schema_version_table}_migration}, so an interrupted upgrade resumes after the last completed chunk.
+ * The key range can be split into slices that are migrated in parallel over separate connections.
+ * <pre>
+ * public class UpgradeTo42 implements ContextualDbUpgrade {
+ *     public boolean upgrade(UpgradeContext context) {
+ *         ChunkedDataMigration migration = new ChunkedDataMigration("person_full_name", "person", "id");
+ *         migration.setParallelism(4);
+ *         migration.run(context, (connection, fromKey, toKey) -&gt; {
+ *             try (PreparedStatement update = connection.prepareStatement(
+ *                     "UPDATE person SET full_name = first_name || ' ' || last_name WHERE id &gt; ? AND id &lt;= ?")) {
+ *                 update.setLong(1, fromKey);
+ *                 update.setLong(2, toKey);
+ *                 return update.executeUpdate();
+ *             }
+ *         });
+ *         return true;
+ *     }
+ * }
+ * </pre>
+ * The key range is fixed when the migration starts; rows inserted later with higher keys are expected to be written in
+ * the new form by the application. The upgrade transaction is committed before the migration starts, so the upgrade
+ * has to run in checkpoint mode, see {@link UpgradeContext#checkpoint()}.
+ */
+public final class ChunkedDataMigration {
+    private static final Logger log = LoggerFactory.getLogger(ChunkedDataMigration.class);
+
+    private final String name;
+    private final String tableName;
+    private final String keyColumn;
+    private int chunkSize = 10_000;
+    private int parallelism = 1;
+
+    /**
+     * @param name      unique name of the migration, used to track its progress
+     * @param tableName migrated table
+     * @param keyColumn unique numeric key column of the table, usually the primary key
+     */
+    public ChunkedDataMigration(String name, String tableName, String keyColumn) {
+        Preconditions.checkArgument(name != null && name.length() <= 100, "Migration name must have at most 100 characters");
+        this.name = name;
+        this.tableName = tableName;
+        this.keyColumn = keyColumn;
+    }
+
+    /**
+     * @param chunkSize maximum number of rows processed in one transaction (default 10000)
+     */
+    public void setChunkSize(int chunkSize) {
+        Preconditions.checkArgument(chunkSize >= 1, "Chunk size must be at least 1");
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * @param parallelism number of key range slices migrated at the same time on separate connections (default 1).
+     *                    Fixed by the first run, a resumed migration keeps its slices.
+     */
+    public void setParallelism(int parallelism) {
+        Preconditions.checkArgument(parallelism >= 1, "Parallelism must be at least 1");
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Migrates every row of the table that has not been migrated by a previous run. Requires checkpoint mode, see
+     * {@link UpgradeContext#checkpoint()}.
+     *
+     * @param context upgrade context
+     * @param handler processes the rows of a key range
+     * @return number of rows reported by the handler in this run
+     */
+    public long run(UpgradeContext context, ChunkHandler handler) {
+        String progressTable = context.getSchemaVersionTableName() + "_migration";
+        DataSource dataSource = context.getDataSource();
+        try {
+            context.checkpoint();
+            List<Slice> slices;
+            try (Connection connection = dataSource.getConnection()) {
+                connection.setAutoCommit(false);
+                slices = loadSlices(connection, progressTable, context.getScriptDialect());
+            }
+            List<Slice> remaining = new ArrayList<>();
+            for (Slice slice : slices) {
+                if (slice.lastKey < slice.endKey) {
+                    remaining.add(slice);
+                }
+            }
+            if (remaining.isEmpty()) {
+                log.info("Data migration {} already completed", name);
+                return 0L;
+            }
+            log.info("Migrating {} in {} slices of chunks of {} rows", name, remaining.size(), chunkSize);
+
+            if (remaining.size() == 1) {
+                return migrate(dataSource, progressTable, remaining.get(0), handler);
+            }
+            ExecutorService executor = Executors.newFixedThreadPool(
+                    remaining.size(),
+                    new ThreadFactoryBuilder().setNameFormat("data-migration-" + name + "-%d").setDaemon(true).build());
+            try {
+                List<Future<Long>> futures = new ArrayList<>(remaining.size());
+                for (Slice slice : remaining) {
+                    futures.add(executor.submit(() -> migrate(dataSource, progressTable, slice, handler)));
+                }
+                long rows = 0L;
+                DatabaseUpgradeException failure = null;
+                for (Future<Long> future : futures) {
+                    try {
+                        rows += future.get();
+                    } catch (ExecutionException e) {
+                        if (failure == null) {
+                            failure = new DatabaseUpgradeException("Data migration " + name + " failed", e.getCause());
+                        } else {
+                            failure.addSuppressed(e.getCause());
+                        }
+                    }
+                }
+                if (failure != null) {
+                    throw failure;
+                }
+                log.info("Data migration {} completed, {} rows", name, rows);
+                return rows;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new DatabaseUpgradeException("Data migration " + name + " interrupted", e);
+            } finally {
+                executor.shutdownNow();
+            }
+        } catch (SQLException e) {
+            throw new DatabaseUpgradeException("Data migration " + name + " failed", e);
+        }
+    }
+
+    private List<Slice> loadSlices(Connection connection, String progressTable, ScriptDialect scriptDialect) throws SQLException {
+        createProgressTable(connection, progressTable, scriptDialect);
+
+        List<Slice> slices = new ArrayList<>();
+        try (PreparedStatement select = connection.prepareStatement("SELECT slice, last_key, end_key FROM " + progressTable + " WHERE name = ? ORDER BY slice")) {
+            select.setString(1, name);
+            try (ResultSet rs = select.executeQuery()) {
+                while (rs.next()) {
+                    slices.add(new Slice(rs.getInt(1), rs.getLong(2), rs.getLong(3)));
+                }
+            }
+        }
+        if (!slices.isEmpty()) {
+            return slices;
+        }
+
+        long startKey = 0L;
+        long endKey = 0L;
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT MIN(" + keyColumn + "), MAX(" + keyColumn + ") FROM " + tableName)) {
+            if (rs.next()) {
+                startKey = rs.getLong(1) - 1L;
+                endKey = rs.getLong(2);
+                if (rs.wasNull()) {
+                    startKey = 0L;
+                    endKey = 0L;
+                }
+            }
+        }
+        long width = Math.max(1L, (endKey - startKey + parallelism - 1L) / parallelism);
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO " + progressTable + " (name, slice, last_key, end_key) VALUES (?, ?, ?, ?)")) {
+            for (long lower = startKey; slices.isEmpty() || lower < endKey; lower += width) {
+                Slice slice = new Slice(slices.size(), lower, Math.min(lower + width, endKey));
+                insert.setString(1, name);
+                insert.setInt(2, slice.index);
+                insert.setLong(3, slice.lastKey);
+                insert.setLong(4, slice.endKey);
+                insert.addBatch();
+                slices.add(slice);
+            }
+            insert.executeBatch();
+        }
+        connection.commit();
+        return slices;
+    }
+
+    private static void createProgressTable(Connection connection, String progressTable, ScriptDialect scriptDialect) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.executeQuery("SELECT name FROM " + progressTable + " WHERE 1 = 0").close();
+        } catch (SQLException e) {
+            connection.rollback();
+            String bigint = scriptDialect == ScriptDialect.ORA ? "NUMBER(19)" : "BIGINT";
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TABLE " + progressTable + " (name VARCHAR(100) NOT NULL, slice INTEGER NOT NULL, last_key " + bigint
+                                          + " NOT NULL, end_key " + bigint + " NOT NULL, PRIMARY KEY (name, slice))");
+            }
+            connection.commit();
+        }
+    }
+
+    private long migrate(DataSource dataSource, String progressTable, Slice slice, ChunkHandler handler) throws SQLException {
+        long rows = 0L;
+        int chunks = 0;
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement keys = connection.prepareStatement(
+                    "SELECT " + keyColumn + " FROM " + tableName + " WHERE " + keyColumn + " > ? AND " + keyColumn + " <= ? ORDER BY " + keyColumn);
+                 PreparedStatement progress = connection.prepareStatement("UPDATE " + progressTable + " SET last_key = ? WHERE name = ? AND slice = ?")) {
+                keys.setMaxRows(chunkSize);
+                keys.setFetchSize(chunkSize);
+                progress.setString(2, name);
+                progress.setInt(3, slice.index);
+
+                long lastKey = slice.lastKey;
+                while (lastKey < slice.endKey) {
+                    long chunkEnd = slice.endKey;
+                    keys.setLong(1, lastKey);
+                    keys.setLong(2, slice.endKey);
+                    try (ResultSet rs = keys.executeQuery()) {
+                        int count = 0;
+                        long key = lastKey;
+                        while (rs.next()) {
+                            key = rs.getLong(1);
+                            count++;
+                        }
+                        if (count == chunkSize) {
+                            chunkEnd = key;
+                        }
+                    }
+                    connection.commit();
+
+                    rows += handler.process(connection, lastKey, chunkEnd);
+                    progress.setLong(1, chunkEnd);
+                    progress.executeUpdate();
+                    connection.commit();
+                    lastKey = chunkEnd;
+                    chunks++;
+                    log.debug("Data migration {} slice {} migrated up to key {}", name, slice.index, lastKey);
+                }
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+        log.info("Data migration {} slice {} completed in {} chunks, {} rows", name, slice.index, chunks, rows);
+        return rows;
+    }
+
+    /**
+     * Migrates the rows of a key range.
+     */
+    @FunctionalInterface
+    public interface ChunkHandler {
+        /**
+         * @param connection connection of the chunk transaction, committed by the migration
+         * @param fromKey    lower bound of the key range, exclusive
+         * @param toKey      upper bound of the key range, inclusive
+         * @return number of migrated rows
+         * @throws SQLException on database errors
+         */
+        int process(Connection connection, long fromKey, long toKey) throws SQLException;
+    }
+
+    private static final class Slice {
+        private final int index;
+        private final long lastKey;
+        private final long endKey;
+
+        private Slice(int index, long lastKey, long endKey) {
+            this.index = index;
+            this.lastKey = lastKey;
+            this.endKey = endKey;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package care.better.schema.db.upgrade;
+
+/**
+ * Java upgrade step that needs the {@link UpgradeContext}, e.g. to run a {@link ChunkedDataMigration}. Implemented
+ * instead of {@link DbUpgrade} by {@code UpgradeTo{version}} classes.
+ */
+@FunctionalInterface
+public interface ContextualDbUpgrade {
+    /**
+     * @param context upgrade connection, data source and version
+     * @return implementation specific result, ignored by the schema initializer
+     */
+    boolean upgrade(UpgradeContext context);
+}
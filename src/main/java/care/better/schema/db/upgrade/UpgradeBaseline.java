@@ -0,0 +1,53 @@
+package care.better.schema.db.upgrade;
+
+/**
+ * Squashed upgrade script {@code baseline-{version}.sql} that upgrades a schema from {@link #getFromVersion()} directly
+ * to {@link #getVersion()}, replacing the scripts and {@link DbUpgrade} implementations of the versions in between.
+ * The version it upgrades from is declared with a {@code -- @baseline-from {version}} comment at the top of the script.
+ */
+public final class UpgradeBaseline {
+    private final int version;
+    private final int fromVersion;
+    private final String scriptResource;
+    private final String checksum;
+
+    public UpgradeBaseline(int version, int fromVersion, String scriptResource, String checksum) {
+        this.version = version;
+        this.fromVersion = fromVersion;
+        this.scriptResource = scriptResource;
+        this.checksum = checksum;
+    }
+
+    /**
+     * @return schema version after the baseline script
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * @return schema version the baseline script upgrades from
+     */
+    public int getFromVersion() {
+        return fromVersion;
+    }
+
+    /**
+     * @return classpath resource of the baseline script
+     */
+    public String getScriptResource() {
+        return scriptResource;
+    }
+
+    /**
+     * @return SHA-256 of the script contents or {@code null} if the baseline was not loaded from a manifest
+     */
+    public String getChecksum() {
+        return checksum;
+    }
+
+    @Override
+    public String toString() {
+        return "UpgradeBaseline{from=" + fromVersion + ", version=" + version + ", script=" + scriptResource + '}';
+    }
+}
@@ -0,0 +1,103 @@
+package care.better.schema.db.upgrade;
+
+import care.better.schema.db.script.ScriptDialect;
+import com.google.common.base.Preconditions;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Environment of a {@link ContextualDbUpgrade}: the upgrade connection and transaction, the data source for additional
+ * connections and the version being applied.
+ */
+public final class UpgradeContext {
+    private final Connection connection;
+    private final DataSource dataSource;
+    private final String dialect;
+    private final ScriptDialect scriptDialect;
+    private final int version;
+    private final String schemaVersionTableName;
+    private final Checkpoint checkpoint;
+
+    public UpgradeContext(
+            Connection connection,
+            DataSource dataSource,
+            String dialect,
+            ScriptDialect scriptDialect,
+            int version,
+            String schemaVersionTableName,
+            Checkpoint checkpoint) {
+        this.connection = connection;
+        this.dataSource = dataSource;
+        this.dialect = dialect;
+        this.scriptDialect = scriptDialect;
+        this.version = version;
+        this.schemaVersionTableName = schemaVersionTableName;
+        this.checkpoint = checkpoint;
+    }
+
+    /**
+     * @return connection of the upgrade transaction
+     */
+    public Connection getConnection() {
+        return connection;
+    }
+
+    /**
+     * @return data source of the upgraded schema
+     */
+    public DataSource getDataSource() {
+        return dataSource;
+    }
+
+    /**
+     * @return Hibernate dialect name
+     */
+    public String getDialect() {
+        return dialect;
+    }
+
+    public ScriptDialect getScriptDialect() {
+        return scriptDialect;
+    }
+
+    /**
+     * @return schema version being applied
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    public String getSchemaVersionTableName() {
+        return schemaVersionTableName;
+    }
+
+    /**
+     * @return true if the upgrade runs in checkpoint mode and {@link #checkpoint()} can be called
+     */
+    public boolean isCheckpointSupported() {
+        return checkpoint != null;
+    }
+
+    /**
+     * Commits the upgrade transaction with the schema at the previous version, so that work done on other connections
+     * does not wait for locks held by the upgrade and an interrupted upgrade restarts at this version. Only supported
+     * in checkpoint mode, which resumes such an upgrade.
+     *
+     * @throws SQLException          on database errors
+     * @throws IllegalStateException if the upgrade does not run in checkpoint mode
+     */
+    public void checkpoint() throws SQLException {
+        Preconditions.checkState(checkpoint != null, "Upgrade to version %s does not run in checkpoint mode and can not be committed before it completes", version);
+        checkpoint.commit();
+    }
+
+    /**
+     * Commits the upgrade transaction, see {@link #checkpoint()}.
+     */
+    @FunctionalInterface
+    public interface Checkpoint {
+        void commit() throws SQLException;
+    }
+}
@@ -0,0 +1,82 @@
+package care.better.schema.db.upgrade;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Upgrades applied to a schema, read from {@code {schema_version_table}_history} with
+ * {@code SchemaInitializerImpl.readUpgradeHistory()}. The recorded durations of a database that has already been
+ * upgraded (e.g. staging) estimate how long the same upgrade takes on another database before it is deployed.
+ */
+public final class UpgradeHistory {
+    private final List<UpgradeHistoryEntry> entries;
+    private final Map<Integer, UpgradeHistoryEntry> steps = new TreeMap<>();
+
+    /**
+     * @param entries applied upgrades in the order they were applied
+     */
+    public UpgradeHistory(List<UpgradeHistoryEntry> entries) {
+        this.entries = Collections.unmodifiableList(new ArrayList<>(entries));
+        for (UpgradeHistoryEntry entry : entries) {
+            if (entry.isUpgradeStep()) {
+                steps.put(entry.getVersion(), entry);
+            }
+        }
+    }
+
+    /**
+     * @return applied upgrades in the order they were applied
+     */
+    public List<UpgradeHistoryEntry> getEntries() {
+        return entries;
+    }
+
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    /**
+     * @param version schema version
+     * @return latest execution of the upgrade script of the version or {@code null} if it has not been recorded
+     */
+    public UpgradeHistoryEntry getStep(int version) {
+        return steps.get(version);
+    }
+
+    /**
+     * @param fromVersion current schema version of the database to upgrade
+     * @param toVersion   target schema version
+     * @return sum of the recorded durations of the upgrade scripts after {@code fromVersion} up to {@code toVersion};
+     * versions without a recording (see {@link #getMissingVersions}) are not included
+     */
+    public Duration estimateDuration(int fromVersion, int toVersion) {
+        Duration duration = Duration.ZERO;
+        for (int version = fromVersion + 1; version <= toVersion; version++) {
+            UpgradeHistoryEntry step = steps.get(version);
+            if (step != null) {
+                duration = duration.plus(step.getDuration());
+            }
+        }
+        return duration;
+    }
+
+    /**
+     * @param fromVersion current schema version of the database to upgrade
+     * @param toVersion   target schema version
+     * @return versions after {@code fromVersion} up to {@code toVersion} whose upgrade script has not been recorded,
+     * e.g. because they were applied with a baseline or the initial schema
+     */
+    public List<Integer> getMissingVersions(int fromVersion, int toVersion) {
+        List<Integer> missing = new ArrayList<>();
+        for (int version = fromVersion + 1; version <= toVersion; version++) {
+            if (!steps.containsKey(version)) {
+                missing.add(version);
+            }
+        }
+        return missing;
+    }
+}
@@ -0,0 +1,112 @@
+package care.better.schema.db.upgrade;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Single applied upgrade recorded in {@code {schema_version_table}_history}: an upgrade script with its
+ * {@link DbUpgrade} implementation, a baseline or the creation of the initial schema.
+ */
+public final class UpgradeHistoryEntry {
+    private final int version;
+    private final int fromVersion;
+    private final String scriptResource;
+    private final String checksum;
+    private final String upgradeClassName;
+    private final Instant startedAt;
+    private final Duration duration;
+    private final int statements;
+    private final String nodeId;
+
+    public UpgradeHistoryEntry(
+            int version,
+            int fromVersion,
+            String scriptResource,
+            String checksum,
+            String upgradeClassName,
+            Instant startedAt,
+            Duration duration,
+            int statements,
+            String nodeId) {
+        this.version = version;
+        this.fromVersion = fromVersion;
+        this.scriptResource = scriptResource;
+        this.checksum = checksum;
+        this.upgradeClassName = upgradeClassName;
+        this.startedAt = startedAt;
+        this.duration = duration;
+        this.statements = statements;
+        this.nodeId = nodeId;
+    }
+
+    /**
+     * @return schema version after the upgrade
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * @return schema version before the upgrade, {@code version - 1} for an upgrade script, the starting version of a
+     * baseline and -1 for the creation of the initial schema
+     */
+    public int getFromVersion() {
+        return fromVersion;
+    }
+
+    /**
+     * @return true if the entry is a single upgrade script, false for a baseline or the initial schema
+     */
+    public boolean isUpgradeStep() {
+        return fromVersion >= 0 && fromVersion == version - 1;
+    }
+
+    /**
+     * @return classpath resource of the executed script
+     */
+    public String getScriptResource() {
+        return scriptResource;
+    }
+
+    /**
+     * @return SHA-256 of the script contents when it was executed
+     */
+    public String getChecksum() {
+        return checksum;
+    }
+
+    /**
+     * @return executed {@link DbUpgrade} class name or {@code null}
+     */
+    public String getUpgradeClassName() {
+        return upgradeClassName;
+    }
+
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    public Duration getDuration() {
+        return duration;
+    }
+
+    /**
+     * @return number of script statements
+     */
+    public int getStatements() {
+        return statements;
+    }
+
+    /**
+     * @return node that applied the upgrade, see {@code SchemaInitializerImpl.setNodeId}
+     */
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    @Override
+    public String toString() {
+        return "UpgradeHistoryEntry{version=" + version + ", script=" + scriptResource + ", startedAt=" + startedAt + ", duration="
+                + duration.toMillis() + " ms, statements=" + statements + ", node=" + nodeId + '}';
+    }
+}
@@ -0,0 +1,245 @@
+package care.better.schema.db.upgrade;
+
+import com.google.common.hash.Hashing;
+import com.google.common.hash.HashingInputStream;
+import com.google.common.io.ByteStreams;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Index of all upgrade steps of a dialect. It is read from {@code manifest.properties} in the dialect scripts
+ * directory, generated at build time by {@link UpgradeManifestGenerator}. Without a manifest the steps are found by
+ * probing the classpath for {@code 1.sql}, {@code 2.sql}, ... and the matching {@code UpgradeTo{version}} classes.
+ * Squashed {@code baseline-{version}.sql} scripts are listed as {@link UpgradeBaseline}s.
+ */
+@SuppressWarnings("HardcodedLineSeparator")
+public final class UpgradeManifest {
+    public static final String MANIFEST_NAME = "manifest.properties";
+    public static final String DB_UPGRADES_PACKAGE = "care.better.schema.db.upgrade.impl.";
+    public static final String DEPRECATED_DB_UPGRADES_PACKAGE = "com.marand.thinkehr.db.upgrade.impl.";
+
+    private static final String LATEST_KEY = "latest";
+    private static final String SCRIPT_SUFFIX = ".script";
+    private static final String CHECKSUM_SUFFIX = ".checksum";
+    private static final String UPGRADE_SUFFIX = ".upgrade";
+    private static final String BASELINES_KEY = "baselines";
+    private static final String BASELINE_PREFIX = "baseline.";
+    private static final String FROM_SUFFIX = ".from";
+    private static final Pattern BASELINE_FROM = Pattern.compile("^\\s*(?:--|#)\\s*@baseline-from\\s+(\\d+)\\b.*", Pattern.CASE_INSENSITIVE);
+
+    private final List<UpgradeStep> steps;
+    private final List<UpgradeBaseline> baselines;
+    private final boolean generated;
+
+    UpgradeManifest(List<UpgradeStep> steps, List<UpgradeBaseline> baselines, boolean generated) {
+        this.steps = Collections.unmodifiableList(new ArrayList<>(steps));
+        this.baselines = Collections.unmodifiableList(new ArrayList<>(baselines));
+        this.generated = generated;
+        for (UpgradeBaseline baseline : baselines) {
+            if (baseline.getFromVersion() >= baseline.getVersion() || baseline.getVersion() > steps.size()) {
+                throw new IllegalStateException("Invalid baseline from version " + baseline.getFromVersion() + " to " + baseline.getVersion()
+                                                        + " (latest version is " + steps.size() + ')');
+            }
+        }
+    }
+
+    /**
+     * Loads the manifest of a dialect scripts directory, falling back to classpath probing when there is none.
+     *
+     * @param scriptsDirectory dialect scripts directory, e.g. {@code /schema/upgrades/pgsql}
+     * @param resources        classpath resource lookup
+     * @return upgrade manifest
+     * @throws IOException on read errors
+     */
+    public static UpgradeManifest load(String scriptsDirectory, Function<String, InputStream> resources) throws IOException {
+        try (InputStream inputStream = resources.apply(scriptsDirectory + '/' + MANIFEST_NAME)) {
+            return inputStream == null ? probe(scriptsDirectory, resources) : read(inputStream);
+        }
+    }
+
+    /**
+     * @param inputStream manifest contents
+     * @return upgrade manifest
+     * @throws IOException on read errors
+     */
+    public static UpgradeManifest read(InputStream inputStream) throws IOException {
+        Properties properties = new Properties();
+        properties.load(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+
+        int latestVersion = Integer.parseInt(properties.getProperty(LATEST_KEY, "0"));
+        List<UpgradeStep> steps = new ArrayList<>(latestVersion);
+        for (int version = 1; version <= latestVersion; version++) {
+            String script = properties.getProperty(version + SCRIPT_SUFFIX);
+            if (script == null) {
+                throw new IllegalStateException("Upgrade manifest is missing script for version " + version);
+            }
+            steps.add(new UpgradeStep(version, script, properties.getProperty(version + CHECKSUM_SUFFIX), properties.getProperty(version + UPGRADE_SUFFIX)));
+        }
+        List<UpgradeBaseline> baselines = new ArrayList<>();
+        for (String baselineVersion : properties.getProperty(BASELINES_KEY, "").split(",")) {
+            if (!baselineVersion.isBlank()) {
+                String prefix = BASELINE_PREFIX + baselineVersion.trim();
+                baselines.add(new UpgradeBaseline(
+                        Integer.parseInt(baselineVersion.trim()),
+                        Integer.parseInt(properties.getProperty(prefix + FROM_SUFFIX)),
+                        properties.getProperty(prefix + SCRIPT_SUFFIX),
+                        properties.getProperty(prefix + CHECKSUM_SUFFIX)));
+            }
+        }
+        return new UpgradeManifest(steps, baselines, true);
+    }
+
+    private static UpgradeManifest probe(String scriptsDirectory, Function<String, InputStream> resources) throws IOException {
+        ClassLoader classLoader = UpgradeManifest.class.getClassLoader();
+        List<UpgradeStep> steps = new ArrayList<>();
+        while (true) {
+            int version = steps.size() + 1;
+            String script = scriptsDirectory + '/' + version + ".sql";
+            try (InputStream stream = resources.apply(script)) {
+                if (stream == null) {
+                    break;
+                }
+            }
+            steps.add(new UpgradeStep(version, script, null, findUpgradeClass(classLoader, version)));
+        }
+        List<UpgradeBaseline> baselines = new ArrayList<>();
+        for (int version = 2; version <= steps.size(); version++) {
+            String script = scriptsDirectory + "/baseline-" + version + ".sql";
+            try (InputStream stream = resources.apply(script)) {
+                if (stream != null) {
+                    baselines.add(new UpgradeBaseline(version, readBaselineFrom(stream, script), script, null));
+                }
+            }
+        }
+        return new UpgradeManifest(steps, baselines, false);
+    }
+
+    /**
+     * @param inputStream baseline script contents, not closed
+     * @param script      name of the script for error messages
+     * @return version declared with {@code -- @baseline-from {version}} before the first statement of the script
+     * @throws IOException on read errors
+     */
+    public static int readBaselineFrom(InputStream inputStream, String script) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            Matcher matcher = BASELINE_FROM.matcher(line);
+            if (matcher.matches()) {
+                return Integer.parseInt(matcher.group(1));
+            }
+            String trimmed = line.trim();
+            if (!trimmed.isEmpty() && !trimmed.startsWith("--") && !trimmed.startsWith("#")) {
+                break;
+            }
+        }
+        throw new IllegalStateException("Baseline script " + script + " does not declare the version it upgrades from (-- @baseline-from {version})");
+    }
+
+    static String findUpgradeClass(ClassLoader classLoader, int version) {
+        for (String classPackage : new String[]{DB_UPGRADES_PACKAGE, DEPRECATED_DB_UPGRADES_PACKAGE}) {
+            String className = classPackage + "UpgradeTo" + version;
+            if (classLoader.getResource(className.replace('.', '/') + ".class") != null) {
+                return className;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param inputStream contents to hash, fully consumed but not closed
+     * @return SHA-256 checksum in hex
+     * @throws IOException on read errors
+     */
+    @SuppressWarnings("UnstableApiUsage")
+    public static String checksum(InputStream inputStream) throws IOException {
+        HashingInputStream hashingInputStream = new HashingInputStream(Hashing.sha256(), inputStream);
+        ByteStreams.exhaust(hashingInputStream);
+        return hashingInputStream.hash().toString();
+    }
+
+    /**
+     * Writes the manifest in the format read by {@link #read(InputStream)}.
+     *
+     * @param writer target
+     * @throws IOException on write errors
+     */
+    public void write(Writer writer) throws IOException {
+        writer.write("# Generated by " + UpgradeManifestGenerator.class.getName() + ", do not edit\n");
+        writer.write(LATEST_KEY + '=' + getLatestVersion() + '\n');
+        for (UpgradeStep step : steps) {
+            writer.write(step.getVersion() + SCRIPT_SUFFIX + '=' + step.getScriptResource() + '\n');
+            if (step.getChecksum() != null) {
+                writer.write(step.getVersion() + CHECKSUM_SUFFIX + '=' + step.getChecksum() + '\n');
+            }
+            if (step.getUpgradeClassName() != null) {
+                writer.write(step.getVersion() + UPGRADE_SUFFIX + '=' + step.getUpgradeClassName() + '\n');
+            }
+        }
+        if (!baselines.isEmpty()) {
+            writer.write(BASELINES_KEY + '=' + baselines.stream().map(baseline -> String.valueOf(baseline.getVersion())).collect(Collectors.joining(",")) + '\n');
+            for (UpgradeBaseline baseline : baselines) {
+                String prefix = BASELINE_PREFIX + baseline.getVersion();
+                writer.write(prefix + FROM_SUFFIX + '=' + baseline.getFromVersion() + '\n');
+                writer.write(prefix + SCRIPT_SUFFIX + '=' + baseline.getScriptResource() + '\n');
+                if (baseline.getChecksum() != null) {
+                    writer.write(prefix + CHECKSUM_SUFFIX + '=' + baseline.getChecksum() + '\n');
+                }
+            }
+        }
+    }
+
+    public int getLatestVersion() {
+        return steps.size();
+    }
+
+    /**
+     * @param version schema version
+     * @return upgrade step or {@code null} if there is no such version
+     */
+    public UpgradeStep getStep(int version) {
+        return version >= 1 && version <= steps.size() ? steps.get(version - 1) : null;
+    }
+
+    public List<UpgradeStep> getSteps() {
+        return steps;
+    }
+
+    public List<UpgradeBaseline> getBaselines() {
+        return baselines;
+    }
+
+    /**
+     * @param version current schema version
+     * @return baseline that upgrades the schema from the version the furthest, {@code null} if there is none
+     */
+    public UpgradeBaseline getBaseline(int version) {
+        UpgradeBaseline result = null;
+        for (UpgradeBaseline baseline : baselines) {
+            if (baseline.getFromVersion() == version && (result == null || baseline.getVersion() > result.getVersion())) {
+                result = baseline;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return true if the manifest was generated at build time, false if it was built by probing the classpath
+     */
+    public boolean isGenerated() {
+        return generated;
+    }
+}
@@ -0,0 +1,124 @@
+package care.better.schema.db.upgrade;
+
+import com.google.common.base.Preconditions;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Generates {@code manifest.properties} for every dialect directory under {@code schema/upgrades} of a build output
+ * directory. Meant to run in the {@code process-classes} phase, e.g. with the {@code exec-maven-plugin}:
+ * <pre>
+ * java care.better.schema.db.upgrade.UpgradeManifestGenerator ${project.build.outputDirectory}
+ * </pre>
+ * {@code UpgradeTo{version}} classes are looked up in the output directory and on the classpath of the generator.
+ */
+public final class UpgradeManifestGenerator {
+    private static final String SCRIPTS_DIRECTORY = "schema/upgrades";
+    private static final Pattern SCRIPT_NAME = Pattern.compile("(\\d+)\\.sql");
+    private static final Pattern BASELINE_NAME = Pattern.compile("baseline-(\\d+)\\.sql");
+
+    private UpgradeManifestGenerator() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        Preconditions.checkArgument(args.length == 1, "Usage: UpgradeManifestGenerator <build output directory>");
+        for (Path manifest : generate(Paths.get(args[0]))) {
+            System.err.println("Generated " + manifest.toAbsolutePath());
+        }
+    }
+
+    /**
+     * @param outputDirectory build output directory containing {@code schema/upgrades/{db_name}} script directories
+     * @return generated manifest files
+     * @throws IOException on read or write errors
+     */
+    public static List<Path> generate(Path outputDirectory) throws IOException {
+        Path scriptsRoot = outputDirectory.resolve(SCRIPTS_DIRECTORY);
+        List<Path> manifests = new ArrayList<>();
+        if (!Files.isDirectory(scriptsRoot)) {
+            return manifests;
+        }
+        List<Path> dialectDirectories;
+        try (Stream<Path> stream = Files.list(scriptsRoot)) {
+            dialectDirectories = stream.filter(Files::isDirectory).sorted().collect(Collectors.toList());
+        }
+        for (Path dialectDirectory : dialectDirectories) {
+            UpgradeManifest manifest = createManifest(outputDirectory, dialectDirectory);
+            Path manifestFile = dialectDirectory.resolve(UpgradeManifest.MANIFEST_NAME);
+            try (Writer writer = Files.newBufferedWriter(manifestFile, StandardCharsets.UTF_8)) {
+                manifest.write(writer);
+            }
+            manifests.add(manifestFile);
+        }
+        return manifests;
+    }
+
+    private static UpgradeManifest createManifest(Path outputDirectory, Path dialectDirectory) throws IOException {
+        TreeMap<Integer, Path> scripts = new TreeMap<>();
+        TreeMap<Integer, Path> baselineScripts = new TreeMap<>();
+        try (Stream<Path> stream = Files.list(dialectDirectory)) {
+            stream.forEach(path -> {
+                Matcher matcher = SCRIPT_NAME.matcher(path.getFileName().toString());
+                if (matcher.matches()) {
+                    scripts.put(Integer.parseInt(matcher.group(1)), path);
+                }
+                Matcher baselineMatcher = BASELINE_NAME.matcher(path.getFileName().toString());
+                if (baselineMatcher.matches()) {
+                    baselineScripts.put(Integer.parseInt(baselineMatcher.group(1)), path);
+                }
+            });
+        }
+
+        String resourceDirectory = '/' + SCRIPTS_DIRECTORY + '/' + dialectDirectory.getFileName();
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        List<UpgradeStep> steps = new ArrayList<>(scripts.size());
+        for (int version = 1; version <= scripts.size(); version++) {
+            Path script = scripts.get(version);
+            if (script == null) {
+                throw new IllegalStateException("Upgrade script " + version + ".sql is missing in " + dialectDirectory);
+            }
+            String checksum;
+            try (InputStream inputStream = Files.newInputStream(script)) {
+                checksum = UpgradeManifest.checksum(inputStream);
+            }
+            steps.add(new UpgradeStep(version, resourceDirectory + '/' + version + ".sql", checksum, findUpgradeClass(outputDirectory, classLoader, version)));
+        }
+        List<UpgradeBaseline> baselines = new ArrayList<>(baselineScripts.size());
+        for (Map.Entry<Integer, Path> entry : baselineScripts.entrySet()) {
+            int fromVersion;
+            try (InputStream inputStream = Files.newInputStream(entry.getValue())) {
+                fromVersion = UpgradeManifest.readBaselineFrom(inputStream, entry.getValue().toString());
+            }
+            String checksum;
+            try (InputStream inputStream = Files.newInputStream(entry.getValue())) {
+                checksum = UpgradeManifest.checksum(inputStream);
+            }
+            baselines.add(new UpgradeBaseline(entry.getKey(), fromVersion, resourceDirectory + "/baseline-" + entry.getKey() + ".sql", checksum));
+        }
+        return new UpgradeManifest(steps, baselines, true);
+    }
+
+    private static String findUpgradeClass(Path outputDirectory, ClassLoader classLoader, int version) {
+        for (String classPackage : new String[]{UpgradeManifest.DB_UPGRADES_PACKAGE, UpgradeManifest.DEPRECATED_DB_UPGRADES_PACKAGE}) {
+            String className = classPackage + "UpgradeTo" + version;
+            if (Files.exists(outputDirectory.resolve(className.replace('.', '/') + ".class"))) {
+                return className;
+            }
+        }
+        return UpgradeManifest.findUpgradeClass(classLoader, version);
+    }
+}
@@ -0,0 +1,237 @@
+package care.better.schema.db.upgrade;
+
+import care.better.schema.db.script.ScriptDialect;
+import care.better.schema.db.script.SqlStatement;
+import care.better.schema.db.script.StatementCost;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pending upgrade of a schema as {@code SchemaInitializerImpl.updateExisting()} would run it, created by
+ * {@code SchemaInitializerImpl.planUpgrade()} without writing to the database: every upgrade script or baseline with
+ * its {@code DbUpgrade} class and the cost of each statement (see {@link care.better.schema.db.script.StatementCostClassifier}).
+ * The pending scripts can be written as a single script for review or execution with native tools, see
+ * {@link #writeScript(Writer)}.
+ */
+public final class UpgradePlan {
+    private final ScriptDialect scriptDialect;
+    private final String schemaVersionTableName;
+    private final int currentVersion;
+    private final int targetVersion;
+    private final List<Step> steps;
+
+    /**
+     * @param currentVersion schema version of the database
+     * @param targetVersion  latest packaged schema version
+     * @param steps          pending steps in execution order
+     */
+    public UpgradePlan(ScriptDialect scriptDialect, String schemaVersionTableName, int currentVersion, int targetVersion, List<Step> steps) {
+        this.scriptDialect = scriptDialect;
+        this.schemaVersionTableName = schemaVersionTableName;
+        this.currentVersion = currentVersion;
+        this.targetVersion = targetVersion;
+        this.steps = Collections.unmodifiableList(new ArrayList<>(steps));
+    }
+
+    public int getCurrentVersion() {
+        return currentVersion;
+    }
+
+    public int getTargetVersion() {
+        return targetVersion;
+    }
+
+    public List<Step> getSteps() {
+        return steps;
+    }
+
+    /**
+     * @return true if the schema is at the latest version
+     */
+    public boolean isEmpty() {
+        return steps.isEmpty();
+    }
+
+    /**
+     * @return number of pending statements of all steps
+     */
+    public int getStatementCount() {
+        return steps.stream().mapToInt(step -> step.getStatements().size()).sum();
+    }
+
+    /**
+     * @return number of pending statements of all steps by their kind
+     */
+    public Map<StatementCost.Kind, Integer> getStatementCounts() {
+        Map<StatementCost.Kind, Integer> counts = new EnumMap<>(StatementCost.Kind.class);
+        for (Step step : steps) {
+            for (StatementCost cost : step.getStatements()) {
+                counts.merge(cost.getKind(), 1, Integer::sum);
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * @return {@code DbUpgrade} classes of the pending steps in execution order
+     */
+    public List<String> getUpgradeClassNames() {
+        List<String> classNames = new ArrayList<>();
+        for (Step step : steps) {
+            if (step.getUpgradeClassName() != null) {
+                classNames.add(step.getUpgradeClassName());
+            }
+        }
+        return classNames;
+    }
+
+    /**
+     * @param reference upgrade history of a database that has already been upgraded, e.g. staging
+     * @return sum of the recorded durations of the pending versions, see {@link UpgradeHistory#estimateDuration}
+     */
+    public Duration estimateDuration(UpgradeHistory reference) {
+        return reference.estimateDuration(currentVersion, targetVersion);
+    }
+
+    /**
+     * Writes the pending statements as a single script with the statement delimiters of the dialect ({@code /} after
+     * PL/SQL blocks, {@code GO} on SQL Server, {@code DELIMITER} around MySQL blocks), followed by the schema version
+     * update of every step. {@code DbUpgrade} classes can not be written as SQL, their position is marked with a
+     * comment and they must be run by the application. Statements marked {@code @online} keep their directive and
+     * are written as they are, without the rewrite to their non-blocking form.
+     *
+     * @param writer target of the script
+     * @throws IOException on write errors
+     */
+    @SuppressWarnings("HardcodedLineSeparator")
+    public void writeScript(Writer writer) throws IOException {
+        writer.write("-- Upgrade from schema version " + currentVersion + " to " + targetVersion + " (" + scriptDialect + "), "
+                             + getStatementCount() + " statements\n");
+        for (Step step : steps) {
+            writer.write("\n-- Version " + step.getVersion() + ": " + step.getScriptResource());
+            if (step.getSkippedStatements() > 0) {
+                writer.write(", resumed after " + step.getSkippedStatements() + " completed statements");
+            }
+            writer.write('\n');
+            if (step.getUpgradeClassName() != null) {
+                writer.write("-- WARNING: Java upgrade " + step.getUpgradeClassName() + " must be executed before the statements of this version\n");
+            }
+            for (StatementCost cost : step.getStatements()) {
+                writeStatement(writer, cost);
+            }
+            writeStatement(writer, "UPDATE " + schemaVersionTableName + " SET version = " + step.getVersion(), false);
+        }
+    }
+
+    @SuppressWarnings("HardcodedLineSeparator")
+    private void writeStatement(Writer writer, StatementCost cost) throws IOException {
+        SqlStatement statement = cost.getStatement();
+        if (cost.isSlow()) {
+            writer.write("-- " + cost + '\n');
+        }
+        for (String directive : statement.getDirectives()) {
+            writer.write("-- @" + directive + '\n');
+        }
+        writeStatement(writer, statement.getSql(), statement.isBlock());
+    }
+
+    @SuppressWarnings("HardcodedLineSeparator")
+    private void writeStatement(Writer writer, String sql, boolean block) throws IOException {
+        if (scriptDialect == ScriptDialect.MSSQL) {
+            writer.write(sql + "\nGO\n");
+        } else if (block && scriptDialect.isPlSql()) {
+            writer.write(sql + "\n/\n");
+        } else if (block && scriptDialect == ScriptDialect.MYSQL) {
+            writer.write("DELIMITER //\n" + sql + "\n//\nDELIMITER ;\n");
+        } else {
+            writer.write(sql + ";\n");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "UpgradePlan{" + currentVersion + " -> " + targetVersion + ", " + steps.size() + " steps, " + getStatementCount() + " statements "
+                + getStatementCounts() + '}';
+    }
+
+    /**
+     * Upgrade script or baseline of a pending version.
+     */
+    public static final class Step {
+        private final int version;
+        private final int fromVersion;
+        private final String scriptResource;
+        private final String upgradeClassName;
+        private final int skippedStatements;
+        private final List<StatementCost> statements;
+
+        /**
+         * @param version           schema version after the step
+         * @param fromVersion       schema version before the step, lower than {@code version - 1} for a baseline
+         * @param scriptResource    upgrade script or baseline
+         * @param upgradeClassName  {@code DbUpgrade} class run before the script, {@code null} if there is none
+         * @param skippedStatements statements completed by an interrupted upgrade that are not executed again
+         * @param statements        pending statements of the script
+         */
+        public Step(int version, int fromVersion, String scriptResource, String upgradeClassName, int skippedStatements, List<StatementCost> statements) {
+            this.version = version;
+            this.fromVersion = fromVersion;
+            this.scriptResource = scriptResource;
+            this.upgradeClassName = upgradeClassName;
+            this.skippedStatements = skippedStatements;
+            this.statements = Collections.unmodifiableList(new ArrayList<>(statements));
+        }
+
+        public int getVersion() {
+            return version;
+        }
+
+        public int getFromVersion() {
+            return fromVersion;
+        }
+
+        /**
+         * @return true if the step is a baseline that replaces the upgrade scripts after {@link #getFromVersion()}
+         */
+        public boolean isBaseline() {
+            return fromVersion < version - 1;
+        }
+
+        public String getScriptResource() {
+            return scriptResource;
+        }
+
+        public String getUpgradeClassName() {
+            return upgradeClassName;
+        }
+
+        public int getSkippedStatements() {
+            return skippedStatements;
+        }
+
+        public List<StatementCost> getStatements() {
+            return statements;
+        }
+
+        /**
+         * @param kind kind of statements
+         * @return number of pending statements of the kind
+         */
+        public int getStatementCount(StatementCost.Kind kind) {
+            return (int)statements.stream().filter(cost -> cost.getKind() == kind).count();
+        }
+
+        @Override
+        public String toString() {
+            return "version " + version + " (" + scriptResource + (upgradeClassName == null ? "" : ", " + upgradeClassName) + "): "
+                    + statements.size() + " statements";
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package care.better.schema.db.upgrade;
+
+/**
+ * Single schema version: its upgrade script and an optional {@link DbUpgrade} implementation.
+ */
+public final class UpgradeStep {
+    private final int version;
+    private final String scriptResource;
+    private final String checksum;
+    private final String upgradeClassName;
+
+    public UpgradeStep(int version, String scriptResource, String checksum, String upgradeClassName) {
+        this.version = version;
+        this.scriptResource = scriptResource;
+        this.checksum = checksum;
+        this.upgradeClassName = upgradeClassName;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * @return classpath resource of the upgrade script
+     */
+    public String getScriptResource() {
+        return scriptResource;
+    }
+
+    /**
+     * @return SHA-256 of the script contents or {@code null} if the step was not loaded from a manifest
+     */
+    public String getChecksum() {
+        return checksum;
+    }
+
+    /**
+     * @return {@link DbUpgrade} class name or {@code null} if the version is upgraded with the script only
+     */
+    public String getUpgradeClassName() {
+        return upgradeClassName;
+    }
+
+    @Override
+    public String toString() {
+        return "UpgradeStep{version=" + version + ", script=" + scriptResource + ", upgrade=" + upgradeClassName + '}';
+    }
+}
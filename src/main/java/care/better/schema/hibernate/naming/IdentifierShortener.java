@@ -0,0 +1,81 @@
+package care.better.schema.hibernate.naming;
+
+import com.google.common.hash.Hashing;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.dialect.MySQLDialect;
+import org.hibernate.dialect.Oracle8iDialect;
+import org.hibernate.dialect.PostgreSQL81Dialect;
+import org.hibernate.dialect.SQLServerDialect;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Shortens identifiers longer than the identifier limit of a dialect to a deterministic name: the beginning of the
+ * identifier followed by {@code _} and a hash of the whole identifier, so the same entity model always gets the same
+ * names. A shortener tracks the names of a single metadata build and is safe to use from threads building it. Two
+ * identifiers mapped to the same name fail while the metadata is built, before any DDL is generated.
+ */
+final class IdentifierShortener {
+    private static final int HASH_LENGTH = 8;
+    static final int MIN_LENGTH = HASH_LENGTH + 2;
+
+    private final int maxLength;
+    private final ConcurrentMap<String, String> physicalNames = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, String> identifiers = new ConcurrentHashMap<>();
+
+    /**
+     * @param maxLength maximum identifier length
+     */
+    IdentifierShortener(int maxLength) {
+        this.maxLength = maxLength;
+    }
+
+    /**
+     * @param dialect Hibernate dialect, may be {@code null}
+     * @return maximum identifier length of the dialect, {@link Integer#MAX_VALUE} if it is not known
+     */
+    static int getMaxIdentifierLength(Dialect dialect) {
+        // also Oracle12cDialect, which Hibernate uses for 12.1 as well; 12.2 and later allow 128 characters
+        if (dialect instanceof Oracle8iDialect) {
+            return 30;
+        }
+        if (dialect instanceof PostgreSQL81Dialect) {
+            return 63;
+        }
+        if (dialect instanceof MySQLDialect) {
+            return 64;
+        }
+        if (dialect instanceof SQLServerDialect) {
+            return 128;
+        }
+        if (dialect instanceof H2Dialect) {
+            return 256;
+        }
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * @param identifier identifier
+     * @return the identifier, or its shortened form if it is longer than the limit
+     * @throws IllegalStateException if another identifier has already been mapped to the same name
+     */
+    String shorten(String identifier) {
+        String physicalName = physicalNames.get(identifier);
+        if (physicalName != null) {
+            return physicalName;
+        }
+        physicalName = identifier.length() <= maxLength
+                ? identifier
+                : identifier.substring(0, maxLength - HASH_LENGTH - 1) + '_' + Hashing.sha256().hashString(identifier, StandardCharsets.UTF_8).toString().substring(0, HASH_LENGTH);
+        String previous = identifiers.putIfAbsent(physicalName, identifier);
+        if (previous != null && !previous.equals(identifier)) {
+            throw new IllegalStateException(
+                    "Identifiers " + previous + " and " + identifier + " are both mapped to " + physicalName + " within the limit of " + maxLength + " characters!");
+        }
+        physicalNames.putIfAbsent(identifier, physicalName);
+        return physicalName;
+    }
+}
@@ -2,15 +2,59 @@ package care.better.schema.hibernate.naming;
 
 import com.google.common.base.CaseFormat;
 import com.google.common.base.Converter;
+import com.google.common.base.Preconditions;
 import org.hibernate.boot.model.naming.Identifier;
 import org.hibernate.boot.model.naming.PhysicalNamingStrategy;
+import org.hibernate.dialect.Dialect;
 import org.hibernate.engine.jdbc.env.spi.JdbcEnvironment;
 
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 /**
+ * Converts table, sequence and column names to snake case. Conversions are memoized in a cache shared by all instances,
+ * so exporting the same entities for several dialects converts every name once. Optionally, names longer than the
+ * identifier limit of the dialect (30 characters on Oracle, 63 on PostgreSQL, 64 on MySQL, 128 on SQL Server) or of
+ * an explicit limit, e.g. 128 on Oracle 12.2 and later, are shortened to the beginning of the name and a hash of the
+ * whole name; names that collide after shortening fail the metadata build. Shortening renames existing tables and
+ * columns over the limit, so it is off by default.
+ *
  * @author Bostjan Lah
  */
 public class SnakeCasePhysicalNamingStrategy implements PhysicalNamingStrategy {
     private static final Converter<String, String> NAME_CONVERTER = CaseFormat.UPPER_CAMEL.converterTo(CaseFormat.LOWER_UNDERSCORE);
+    private static final ConcurrentMap<String, String> SNAKE_CASE_NAMES = new ConcurrentHashMap<>();
+
+    private final boolean shortenIdentifiers;
+    private final int maxIdentifierLength;
+    private final Map<JdbcEnvironment, IdentifierShortener> shorteners = Collections.synchronizedMap(new WeakHashMap<>());
+
+    public SnakeCasePhysicalNamingStrategy() {
+        this(false);
+    }
+
+    /**
+     * @param shortenIdentifiers true to shorten names longer than the identifier limit of the dialect
+     */
+    public SnakeCasePhysicalNamingStrategy(boolean shortenIdentifiers) {
+        this.shortenIdentifiers = shortenIdentifiers;
+        maxIdentifierLength = Integer.MAX_VALUE;
+    }
+
+    /**
+     * @param maxIdentifierLength shortens names longer than this limit instead of the limit of the dialect
+     */
+    public SnakeCasePhysicalNamingStrategy(int maxIdentifierLength) {
+        Preconditions.checkArgument(
+                maxIdentifierLength >= IdentifierShortener.MIN_LENGTH,
+                "Maximum identifier length must be at least %s",
+                IdentifierShortener.MIN_LENGTH);
+        shortenIdentifiers = true;
+        this.maxIdentifierLength = maxIdentifierLength;
+    }
 
     @Override
     public Identifier toPhysicalCatalogName(Identifier name, JdbcEnvironment jdbcEnvironment) {
@@ -24,16 +68,47 @@ public class SnakeCasePhysicalNamingStrategy implements PhysicalNamingStrategy {
 
     @Override
     public Identifier toPhysicalTableName(Identifier name, JdbcEnvironment jdbcEnvironment) {
-        return Identifier.toIdentifier(NAME_CONVERTER.convert(name.getText()));
+        return toPhysicalName(name, jdbcEnvironment);
     }
 
     @Override
     public Identifier toPhysicalSequenceName(Identifier name, JdbcEnvironment jdbcEnvironment) {
-        return Identifier.toIdentifier(NAME_CONVERTER.convert(name.getText()));
+        return toPhysicalName(name, jdbcEnvironment);
     }
 
     @Override
     public Identifier toPhysicalColumnName(Identifier name, JdbcEnvironment jdbcEnvironment) {
-        return Identifier.toIdentifier(NAME_CONVERTER.convert(name.getText()));
+        return toPhysicalName(name, jdbcEnvironment);
+    }
+
+    /**
+     * @param dialect Hibernate dialect, {@code null} if the JDBC environment is not known
+     * @return maximum length of physical names, {@link Integer#MAX_VALUE} to never shorten them (default unless
+     * shortening is enabled)
+     */
+    protected int getMaxIdentifierLength(Dialect dialect) {
+        if (!shortenIdentifiers) {
+            return Integer.MAX_VALUE;
+        }
+        return maxIdentifierLength == Integer.MAX_VALUE ? IdentifierShortener.getMaxIdentifierLength(dialect) : maxIdentifierLength;
+    }
+
+    /**
+     * @return class and options of the strategy, part of the schema export fingerprint
+     */
+    @Override
+    public String toString() {
+        return getClass().getName() + "{shortenIdentifiers=" + shortenIdentifiers + ", maxIdentifierLength=" + maxIdentifierLength + '}';
+    }
+
+    private Identifier toPhysicalName(Identifier name, JdbcEnvironment jdbcEnvironment) {
+        String snakeCaseName = SNAKE_CASE_NAMES.computeIfAbsent(name.getText(), NAME_CONVERTER::convert);
+        int maxLength = getMaxIdentifierLength(jdbcEnvironment == null ? null : jdbcEnvironment.getDialect());
+        if (maxLength == Integer.MAX_VALUE) {
+            return Identifier.toIdentifier(snakeCaseName);
+        }
+        // every metadata build has its own JDBC environment, collisions are only checked within a build
+        IdentifierShortener shortener = shorteners.computeIfAbsent(jdbcEnvironment, environment -> new IdentifierShortener(maxLength));
+        return Identifier.toIdentifier(shortener.shorten(snakeCaseName));
     }
 }
@@ -0,0 +1,38 @@
+package care.better.schema.db.impl;
+
+import care.better.schema.db.script.ScriptDialect;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class OnlineStatementExecutorTest {
+    @Test
+    void postgreSqlIndexIsCreatedConcurrently() {
+        OnlineStatementExecutor executor = new OnlineStatementExecutor(ScriptDialect.PGSQL);
+        assertEquals("CREATE INDEX CONCURRENTLY idx_a ON a (x)", executor.toOnlineIndex("CREATE INDEX idx_a ON a (x)"));
+        assertEquals("create unique index CONCURRENTLY if not exists idx_a on only a (x)",
+                     executor.toOnlineIndex("create unique index if not exists idx_a on only a (x)"));
+        assertEquals("CREATE INDEX CONCURRENTLY idx_a ON a (x)", executor.toOnlineIndex("CREATE INDEX CONCURRENTLY idx_a ON a (x)"));
+    }
+
+    @Test
+    void sqlServerIndexIsCreatedOnline() {
+        OnlineStatementExecutor executor = new OnlineStatementExecutor(ScriptDialect.MSSQL);
+        assertEquals("CREATE INDEX idx_a ON a (x) WITH (ONLINE = ON)", executor.toOnlineIndex("CREATE INDEX idx_a ON a (x)"));
+        assertEquals("CREATE NONCLUSTERED INDEX idx_a ON a (x) WITH (ONLINE = ON, FILLFACTOR = 80)",
+                     executor.toOnlineIndex("CREATE NONCLUSTERED INDEX idx_a ON a (x) WITH (FILLFACTOR = 80)"));
+        assertEquals("CREATE INDEX idx_a ON a (x) WITH (ONLINE = OFF)", executor.toOnlineIndex("CREATE INDEX idx_a ON a (x) WITH (ONLINE = OFF)"));
+    }
+
+    @Test
+    void oracleIndexIsCreatedOnline() {
+        OnlineStatementExecutor executor = new OnlineStatementExecutor(ScriptDialect.ORA);
+        assertEquals("CREATE INDEX idx_a ON a (x) ONLINE", executor.toOnlineIndex("CREATE INDEX idx_a ON a (x)"));
+    }
+
+    @Test
+    void otherStatementsAreUnchanged() {
+        OnlineStatementExecutor executor = new OnlineStatementExecutor(ScriptDialect.PGSQL);
+        assertEquals("ALTER TABLE a ADD COLUMN x INT", executor.toOnlineIndex("ALTER TABLE a ADD COLUMN x INT"));
+    }
+}